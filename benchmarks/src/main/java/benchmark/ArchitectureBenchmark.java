@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import architecture.ArchitectureSnapshot;
+import architecture.MicrocodeOptimizer;
+import architecture.MicrocodeRom;
+
+/**
+ * Whole program execution by the control unit (controlUnitEexec).
+ * Each invocation restores the loaded program from a snapshot and runs it until the end.
+ * The commands are run by the Java microprograms, the microcode sequencer, the compiled microcode,
+ * the compiled microcode after the microcode optimizer or the fast engine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchitectureBenchmark {
+
+	@Param({ "arithmetic", "alu", "imul", "memory" })
+	public String program;
+
+	@Param({ "java", "microcode", "compiled", "optimized", "fast" })
+	public String engine;
+
+	private Architecture arch;
+	private ArchitectureSnapshot loaded;
+
+	@Setup
+	public void setup() {
+		arch = new Architecture();
+		if ("fast".equals(engine))
+			arch.setFastEngine(true);
+		else if ("optimized".equals(engine))
+			arch.setMicrocode(new MicrocodeOptimizer(arch).optimize(MicrocodeRom.standard(arch)), true);
+		else if (!"java".equals(engine))
+			arch.setMicrocode(MicrocodeRom.standard(arch), "compiled".equals(engine));
+		arch.loadProgram(Programs.byName(program));
+		loaded = arch.snapshot();
+	}
+
+	@Benchmark
+	public long controlUnitEexec() {
+		arch.restore(loaded);
+		arch.controlUnitEexec();
+		return arch.getInstructionCount();
+	}
+
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import architecture.ArchitecturePool;
+
+/**
+ * The cost of preparing an architecture for a new program: a brand new instance,
+ * a reset of an existing one and an acquire/release from the pool
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchitectureSetupBenchmark {
+
+	private Architecture arch;
+	private ArchitecturePool pool;
+
+	@Setup
+	public void setup() {
+		arch = new Architecture();
+		pool = new ArchitecturePool(1);
+	}
+
+	@Benchmark
+	public Architecture newInstance() {
+		Architecture a = new Architecture();
+		a.loadProgram(Programs.IMUL);
+		return a;
+	}
+
+	@Benchmark
+	public Architecture reset() {
+		arch.reset();
+		arch.loadProgram(Programs.IMUL);
+		return arch;
+	}
+
+	@Benchmark
+	public Architecture pool() {
+		Architecture a = pool.acquire();
+		a.loadProgram(Programs.IMUL);
+		pool.release(a);
+		return a;
+	}
+
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import assembler.Assembler;
+import assembler.WorkloadGenerator;
+
+/**
+ * Assembler.parse() and the executable generation (makeExecutable without the file writing)
+ * over synthetic sources of several shapes and sizes, made by the WorkloadGenerator
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+
+	@Param({ "STRAIGHT_LINE", "NESTED_LOOPS", "VARIABLES", "LABELS", "IMUL" })
+	public WorkloadGenerator.Shape shape;
+
+	@Param({ "100", "1000" })
+	public int blocks;
+
+	private ArrayList<String> source;
+	private Assembler parsed;
+
+	@Setup
+	public void setup() {
+		source = new WorkloadGenerator(0).generate(shape, blocks);
+		parsed = parse();
+	}
+
+	@Benchmark
+	public Assembler parse() {
+		Assembler assembler = new Assembler();
+		assembler.setLines(source);
+		assembler.parse();
+		return assembler;
+	}
+
+	@Benchmark
+	public boolean makeExecutable() {
+		return parsed.buildExecutable();
+	}
+
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import architecture.ArchitectureSnapshot;
+
+/**
+ * The division of 1000 by 7 (quotient and remainder): by subtractions in a loop against the
+ * idiv and imod commands, run by the Java microprograms or the fast engine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DivisionBenchmark {
+
+	@Param({ "divisionLoop", "divisionCommands" })
+	public String program;
+
+	@Param({ "java", "fast" })
+	public String engine;
+
+	private Architecture arch;
+	private ArchitectureSnapshot loaded;
+
+	@Setup
+	public void setup() {
+		arch = new Architecture();
+		arch.setFastEngine("fast".equals(engine));
+		arch.loadProgram(Programs.byName(program));
+		loaded = arch.snapshot();
+	}
+
+	@Benchmark
+	public long controlUnitEexec() {
+		arch.restore(loaded);
+		arch.controlUnitEexec();
+		return arch.getInstructionCount();
+	}
+
+}
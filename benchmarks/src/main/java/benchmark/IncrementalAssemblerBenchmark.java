@@ -0,0 +1,86 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import assembler.Assembler;
+import assembler.IncrementalAssembler;
+import assembler.WorkloadGenerator;
+
+/**
+ * Re-assembling a big source after a single line edit: the IncrementalAssembler
+ * against the Assembler from scratch.
+ * Each operation switches the source between two versions that differ in one line,
+ * in the middle of the source:
+ * - editLine: the line is changed, keeping the same size (no address moves)
+ * - insertLine: a line is inserted (or removed), moving all labels after it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalAssemblerBenchmark {
+
+	@Param({ "100000" })
+	public int lines;
+
+	private ArrayList<String> source;
+	private ArrayList<String> edited;
+	private ArrayList<String> inserted;
+	private IncrementalAssembler incremental;
+	private boolean flip;
+
+	@Setup
+	public void setup() {
+		source = new WorkloadGenerator(0).generate(WorkloadGenerator.Shape.LABELS, lines / 3);
+		int middle = source.size() / 2;
+		while (!source.get(middle).startsWith("inc"))
+			middle++;
+		edited = new ArrayList<>(source);
+		edited.set(middle, "inc %RPG1");
+		inserted = new ArrayList<>(source);
+		inserted.add(middle, "move 7 %RPG2");
+		incremental = new IncrementalAssembler();
+		incremental.assemble(source);
+		incremental.assemble(edited);
+		incremental.assemble(inserted); // all versions are in the cache
+	}
+
+	private ArrayList<String> next(ArrayList<String> other) {
+		flip = !flip;
+		return flip ? other : source;
+	}
+
+	@Benchmark
+	public boolean editLine() {
+		return incremental.assemble(next(edited));
+	}
+
+	@Benchmark
+	public boolean insertLine() {
+		return incremental.assemble(next(inserted));
+	}
+
+	@Benchmark
+	public boolean fromScratch() {
+		Assembler assembler = new Assembler();
+		assembler.setLines(next(edited));
+		assembler.parse();
+		return assembler.buildExecutable();
+	}
+
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import assembler.Lexer;
+import assembler.SymbolTable;
+import assembler.WorkloadGenerator;
+import components.Register;
+
+/**
+ * Tokenizing a generated source of about one million lines: the Lexer over a char buffer
+ * against the old String.split(" ") per line.
+ * Run with "-prof gc" to compare the allocation rate (gc.alloc.rate.norm) of both
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+	private static final int BLOCKS = 250000; // each VARIABLES block is one line, plus the other shapes
+
+	private String lines[];
+	private char source[];
+	private Lexer lexer;
+
+	@Setup
+	public void setup() {
+		WorkloadGenerator generator = new WorkloadGenerator(0);
+		ArrayList<String> all = new ArrayList<>();
+		all.addAll(generator.generate(WorkloadGenerator.Shape.STRAIGHT_LINE, BLOCKS));
+		all.addAll(generator.generate(WorkloadGenerator.Shape.VARIABLES, BLOCKS));
+		all.addAll(generator.generate(WorkloadGenerator.Shape.LABELS, BLOCKS / 3));
+		all.addAll(generator.generate(WorkloadGenerator.Shape.IMUL, BLOCKS / 3));
+		lines = all.toArray(new String[all.size()]);
+		source = String.join("\n", all).toCharArray();
+
+		Architecture arch = new Architecture();
+		ArrayList<String> mnemonics = new ArrayList<>(arch.getCommandsList());
+		mnemonics.add("move");
+		mnemonics.add("add");
+		mnemonics.add("sub");
+		mnemonics.add("imul");
+		mnemonics.add("inc");
+		ArrayList<String> registers = new ArrayList<>();
+		for (Register r : arch.getRegistersList()) {
+			registers.add(r.getRegisterName());
+		}
+		lexer = new Lexer(mnemonics, registers, new SymbolTable());
+	}
+
+	@Benchmark
+	public long lexer() {
+		long sum = 0;
+		lexer.reset(source, 0, source.length);
+		int kind;
+		while ((kind = lexer.next()) != Lexer.EOF) {
+			sum += kind + lexer.value;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long split() {
+		long sum = 0;
+		for (String l : lines) {
+			for (String token : l.split(" ")) {
+				sum += token.length();
+			}
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.Bus;
+import components.Memory;
+import components.PagedMemory;
+
+/**
+ * Memory.read() and the two calls Memory.store() protocol through the bus,
+ * for the plain and the paged memory
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+	@Param({ "plain", "paged" })
+	public String memoryType;
+
+	private Bus bus;
+	private Memory memory;
+	private int position;
+
+	@Setup
+	public void setup() {
+		bus = new Bus();
+		memory = "paged".equals(memoryType) ? new PagedMemory(256, bus) : new Memory(256, bus);
+	}
+
+	@Benchmark
+	public int read() {
+		position = (position + 1) & 255;
+		bus.put(position);
+		memory.read();
+		return bus.get();
+	}
+
+	@Benchmark
+	public void store() {
+		position = (position + 1) & 255;
+		bus.put(position);
+		memory.store();
+		bus.put(position);
+		memory.store();
+	}
+
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import components.Register;
+
+/**
+ * A single microprogram (one instruction) executed over and over.
+ * The instruction is stored at the position 0 with its parameters; before each
+ * execution PC is moved back to 0. Registers parameters are RPG0 and RPG1,
+ * memory parameters are the position 250 and jumps go to the position 0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicroprogramBenchmark {
+
+	@Param({ "addRegReg", "addMemReg", "addRegMem", "subRegReg", "subMemReg", "subRegMem", "imulMemReg",
+			"imulRegMem", "imulRegReg", "moveMemReg", "moveRegMem", "moveRegReg", "moveImmReg", "incReg", "incMem",
+			"jmp", "jn", "jz", "jnz", "jeq", "jgt", "jlw", "ldi", "read", "store" })
+	public String microprogram;
+
+	private Architecture arch;
+	private Register pc;
+	private Runnable instruction;
+
+	private static final int REG = 0, REG2 = 1, MEM = 250, IMM = 3, LABEL = 0;
+
+	@Setup
+	public void setup() {
+		arch = new Architecture();
+		pc = arch.getRegistersList().get(4);
+		int opcode = arch.getCommandsList().indexOf(microprogram);
+		int parameters[];
+		switch (microprogram) {
+			case "addRegReg": instruction = arch::addRegReg; parameters = new int[] { REG, REG2 }; break;
+			case "addMemReg": instruction = arch::addMemReg; parameters = new int[] { MEM, REG }; break;
+			case "addRegMem": instruction = arch::addRegMem; parameters = new int[] { REG, MEM }; break;
+			case "subRegReg": instruction = arch::subRegReg; parameters = new int[] { REG, REG2 }; break;
+			case "subMemReg": instruction = arch::subMemReg; parameters = new int[] { MEM, REG }; break;
+			case "subRegMem": instruction = arch::subRegMem; parameters = new int[] { REG, MEM }; break;
+			case "imulMemReg": instruction = arch::imulMemReg; parameters = new int[] { MEM, REG }; break;
+			case "imulRegMem": instruction = arch::imulRegMem; parameters = new int[] { REG, MEM }; break;
+			case "imulRegReg": instruction = arch::imulRegReg; parameters = new int[] { REG, REG2 }; break;
+			case "moveMemReg": instruction = arch::moveMemReg; parameters = new int[] { MEM, REG }; break;
+			case "moveRegMem": instruction = arch::moveRegMem; parameters = new int[] { REG, MEM }; break;
+			case "moveRegReg": instruction = arch::moveRegReg; parameters = new int[] { REG, REG2 }; break;
+			case "moveImmReg": instruction = arch::moveImmReg; parameters = new int[] { IMM, REG }; break;
+			case "incReg": instruction = arch::incReg; parameters = new int[] { REG }; break;
+			case "incMem": instruction = arch::incMem; parameters = new int[] { MEM }; break;
+			case "jmp": instruction = arch::jmp; parameters = new int[] { LABEL }; break;
+			case "jn": instruction = arch::jn; parameters = new int[] { LABEL }; break;
+			case "jz": instruction = arch::jz; parameters = new int[] { LABEL }; break;
+			case "jnz": instruction = arch::jnz; parameters = new int[] { LABEL }; break;
+			case "jeq": instruction = arch::jeq; parameters = new int[] { REG, REG2, LABEL }; break;
+			case "jgt": instruction = arch::jgt; parameters = new int[] { REG, REG2, LABEL }; break;
+			case "jlw": instruction = arch::jlw; parameters = new int[] { REG, REG2, LABEL }; break;
+			case "ldi": instruction = arch::ldi; parameters = new int[] { REG, IMM }; break;
+			case "read": instruction = arch::read; parameters = new int[] { MEM, REG }; break;
+			case "store": instruction = arch::store; parameters = new int[] { REG, MEM }; break;
+			default: throw new IllegalArgumentException("Unknown microprogram " + microprogram);
+		}
+		int program[] = new int[parameters.length + 1];
+		program[0] = opcode;
+		System.arraycopy(parameters, 0, program, 1, parameters.length);
+		arch.loadProgram(program);
+	}
+
+	@Benchmark
+	public int execute() {
+		pc.setData(0);
+		instruction.run();
+		return pc.getData();
+	}
+
+}
@@ -0,0 +1,165 @@
+package benchmark;
+
+/**
+ * Representative programs, in machine code, used by the simulator benchmarks
+ */
+final class Programs {
+
+	private Programs() {
+	}
+
+	/**
+	 * move -50 %RPG0
+	 * loop:
+	 * add %RPG0 %RPG1
+	 * inc %RPG0
+	 * jnz loop
+	 */
+	static final int ARITHMETIC[] = { 12, -50, 0, 0, 0, 1, 13, 0, 18, 3, -1 };
+
+	/**
+	 * Arithmetic heavy: the flags are set by six commands and tested by only one
+	 * move -50 %RPG0
+	 * loop:
+	 * add %RPG0 %RPG1
+	 * add %RPG1 %RPG2
+	 * sub %RPG0 %RPG3
+	 * add %RPG2 %RPG3
+	 * inc %RPG1
+	 * inc %RPG0
+	 * jnz loop
+	 */
+	static final int ALU[] = { 12, -50, 0, 0, 0, 1, 0, 1, 2, 3, 0, 3, 0, 2, 3, 13, 1, 13, 0, 18, 3, -1 };
+
+	/**
+	 * move 7 %RPG0
+	 * move 9 %RPG1
+	 * imul %RPG0 %RPG1
+	 */
+	static final int IMUL[] = { 12, 7, 0, 12, 9, 1, 8, 0, 1, -1 };
+
+	/**
+	 * var (address 255)
+	 * move -50 %RPG0
+	 * move 0 %RPG1
+	 * move %RPG1 var
+	 * loop:
+	 * add %RPG0 var
+	 * inc var
+	 * move var %RPG2
+	 * inc %RPG0
+	 * jnz loop
+	 */
+	static final int MEMORY[] = { 12, -50, 0, 12, 0, 1, 10, 1, 255, 2, 0, 255, 14, 255, 9, 255, 2, 13, 0, 18, 9,
+			-1 };
+
+	/**
+	 * The word by word copy of 16 positions, from 100 to 150 (unrolled, since the commands
+	 * address the memory only by constants)
+	 * move 100 %RPG0
+	 * move %RPG0 150
+	 * move 101 %RPG0
+	 * ...
+	 */
+	static final int COPY_WORDS[] = words(9, 100);
+
+	/**
+	 * move 100 %RPG0
+	 * move 150 %RPG1
+	 * move 16 %RPG2
+	 * copy %RPG0 %RPG1 %RPG2
+	 */
+	static final int COPY_BLOCK[] = { 12, 100, 0, 12, 150, 1, 12, 16, 2, 25, 0, 1, 2, -1 };
+
+	/**
+	 * The word by word fill of 16 positions from 150, with 7
+	 * move 7 %RPG0
+	 * move %RPG0 150
+	 * move %RPG0 151
+	 * ...
+	 */
+	static final int FILL_WORDS[] = words(12, 7);
+
+	/**
+	 * move 7 %RPG0
+	 * move 150 %RPG1
+	 * move 16 %RPG2
+	 * fill %RPG0 %RPG1 %RPG2
+	 */
+	static final int FILL_BLOCK[] = { 12, 7, 0, 12, 150, 1, 12, 16, 2, 26, 0, 1, 2, -1 };
+
+	/**
+	 * The division of 1000 by 7 by subtractions: the quotient in RPG2, the remainder in RPG0
+	 * move 1000 %RPG0
+	 * move 7 %RPG1
+	 * move -7 %RPG3
+	 * loop:
+	 * jgt %RPG0 %RPG1 end
+	 * add %RPG3 %RPG0
+	 * inc %RPG2
+	 * jmp loop
+	 * end:
+	 */
+	static final int DIVISION_LOOP[] = { 12, 1000, 0, 12, 7, 1, 12, -7, 3, 20, 0, 1, 20, 0, 3, 0, 13, 2, 15, 9, -1 };
+
+	/**
+	 * The same division by the commands: the quotient in RPG2, the remainder in RPG1
+	 * move 1000 %RPG0
+	 * move 7 %RPG1
+	 * move %RPG1 %RPG2
+	 * idiv %RPG0 %RPG2
+	 * imod %RPG0 %RPG1
+	 */
+	static final int DIVISION_COMMANDS[] = { 12, 1000, 0, 12, 7, 1, 11, 1, 2, 43, 0, 2, 46, 0, 1, -1 };
+
+	/**
+	 * This method makes the word by word programs: the 16 words from 150 are written with RPG0,
+	 * after RPG0 is loaded by the command
+	 * @param load moveMemReg (9) loads each word before its move; moveImmReg (12) loads RPG0 once
+	 * @param operand the first source position or the constant
+	 */
+	private static int[] words(int load, int operand) {
+		int program[] = new int[(load == 9) ? 16 * 6 + 1 : 16 * 3 + 4];
+		int p = 0;
+		for (int i = 0; i < 16; i++) {
+			if ((load == 9) || (i == 0)) {
+				program[p++] = load;
+				program[p++] = (load == 9) ? operand + i : operand;
+				program[p++] = 0;
+			}
+			program[p++] = 10;
+			program[p++] = 0;
+			program[p++] = 150 + i;
+		}
+		program[p] = -1;
+		return program;
+	}
+
+	static int[] byName(String name) {
+		switch (name) {
+			case "arithmetic":
+				return ARITHMETIC;
+			case "alu":
+				return ALU;
+			case "imul":
+				return IMUL;
+			case "memory":
+				return MEMORY;
+			case "copyWords":
+				return COPY_WORDS;
+			case "copyBlock":
+				return COPY_BLOCK;
+			case "fillWords":
+				return FILL_WORDS;
+			case "fillBlock":
+				return FILL_BLOCK;
+			case "divisionLoop":
+				return DIVISION_LOOP;
+			case "divisionCommands":
+				return DIVISION_COMMANDS;
+			default:
+				throw new IllegalArgumentException("Unknown program " + name);
+		}
+	}
+
+}
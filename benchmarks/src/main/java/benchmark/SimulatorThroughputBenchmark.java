@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import architecture.Architecture;
+import architecture.ArchitectureSnapshot;
+import assembler.Assembler;
+import assembler.WorkloadGenerator;
+
+/**
+ * Simulator throughput over generated programs small enough to fit in the memory.
+ * The score is the time of a whole program, from the loaded state until the end
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorThroughputBenchmark {
+
+	@Param({ "STRAIGHT_LINE", "NESTED_LOOPS", "VARIABLES", "LABELS", "IMUL" })
+	public WorkloadGenerator.Shape shape;
+
+	private Architecture arch;
+	private ArchitectureSnapshot loaded;
+
+	static int[] executable(WorkloadGenerator.Shape shape) {
+		WorkloadGenerator generator = new WorkloadGenerator(0);
+		int blocks = (shape == WorkloadGenerator.Shape.NESTED_LOOPS) ? 2 : 20;
+		Assembler assembler = new Assembler();
+		assembler.setLines(generator.generate(shape, blocks));
+		assembler.parse();
+		assembler.buildExecutable();
+		return assembler.getExecutable();
+	}
+
+	@Setup
+	public void setup() {
+		arch = new Architecture();
+		arch.loadProgram(executable(shape));
+		loaded = arch.snapshot();
+	}
+
+	@Benchmark
+	public void run(Blackhole bh) {
+		arch.restore(loaded);
+		arch.controlUnitEexec();
+		bh.consume(arch.getInstructionCount());
+	}
+
+}
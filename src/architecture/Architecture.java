@@ -1,6 +1,7 @@
 package architecture;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import java.util.Scanner;
 import assembler.Assembler;
 import components.Bus;
 import components.Memory;
+import components.PagedMemory;
 import components.Register;
 import components.Ula;
 
@@ -20,6 +22,19 @@ public class Architecture {
 								// simulation mode shows the components' status after each instruction
 
 	private boolean halt;
+	private boolean flagsPending; // the flags bits of lastResult were not computed yet
+	private int lastResult; // the last ula result given to setStatusFlags
+	private boolean pagedMemory; // when true, the memory is a copy-on-write paged memory
+	private long instructionCount; // instructions executed by the control unit
+	private Checkpointer checkpointer; // when not null, the state is periodically saved into a file
+	private long instructionBudget; // maximum instructions per execution (zero means no limit)
+	private long timeBudgetMillis; // maximum wall-clock time per execution (zero means no limit)
+	private ExecutionStatus status = ExecutionStatus.NOT_STARTED;
+	private ExecutionStatistics statistics = sharedStatistics;
+
+	private static final ExecutionStatistics sharedStatistics = new ExecutionStatistics();
+	private int memoryTemplate[]; // the memory just after the instantiation, used by reset()
+	private static final int BUDGET_CHECK_MASK = 4096 - 1; // budgets are checked once in 4096 instructions
 	private Bus extbus1;
 	private Bus intbus1;
 	private Bus intbus2;
@@ -34,6 +49,10 @@ public class Architecture {
 	private Register Flags;
 	private Ula ula;
 	private Bus demux; // only for multiple register purposes
+	private MicrocodeRom microcode; // when not null, the commands are run from this ROM
+	private boolean microcodeCompiled;
+	private boolean fastEngine; // when true, the commands are run by the FastEngine
+	private MicroEngine microEngine;
 
 	private ArrayList<String> commandsList;
 	private ArrayList<Register> registersList;
@@ -44,6 +63,17 @@ public class Architecture {
 	 * Instanciates all components in this architecture
 	 */
 	private void componentsInstances() {
+		componentsInstances(null);
+	}
+
+	/**
+	 * Instanciates all components in this architecture.
+	 * When a parent memory is informed, the memory is not filled: it is shared with
+	 * the parent (paged memory) or copied from it
+	 * 
+	 * @param parentMemory
+	 */
+	private void componentsInstances(Memory parentMemory) {
 		// don't forget the instantiation order
 		// buses -> registers -> ula -> memory
 		extbus1 = new Bus();
@@ -55,13 +85,21 @@ public class Architecture {
 		RPG1 = new Register("RPG1", extbus1, intbus1);
 		RPG2 = new Register("RPG2", extbus1, intbus1);
 		RPG3 = new Register("RPG3", extbus1, intbus1);
-		Flags = new Register(3, intbus1);
+		Flags = new Register(4, intbus1); // zero, negative, nonzero and divide by zero
 		fillRegistersList();
 		ula = new Ula(intbus1, intbus2);
 
 		memorySize = 256;
-		memory = new Memory(memorySize, extbus1);
-		fillReservedSpace();
+		if (parentMemory instanceof PagedMemory) {
+			memory = ((PagedMemory) parentMemory).fork(extbus1);
+		} else {
+			memory = pagedMemory ? new PagedMemory(memorySize, extbus1) : new Memory(memorySize, extbus1);
+			if (parentMemory == null) {
+				fillReservedSpace();
+				memoryTemplate = memory.dump(); // taken from this instance: fillReservedSpace may be overridden
+			} else
+				memory.restore(parentMemory.dump());
+		}
 
 		demux = new Bus(); // this bus is used only for multiple register operations
 
@@ -103,6 +141,61 @@ public class Architecture {
 		simulation = sim;
 	}
 
+	/**
+	 * In this constructor the memory can be a copy-on-write paged memory,
+	 * allowing cheap forks of this architecture
+	 * 
+	 * @param sim
+	 * @param pagedMemory
+	 */
+	public Architecture(boolean sim, boolean pagedMemory) {
+		this.pagedMemory = pagedMemory;
+		componentsInstances();
+		simulation = sim;
+	}
+
+	/**
+	 * Fork constructor. The memory is shared (paged memory) or copied from the parent
+	 * 
+	 * @param parent
+	 */
+	private Architecture(Architecture parent) {
+		pagedMemory = parent.pagedMemory;
+		memoryTemplate = parent.memoryTemplate;
+		componentsInstances(parent.memory);
+		simulation = parent.simulation;
+	}
+
+	/**
+	 * This method creates a new architecture in the same state of this one.
+	 * When using a paged memory, the memory pages are shared between both architectures
+	 * and copied only when written, so the fork costs only the modified pages
+	 * 
+	 * @return
+	 */
+	public Architecture fork() {
+		Architecture child = new Architecture(this);
+		child.memory.setStorePosition(memory.getStorePosition());
+		materializeFlags();
+		for (int i = 0; i < registersList.size(); i++) {
+			child.registersList.get(i).setData(registersList.get(i).getData());
+		}
+		for (int i = 0; i < Flags.getNumFlags(); i++) {
+			child.Flags.setBit(i, Flags.getBit(i));
+		}
+		child.ula.setRegisterData(0, ula.getRegisterData(0));
+		child.ula.setRegisterData(1, ula.getRegisterData(1));
+		child.extbus1.put(extbus1.get());
+		child.intbus1.put(intbus1.get());
+		child.intbus2.put(intbus2.get());
+		child.demux.put(demux.get());
+		if (fastEngine)
+			child.setFastEngine(true);
+		else
+			child.setMicrocode(microcode, microcodeCompiled);
+		return child;
+	}
+
 	// getters
 
 	protected Bus getExtbus1() {
@@ -146,6 +239,7 @@ public class Architecture {
 	}
 
 	protected Register getFlags() {
+		materializeFlags();
 		return Flags;
 	}
 
@@ -153,6 +247,10 @@ public class Architecture {
 		return ula;
 	}
 
+	protected Bus getDemux() {
+		return demux;
+	}
+
 	public ArrayList<String> getCommandsList() {
 		return commandsList;
 	}
@@ -173,29 +271,35 @@ public class Architecture {
 	 * move regA regB (regA <- regB)
 	 */
 
+	/**
+	 * The imul routine adds RPG0 - 1 times the saved RPG1 to the multiplicand, in 206, by shifts
+	 * and adds: its loop runs once for each bit of RPG0 - 1, not once for each unit.
+	 * The destination register id is in 240 and the routine ends with the flags of a zero result.
+	 * IR, saved in 205, is not restored: every command uses it as a scratch register (incrementarPC)
+	 * and the next fetch overwrites it, so a restored IR could never be read
+	 */
 	protected void fillReservedSpace() {
 		List<Integer> imul = Arrays.asList(
-			12, -1, 2,
-			0, 2, 0,
-			17, 220,
-			1, 201, 1,
-			15, 210,
-			10, 1, 206,
-			9, 200, 0,
+			31, -1, 0, // add -1 %RPG0
+			17, 229, // jz done
+			12, 1, 2, // loop: move 1 %RPG2
+			38, 0, 2, // and %RPG0 %RPG2
+			17, 223, // jz even
+			2, 1, 206, // add %RPG1 206
+			35, 1, // even: shl %RPG1
+			36, 0, // shr %RPG0
+			18, 212, // jnz loop
+			9, 200, 0, // done: the registers are restored
 			9, 201, 1,
 			9, 202, 2,
-			9, 203, 3,
-			9, 205, 5,
-			9, 206, -1,
+			9, 206, -1, // the destination gets the result
 			9, 204, 4
 		);
-		for (int i = 0; i < imul.size(); i++) {
-			int endereco = INICIO_AREA_RESERVADA + 7 + i;
-			extbus1.put(endereco);
-			memory.store();
-			extbus1.put(imul.get(i));
-			memory.store();
+		int routine[] = new int[imul.size()];
+		for (int i = 0; i < routine.length; i++) {
+			routine[i] = imul.get(i);
 		}
+		memory.storeBlock(INICIO_AREA_RESERVADA + 7, routine);
 	}
 
 	/**
@@ -230,30 +334,87 @@ public class Architecture {
 		commandsList.add("ldi"); // 22
 		commandsList.add("read"); // 23
 		commandsList.add("store"); // 24
+		commandsList.add("copy"); // 25
+		commandsList.add("fill"); // 26
+		commandsList.add("moveIdxReg"); // 27
+		commandsList.add("moveRegIdx"); // 28
+		commandsList.add("addIdxReg"); // 29
+		commandsList.add("subIdxReg"); // 30
+		commandsList.add("addImmReg"); // 31
+		commandsList.add("subImmReg"); // 32
+		commandsList.add("cmpImmReg"); // 33
+		commandsList.add("loop"); // 34
+		commandsList.add("shl"); // 35
+		commandsList.add("shr"); // 36
+		commandsList.add("rol"); // 37
+		commandsList.add("and"); // 38
+		commandsList.add("or"); // 39
+		commandsList.add("xor"); // 40
+		commandsList.add("idivMemReg"); // 41
+		commandsList.add("idivRegMem"); // 42
+		commandsList.add("idivRegReg"); // 43
+		commandsList.add("imodMemReg"); // 44
+		commandsList.add("imodRegMem"); // 45
+		commandsList.add("imodRegReg"); // 46
+		commandsList.add("ror"); // 47
 	}
 
 	/**
 	 * This method is used after some ULA operations, setting the flags bits
 	 * according the result.
+	 * The bits are computed only when they can be read (by a conditional jump, a snapshot,
+	 * getFlags or getRegistersList), since most results are never tested
 	 * 
 	 * @param result is the result of the operation
-	 *               NOT TESTED!!!!!!!
 	 */
-	private void setStatusFlags(int result) {
+	void setStatusFlags(int result) {
+		lastResult = result;
+		flagsPending = true;
+	}
+
+	/**
+	 * This method is used by the divisions, setting the flags bit 3 if the divisor is 0 and
+	 * clearing it otherwise. The other bits are not changed
+	 * 
+	 * @param divisor
+	 */
+	void setDivideFlag(int divisor) {
+		Flags.setBit(3, (divisor == 0) ? 1 : 0);
+	}
+
+	/**
+	 * This method computes the flags bits of the last result given to setStatusFlags,
+	 * if they were not computed yet
+	 */
+	private void materializeFlags() {
+		if (!flagsPending)
+			return;
+		flagsPending = false;
 		Flags.setBit(0, 0);
 		Flags.setBit(1, 0);
 		Flags.setBit(2, 0);
-		if (result == 0) { // bit 0 in flags must be 1 in this case
+		if (lastResult == 0) { // bit 0 in flags must be 1 in this case
 			Flags.setBit(0, 1);
 		}
-		if (result < 0) { // bit 1 in flags must be 1 in this case
+		if (lastResult < 0) { // bit 1 in flags must be 1 in this case
 			Flags.setBit(1, 1);
 		}
-		if (result != 0) { // bit 2 in flags must be 1 in this case
+		if (lastResult != 0) { // bit 2 in flags must be 1 in this case
 			Flags.setBit(2, 1);
 		}
 	}
 
+	/**
+	 * This method reads a flags bit, computing the bits first if needed
+	 * 
+	 * @param pos
+	 * @return
+	 */
+	int getFlagBit(int pos) {
+		materializeFlags();
+		return Flags.getBit(pos);
+	}
+
 	public void incrementarPC() {
 		PC.read();
 		IR.store();
@@ -445,12 +606,17 @@ public class Architecture {
 		incrementarPC();
 	}
 
+	/**
+	 * imul mem %B: the value in mem is the multiplicand and B gets the result of the imul routine
+	 */
 	public void imulMemReg() {
 		incrementarPC();
 
 		memory.read();
-		memory.read();
-		demux.put(extbus1.get());
+		memory.read(); // the multiplicand is in the external bus
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0); // kept in the ula while PC goes to the register id
 
 		ula.inc();
 		ula.internalRead(1);
@@ -458,27 +624,25 @@ public class Architecture {
 		IR.read();
 		PC.store();
 
-		extbus1.put(demux.get());
-		IR.store();
-		IR.internalRead();
-
-		PC.read();
 		memory.read();
 		demux.put(extbus1.get());
-		demuxRegisterInternalRead();
-		ula.internalStore(1);
-
-		extbus1.put(INICIO_AREA_RESERVADA + 8);
-		PC.store();
 
-		ula.read(1);
-		demuxRegisterInternalStore();
+		// the state is saved with PC pointing to the last parameter, as in imulRegReg
+		salvarEstadoRegistradores();
 
-		setStatusFlags(intbus1.get());
+		extbus1.put(INICIO_AREA_RESERVADA + 6);
+		memory.store();
+		ula.internalRead(0);
+		IR.internalStore();
+		IR.read();
+		memory.store();
 
-		incrementarPC();
+		imulDestination();
 	}
 
+	/**
+	 * imul %A mem: the value in mem is the multiplicand and A gets the result of the imul routine
+	 */
 	public void imulRegMem() {
 		incrementarPC();
 
@@ -491,29 +655,34 @@ public class Architecture {
 		IR.read();
 		PC.store();
 
-		demuxRegisterInternalRead();
-		ula.store(0);
+		// the state is saved with PC pointing to the last parameter, as in imulRegReg
+		salvarEstadoRegistradores();
 
+		PC.read();
 		memory.read();
-		memory.store();
-		memory.read();
-
+		memory.read(); // the multiplicand is in the external bus
 		IR.store();
-		IR.internalRead();
-		ula.internalStore(1);
-
-		extbus1.put(INICIO_AREA_RESERVADA + 8);
-		PC.store();
+		extbus1.put(INICIO_AREA_RESERVADA + 6);
+		memory.store();
+		IR.read();
+		memory.store();
 
-		ula.read(1);
-		setStatusFlags(intbus1.get());
+		imulDestination();
+	}
 
-		ula.internalRead(1);
-		IR.internalStore();
-		IR.read();
+	/**
+	 * This method writes the register id in the demux as the destination of the imul routine
+	 * and starts the routine
+	 */
+	private void imulDestination() {
+		int regId = demux.get();
+		extbus1.put(INICIO_AREA_RESERVADA + 40);
+		memory.store();
+		extbus1.put(regId);
 		memory.store();
 
-		incrementarPC();
+		extbus1.put(INICIO_AREA_RESERVADA + 7);
+		PC.store();
 	}
 
 	public void imulRegReg() {
@@ -532,25 +701,22 @@ public class Architecture {
 		memory.read();
 		demux.put(extbus1.get());
 
-		incrementarPC();
+		// the state is saved with PC pointing to the last parameter: the routine restores PC
+		// with a moveMemReg, whose final incrementarPC makes PC point to the next instruction
 		salvarEstadoRegistradores();
+		incrementarPC();
 		// testar se os valores são negativos, ja que nao pode usar -1 pra iterar nesse
 		// caso
 		//RPG.internalStore(); // ta recebendo 9 por algum motivo
 		
-		demuxRegisterInternalRead();
-		RPG1.internalStore();
-
-
-		// Salvar destino multiplicacao
-		int regId = demux.get();
-		extbus1.put(INICIO_AREA_RESERVADA + 40);
+		// the multiplicand goes to the result of the routine
+		extbus1.put(INICIO_AREA_RESERVADA + 6);
 		memory.store();
-		extbus1.put(regId);
+		demuxRegisterRead();
 		memory.store();
 
-		extbus1.put(INICIO_AREA_RESERVADA + 7);
-		PC.store();
+		// Salvar destino multiplicacao
+		imulDestination();
 	}
 
 	public void salvarEstadoRegistradores() {
@@ -691,7 +857,7 @@ public class Architecture {
 	public void jz() {
 		incrementarPC();
 
-		if (Flags.getBit(0) == 1) {
+		if (getFlagBit(0) == 1) {
 			memory.read();
 			PC.store();
 		} else {
@@ -707,7 +873,7 @@ public class Architecture {
 		incrementarPC();
 		;
 
-		if (Flags.getBit(1) == 1) {
+		if (getFlagBit(1) == 1) {
 			memory.read();
 			PC.store();
 		} else {
@@ -722,7 +888,37 @@ public class Architecture {
 	public void jnz() {
 		incrementarPC();
 
-		if (Flags.getBit(2) == 1) {
+		if (getFlagBit(2) == 1) {
+			memory.read();
+			PC.store();
+		} else {
+			ula.inc();
+			ula.internalRead(1);
+			IR.internalStore();
+			IR.read();
+			PC.store();
+		}
+	}
+
+	public void loop() { // loop %RegA label // RegA <- RegA - 1; if RegA != 0, PC <- label
+		incrementarPC();
+
+		memory.read(); // the register id is now in the external bus
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(0);
+		extbus1.put(1);
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(1);
+		ula.sub(); // RegA - 1
+		ula.read(1);
+		setStatusFlags(intbus1.get()); // as inc, the flags of the new value
+		demuxRegisterInternalStore();
+
+		incrementarPC(); // PC points to the label
+
+		if (getFlagBit(2) == 1) {
 			memory.read();
 			PC.store();
 		} else {
@@ -740,6 +936,7 @@ public class Architecture {
 		memory.read();
 		demux.put(extbus1.get());// points to the correct register
 		demuxRegisterInternalRead();
+		ula.store(0); // kept in the ula: incrementarPC overwrites the intbus1
 
 		incrementarPC();
 
@@ -755,6 +952,7 @@ public class Architecture {
 		demuxRegisterRead(); // performs an internal store for the register identified into demux bus
 		IR.store();
 		IR.internalRead();
+		ula.read(0); // the first register value is back in the intbus1
 
 		if (intbus1.get() == intbus2.get()) {
 			PC.read();
@@ -775,6 +973,7 @@ public class Architecture {
 		memory.read();
 		demux.put(extbus1.get());// points to the correct register
 		demuxRegisterInternalRead();
+		ula.store(0); // kept in the ula: incrementarPC overwrites the intbus1
 
 		incrementarPC();
 
@@ -790,6 +989,7 @@ public class Architecture {
 		demuxRegisterRead(); // performs an internal store for the register identified into demux bus
 		IR.store();
 		IR.internalRead();
+		ula.read(0); // the first register value is back in the intbus1
 
 		if (intbus2.get() > intbus1.get()) {
 			PC.read();
@@ -810,6 +1010,7 @@ public class Architecture {
 		memory.read();
 		demux.put(extbus1.get());// points to the correct register
 		demuxRegisterInternalRead();
+		ula.store(0); // kept in the ula: incrementarPC overwrites the intbus1
 
 		incrementarPC();
 
@@ -825,6 +1026,7 @@ public class Architecture {
 		demuxRegisterRead(); // performs an internal store for the register identified into demux bus
 		IR.store();
 		IR.internalRead();
+		ula.read(0); // the first register value is back in the intbus1
 
 		if (intbus2.get() < intbus1.get()) {
 			PC.read();
@@ -903,94 +1105,763 @@ public class Architecture {
 		incrementarPC();
 	}
 
-	public void inc() {
+	/**
+	 * This method reads the registers of the block commands: the first one goes to the
+	 * ula register 0, the second one to the ula register 1 and the third one to the external bus.
+	 * In the end, PC points to the last parameter
+	 */
+	private void blockOperands() {
+		incrementarPC();
 
-		RPG.internalRead();
-		ula.store(1);
-		ula.inc();
-		ula.read(1);
-		setStatusFlags(intbus1.get());
-		RPG.internalStore();
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(0); // kept in the ula: incrementarPC overwrites the intbus1
 
 		incrementarPC();
+
+		memory.read();
+		demux.put(extbus1.get());
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the third register id
+
+		demuxRegisterInternalRead();
+		ula.store(1);
+
+		PC.read();
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterRead();
 	}
 
-	public void add() {
-		incrementarPC();
+	public void copy() { // copy %RegA %RegB %RegC // mem[RegB..RegB+RegC-1] <- mem[RegA..RegA+RegC-1]
+		blockOperands();
+		memoryCopy();
 
-		RPG.internalRead();
-		ula.store(0); // the rpg value is in ULA (0). This is the first parameter
+		incrementarPC();
+	}
 
-		memory.read(); // the parameter is now in the external bus.
-						// but the parameter is an address and we need the value
-		memory.read(); // now the value is in the external bus
-		RPG.store();
-		RPG.internalRead();
-		ula.store(1); // the rpg value is in ULA (0). This is the second parameter
-		ula.add(); // the result is in the second ula's internal register
-		ula.read(1);
-		; // the operation result is in the internalbus 2
-		setStatusFlags(intbus1.get()); // changing flags due the end of the operation
-		RPG.internalStore(); // now the add is complete
+	public void fill() { // fill %RegA %RegB %RegC // mem[RegB..RegB+RegC-1] <- RegA
+		blockOperands();
+		memoryFill();
 
 		incrementarPC();
 	}
 
-	public void sub() {
+	/**
+	 * This method reads the indexed operand offset(%RegA) of the commands whose first parameters
+	 * are the offset and the base register: the data in the position RegA + offset is put in IR.
+	 * In the end, PC points to the last parameter
+	 */
+	private void indexedOperand() {
 		incrementarPC();
 
-		RPG.internalRead();
-		ula.store(0); // the rpg value is in ULA (0). This is the first parameter
+		memory.read(); // the offset is now in the external bus
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0); // kept in the ula: the next parameters don't use the ula register 0
 
-		memory.read(); // the parameter is now in the external bus.
-						// but the parameter is an address and we need the value
-		memory.read(); // now the value is in the external bus
-		RPG.store();
-		RPG.internalRead();
-		ula.store(1); // the rpg value is in ULA (0). This is the second parameter
-		ula.sub(); // the result is in the second ula's internal register
-		ula.read(1);
-		; // the operation result is in the internalbus 2
-		setStatusFlags(intbus1.get()); // changing flags due the end of the operation
-		RPG.internalStore(); // now the sub is complete
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the base register id
 
-		incrementarPC();
-	}
+		memory.read();
+		demux.put(extbus1.get());
 
-	public ArrayList<Register> getRegistersList() {
-		return registersList;
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the last parameter
+
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.add(); // the position is now in the ula register 1
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		memory.read(); // the data is now in the external bus
+		IR.store();
 	}
 
-	/**
-	 * This method performs an (external) read from a register into the register
-	 * list.
-	 * The register id must be in the demux bus
-	 */
-	private void demuxRegisterRead() {
-		registersList.get(demux.get()).read();
+	public void moveIdxReg() { // move offset(%RegA) %RegB // RegB <- mem[RegA + offset]
+		indexedOperand();
+
+		PC.read();
+		memory.read();
+		demux.put(extbus1.get()); // points to RegB
+		IR.read();
+		demuxRegisterStore();
+
+		incrementarPC();
 	}
 
-	/**
-	 * This method performs an (internal) read from a register into the register
-	 * list.
-	 * The register id must be in the demux bus
-	 */
-	private void demuxRegisterInternalRead() {
-		registersList.get(demux.get()).internalRead();
-		;
+	public void addIdxReg() { // add offset(%RegA) %RegB // RegB <- mem[RegA + offset] + RegB
+		indexedOperand();
+		indexedUlaOperation(true);
 	}
 
-	/**
-	 * This method performs an (external) store toa register into the register list.
-	 * The register id must be in the demux bus
-	 */
-	private void demuxRegisterStore() {
-		registersList.get(demux.get()).store();
+	public void subIdxReg() { // sub offset(%RegA) %RegB // RegB <- mem[RegA + offset] - RegB
+		indexedOperand();
+		indexedUlaOperation(false);
 	}
 
 	/**
-	 * This method performs an (internal) store toa register into the register list.
-	 * The register id must be in the demux bus
+	 * This method adds (or subtracts) the register in the last parameter to the data in IR
+	 * (see indexedOperand), storing the result in the register
+	 */
+	private void indexedUlaOperation(boolean add) {
+		PC.read();
+		memory.read();
+		demux.put(extbus1.get()); // points to RegB
+		demuxRegisterInternalRead();
+		ula.store(1);
+		IR.internalRead();
+		ula.internalStore(0);
+		if (add)
+			ula.add();
+		else
+			ula.sub();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void moveRegIdx() { // move %RegA offset(%RegB) // mem[RegB + offset] <- RegA
+		incrementarPC();
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the offset
+
+		memory.read();
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0);
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the base register id
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.add(); // the position is now in the ula register 1
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		memory.store(); // the position is in the memory. Now we must send the data
+
+		// back to the RegA id, in PC - 2
+		PC.read();
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0);
+		extbus1.put(2);
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(1);
+		ula.sub();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterRead();
+		memory.store(); // the data is now stored
+
+		incrementarPC();
+	}
+
+	/**
+	 * This method makes the ula operation of the commands imm %RegA: the immediate goes to the
+	 * ula register 0 and RegA to the ula register 1. In the end, PC points to the RegA id
+	 */
+	private void immediateOperands() {
+		incrementarPC();
+
+		memory.read(); // the immediate is now in the external bus
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0);
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // PC points to the RegA id
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+	}
+
+	public void addImmReg() { // add imm %RegA // RegA <- imm + RegA
+		immediateOperands();
+		ula.add();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void subImmReg() { // sub imm %RegA // RegA <- imm - RegA
+		immediateOperands();
+		ula.sub();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void cmpImmReg() { // cmp imm %RegA // the flags of imm - RegA (RegA is not changed)
+		immediateOperands();
+		ula.sub();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+
+		incrementarPC();
+	}
+
+	public void shl() { // shl %RegA // RegA <- RegA << 1
+		incrementarPC();
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.shl();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void shr() { // shr %RegA // RegA <- RegA >>> 1
+		incrementarPC();
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.shr();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void rol() { // rol %RegA // RegA rotated one bit to the left
+		incrementarPC();
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.rol();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void ror() { // ror %RegA // RegA rotated one bit to the right
+		incrementarPC();
+
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+		ula.ror();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	/**
+	 * This method reads the operands of the commands %RegA %RegB: RegA goes to the ula register 0
+	 * and RegB to the ula register 1. In the end, PC points to the RegB id
+	 */
+	private void registersOperands() {
+		incrementarPC();
+
+		memory.read(); // the first register id is now in the external bus
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(0);
+
+		incrementarPC();
+
+		memory.read(); // the second register id is now in the external bus
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+	}
+
+	public void and() { // and %RegA %RegB // RegB <- RegA & RegB
+		registersOperands();
+		ula.and();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void or() { // or %RegA %RegB // RegB <- RegA | RegB
+		registersOperands();
+		ula.or();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void xor() { // xor %RegA %RegB // RegB <- RegA ^ RegB
+		registersOperands();
+		ula.xor();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	/**
+	 * This method divides the ula register 0 by the ula register 1 (the divisor in the intbus1),
+	 * storing the quotient or the remainder in the ula register 1 and setting the flags.
+	 * A zero divisor only sets the divide by zero flag
+	 * 
+	 * @param quotient
+	 * @return false if the divisor is 0
+	 */
+	private boolean division(boolean quotient) {
+		setDivideFlag(intbus1.get());
+		if (getFlagBit(3) == 1)
+			return false;
+		if (quotient)
+			ula.div();
+		else
+			ula.mod();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		return true;
+	}
+
+	private void divisionMemReg(boolean quotient) { // mem %RegB // RegB <- mem / RegB
+		incrementarPC();
+
+		memory.read();
+		memory.read(); // the dividend is now in the external bus
+		demux.put(extbus1.get());
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // now PC points to the second parameter (the reg id)
+
+		extbus1.put(demux.get());
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(0);
+
+		PC.read();
+		memory.read();
+		demux.put(extbus1.get());
+		demuxRegisterInternalRead();
+		ula.store(1);
+
+		if (division(quotient))
+			demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	private void divisionRegMem(boolean quotient) { // %RegA mem // mem <- RegA / mem
+		incrementarPC();
+
+		memory.read(); // the register id is now in the external bus
+		demux.put(extbus1.get());
+
+		ula.inc();
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		PC.store(); // now PC points to the second parameter (the address)
+
+		demuxRegisterInternalRead();
+		ula.store(0);
+
+		memory.read();
+		memory.store();
+		memory.read(); // the divisor is now in the external bus
+		IR.store();
+		IR.internalRead();
+		ula.internalStore(1);
+
+		division(quotient);
+
+		// the store already started: a zero divisor is stored back
+		ula.internalRead(1);
+		IR.internalStore();
+		IR.read();
+		memory.store();
+
+		incrementarPC();
+	}
+
+	private void divisionRegReg(boolean quotient) { // %RegA %RegB // RegB <- RegA / RegB
+		registersOperands();
+		if (division(quotient))
+			demuxRegisterInternalStore();
+
+		incrementarPC();
+	}
+
+	public void idivMemReg() { // idiv mem %RegA // RegA <- mem / RegA
+		divisionMemReg(true);
+	}
+
+	public void idivRegMem() { // idiv %RegA mem // mem <- RegA / mem
+		divisionRegMem(true);
+	}
+
+	public void idivRegReg() { // idiv %RegA %RegB // RegB <- RegA / RegB
+		divisionRegReg(true);
+	}
+
+	public void imodMemReg() { // imod mem %RegA // RegA <- mem % RegA
+		divisionMemReg(false);
+	}
+
+	public void imodRegMem() { // imod %RegA mem // mem <- RegA % mem
+		divisionRegMem(false);
+	}
+
+	public void imodRegReg() { // imod %RegA %RegB // RegB <- RegA % RegB
+		divisionRegReg(false);
+	}
+
+	/**
+	 * This method copies a block of the memory at once: the external bus has the length and the
+	 * ula registers 0 and 1 have the source and the destination positions.
+	 * As the positions out of the memory in memory.read, a block not entirely inside the memory is ignored
+	 */
+	void memoryCopy() {
+		int length = extbus1.get();
+		int from = ula.getRegisterData(0);
+		int to = ula.getRegisterData(1);
+		if (memory.isBlock(from, length) && memory.isBlock(to, length))
+			memory.copyBlock(from, to, length);
+	}
+
+	/**
+	 * This method fills a block of the memory at once: the external bus has the length, the
+	 * ula register 0 has the data and the ula register 1 has the first position
+	 */
+	void memoryFill() {
+		int length = extbus1.get();
+		int position = ula.getRegisterData(1);
+		if (memory.isBlock(position, length))
+			memory.fillBlock(position, length, ula.getRegisterData(0));
+	}
+
+	public void inc() {
+
+		RPG.internalRead();
+		ula.store(1);
+		ula.inc();
+		ula.read(1);
+		setStatusFlags(intbus1.get());
+		RPG.internalStore();
+
+		incrementarPC();
+	}
+
+	public void add() {
+		incrementarPC();
+
+		RPG.internalRead();
+		ula.store(0); // the rpg value is in ULA (0). This is the first parameter
+
+		memory.read(); // the parameter is now in the external bus.
+						// but the parameter is an address and we need the value
+		memory.read(); // now the value is in the external bus
+		RPG.store();
+		RPG.internalRead();
+		ula.store(1); // the rpg value is in ULA (0). This is the second parameter
+		ula.add(); // the result is in the second ula's internal register
+		ula.read(1);
+		; // the operation result is in the internalbus 2
+		setStatusFlags(intbus1.get()); // changing flags due the end of the operation
+		RPG.internalStore(); // now the add is complete
+
+		incrementarPC();
+	}
+
+	public void sub() {
+		incrementarPC();
+
+		RPG.internalRead();
+		ula.store(0); // the rpg value is in ULA (0). This is the first parameter
+
+		memory.read(); // the parameter is now in the external bus.
+						// but the parameter is an address and we need the value
+		memory.read(); // now the value is in the external bus
+		RPG.store();
+		RPG.internalRead();
+		ula.store(1); // the rpg value is in ULA (0). This is the second parameter
+		ula.sub(); // the result is in the second ula's internal register
+		ula.read(1);
+		; // the operation result is in the internalbus 2
+		setStatusFlags(intbus1.get()); // changing flags due the end of the operation
+		RPG.internalStore(); // now the sub is complete
+
+		incrementarPC();
+	}
+
+	public ArrayList<Register> getRegistersList() {
+		materializeFlags(); // the Flags register is in the list
+		return registersList;
+	}
+
+	/**
+	 * This method makes the control unit run the commands from a microcode ROM, instead of
+	 * the Java microprograms of this class. The ROM is run by a micro-sequencer or, when compiled
+	 * is true, compiled into a handler for each command. A null ROM goes back to the Java microprograms
+	 *
+	 * @param rom
+	 * @param compiled
+	 */
+	public void setMicrocode(MicrocodeRom rom, boolean compiled) {
+		microcode = rom;
+		microcodeCompiled = compiled;
+		fastEngine = false;
+		if (rom == null)
+			microEngine = null;
+		else
+			microEngine = compiled ? MicrocodeCompiler.compile(rom, this) : new MicroSequencer(rom, this);
+	}
+
+	/**
+	 * This method makes the control unit run the commands by the FastEngine: each command changes
+	 * the registers and the memory at once, through the memory port, without the buses.
+	 * The memory, the registers (but IR) and the flags are the same of the microprograms
+	 *
+	 * @param fast false goes back to the Java microprograms
+	 */
+	public void setFastEngine(boolean fast) {
+		microcode = null;
+		fastEngine = fast;
+		microEngine = fast ? new FastEngine(this) : null;
+	}
+
+	/**
+	 * This method returns the engine running the microcode ROM or the FastEngine (null when the Java
+	 * microprograms are used)
+	 *
+	 * @return
+	 */
+	public MicroEngine getMicroEngine() {
+		return microEngine;
+	}
+
+	/**
+	 * This method captures the full machine state (memory, registers, flags,
+	 * ULA internal registers and buses) into an immutable snapshot
+	 * 
+	 * @return
+	 */
+	public ArchitectureSnapshot snapshot() {
+		int registers[] = new int[registersList.size()];
+		for (int i = 0; i < registers.length; i++) {
+			registers[i] = registersList.get(i).getData();
+		}
+		materializeFlags();
+		int flagBits[] = new int[Flags.getNumFlags()];
+		for (int i = 0; i < flagBits.length; i++) {
+			flagBits[i] = Flags.getBit(i);
+		}
+		int ulaRegisters[] = { ula.getRegisterData(0), ula.getRegisterData(1) };
+		int buses[] = { extbus1.get(), intbus1.get(), intbus2.get(), demux.get() };
+		return new ArchitectureSnapshot(memory.dump(), memory.getStorePosition(), registers, flagBits,
+				ulaRegisters, buses, instructionCount);
+	}
+
+	/**
+	 * This method restores the full machine state from a snapshot.
+	 * The memory is restored in a single bulk copy
+	 * 
+	 * @param snapshot
+	 */
+	public void restore(ArchitectureSnapshot snapshot) {
+		memory.restore(snapshot.memory());
+		memory.setStorePosition(snapshot.storePosition());
+		int registers[] = snapshot.registers();
+		for (int i = 0; i < registers.length; i++) {
+			registersList.get(i).setData(registers[i]);
+		}
+		int flagBits[] = snapshot.flagBits();
+		flagsPending = false;
+		for (int i = 0; i < flagBits.length; i++) {
+			Flags.setBit(i, flagBits[i]);
+		}
+		ula.setRegisterData(0, snapshot.ulaRegisters()[0]);
+		ula.setRegisterData(1, snapshot.ulaRegisters()[1]);
+		int buses[] = snapshot.buses();
+		extbus1.put(buses[0]);
+		intbus1.put(buses[1]);
+		intbus2.put(buses[2]);
+		demux.put(buses[3]);
+		instructionCount = snapshot.getInstructionCount();
+	}
+
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * This method puts the architecture back in the state it has just after being
+	 * instantiated, without allocating any component. The memory (including the
+	 * reserved area) is restored in a single bulk copy from a precomputed template.
+	 * The configuration (simulation mode, budgets, checkpointing) is kept
+	 */
+	public void reset() {
+		memory.restore(memoryTemplate);
+		memory.setStorePosition(-1);
+		for (Register r : registersList) {
+			r.setData(0);
+		}
+		flagsPending = false;
+		for (int i = 0; i < Flags.getNumFlags(); i++) {
+			Flags.setBit(i, 0);
+		}
+		ula.setRegisterData(0, 0);
+		ula.setRegisterData(1, 0);
+		extbus1.put(0);
+		intbus1.put(0);
+		intbus2.put(0);
+		demux.put(0);
+		instructionCount = 0;
+		status = ExecutionStatus.NOT_STARTED;
+		halt = false;
+	}
+
+	/**
+	 * This method limits the executions of the control unit. The limits are checked
+	 * only once in 4096 instructions, so a program can run a little over its
+	 * instruction budget before being stopped. Zero means no limit
+	 * 
+	 * @param maxInstructions
+	 * @param maxMillis
+	 */
+	public void setBudget(long maxInstructions, long maxMillis) {
+		instructionBudget = maxInstructions;
+		timeBudgetMillis = maxMillis;
+	}
+
+	/**
+	 * This method returns why the last execution stopped
+	 * 
+	 * @return
+	 */
+	public ExecutionStatus getExecutionStatus() {
+		return status;
+	}
+
+	/**
+	 * This method returns the statistics where the executions are recorded.
+	 * By default, all architectures share the same statistics
+	 * 
+	 * @return
+	 */
+	public ExecutionStatistics getStatistics() {
+		return statistics;
+	}
+
+	public void setStatistics(ExecutionStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * This method turns on the periodic checkpointing of the machine state into a file.
+	 * A checkpoint is taken every #everyInstructions instructions or every #everyMillis
+	 * milliseconds (zero disables each criterion). The files are written by a background
+	 * thread, so the execution is not delayed by the disk
+	 * 
+	 * @param filename
+	 * @param everyInstructions
+	 * @param everyMillis
+	 */
+	public void setCheckpointing(String filename, long everyInstructions, long everyMillis) {
+		checkpointer = new Checkpointer(new File(filename), everyInstructions, everyMillis);
+	}
+
+	/**
+	 * This method restores the machine state saved in a checkpoint file and continues
+	 * the execution from that point, producing the same results of an uninterrupted run
+	 * 
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void resume(String filename) throws IOException {
+		restore(Checkpoint.read(new File(filename)));
+		run();
+	}
+
+	/**
+	 * This method performs an (external) read from a register into the register
+	 * list.
+	 * The register id must be in the demux bus
+	 */
+	private void demuxRegisterRead() {
+		registersList.get(demux.get()).read();
+	}
+
+	/**
+	 * This method performs an (internal) read from a register into the register
+	 * list.
+	 * The register id must be in the demux bus
+	 */
+	private void demuxRegisterInternalRead() {
+		registersList.get(demux.get()).internalRead();
+		;
+	}
+
+	/**
+	 * This method performs an (external) store toa register into the register list.
+	 * The register id must be in the demux bus
+	 */
+	private void demuxRegisterStore() {
+		registersList.get(demux.get()).store();
+	}
+
+	/**
+	 * This method performs an (internal) store toa register into the register list.
+	 * The register id must be in the demux bus
 	 */
 	private void demuxRegisterInternalStore() {
 		registersList.get(demux.get()).internalStore();
@@ -1007,28 +1878,70 @@ public class Architecture {
 	 */
 	public void readExec(String filename) throws IOException {
 		BufferedReader br = new BufferedReader(new FileReader(filename + ".dxf"));
+		ArrayList<Integer> words = new ArrayList<>();
 		String linha;
-		int i = 0;
-		while ((linha = br.readLine()) != null) {
-			extbus1.put(i);
-			memory.store();
-			extbus1.put(Integer.parseInt(linha));
-			memory.store();
-			i++;
+		try {
+			while ((linha = br.readLine()) != null) {
+				words.add(Integer.parseInt(linha));
+			}
+		} finally {
+			br.close();
+		}
+		int program[] = new int[words.size()];
+		for (int i = 0; i < program.length; i++) {
+			program[i] = words.get(i);
 		}
-		br.close();
+		memory.storeBlock(0, program);
+	}
+
+	/**
+	 * This method stores a program in machine code into the memory, from the position 0
+	 * 
+	 * @param program
+	 */
+	public void loadProgram(int program[]) {
+		memory.storeBlock(0, program);
 	}
 
 	/**
 	 * This method executes a program that is stored in the memory
 	 */
 	public void controlUnitEexec() {
+		instructionCount = 0;
+		run();
+	}
+
+	/**
+	 * This method runs the fetch-decode-execute cycle until the program halts,
+	 * starting from the current state
+	 */
+	private void run() {
 		halt = false;
+		status = ExecutionStatus.HALTED;
+		long start = instructionCount;
+		long instructionLimit = (instructionBudget > 0) ? instructionCount + instructionBudget : Long.MAX_VALUE;
+		long deadline = (timeBudgetMillis > 0) ? System.nanoTime() + timeBudgetMillis * 1000000L : 0;
+		if (checkpointer != null)
+			checkpointer.start(instructionCount);
 		while (!halt) {
 			fetch();
 			decodeExecute();
+			instructionCount++;
+			if ((checkpointer != null) && checkpointer.isDue(instructionCount))
+				checkpointer.save(this);
+			if ((instructionCount & BUDGET_CHECK_MASK) == 0) { // cheap check: only once in 4096 instructions
+				if (instructionCount >= instructionLimit) {
+					status = ExecutionStatus.INSTRUCTION_LIMIT;
+					halt = true;
+				} else if ((deadline != 0) && (System.nanoTime() - deadline >= 0)) {
+					status = ExecutionStatus.TIME_LIMIT;
+					halt = true;
+				}
+			}
 		}
-
+		if (checkpointer != null)
+			checkpointer.awaitPendingWrites();
+		statistics.record(status, instructionCount - start);
 	}
 
 	/**
@@ -1040,7 +1953,22 @@ public class Architecture {
 	private void decodeExecute() {
 		IR.internalRead(); // the instruction is in the internalbus2
 		int command = intbus2.get();
-		simulationDecodeExecuteBefore(command);
+		if (simulation)
+			simulationDecodeExecuteBefore(command);
+		boolean executed = (microEngine != null) ? microEngine.execute(command) : microprogram(command);
+		if (!executed)
+			halt = true;
+		if (simulation)
+			simulationDecodeExecuteAfter();
+	}
+
+	/**
+	 * This method runs the Java microprogram of a command
+	 *
+	 * @param command
+	 * @return false if the command doesn't exist (the program must halt)
+	 */
+	boolean microprogram(int command) {
 		switch (command) {
 			case 0:
 				addRegReg();
@@ -1117,12 +2045,79 @@ public class Architecture {
 			case 24:
 				store();
 				break;
-			default:
-				halt = true;
+			case 25:
+				copy();
+				break;
+			case 26:
+				fill();
 				break;
+			case 27:
+				moveIdxReg();
+				break;
+			case 28:
+				moveRegIdx();
+				break;
+			case 29:
+				addIdxReg();
+				break;
+			case 30:
+				subIdxReg();
+				break;
+			case 31:
+				addImmReg();
+				break;
+			case 32:
+				subImmReg();
+				break;
+			case 33:
+				cmpImmReg();
+				break;
+			case 34:
+				loop();
+				break;
+			case 35:
+				shl();
+				break;
+			case 36:
+				shr();
+				break;
+			case 37:
+				rol();
+				break;
+			case 38:
+				and();
+				break;
+			case 39:
+				or();
+				break;
+			case 40:
+				xor();
+				break;
+			case 41:
+				idivMemReg();
+				break;
+			case 42:
+				idivRegMem();
+				break;
+			case 43:
+				idivRegReg();
+				break;
+			case 44:
+				imodMemReg();
+				break;
+			case 45:
+				imodRegMem();
+				break;
+			case 46:
+				imodRegReg();
+				break;
+			case 47:
+				ror();
+				break;
+			default:
+				return false;
 		}
-		if (simulation)
-			simulationDecodeExecuteAfter();
+		return true;
 	}
 
 	/**
@@ -1143,12 +2138,12 @@ public class Architecture {
 		else
 			instruction = "END";
 		if (hasOperands(instruction)) {
-			parameter = memory.getDataList()[PC.getData() + 1];
+			parameter = memory.load(PC.getData() + 1);
 			System.out.println("Instruction: " + instruction + " " + parameter);
 		} else
 			System.out.println("Instruction: " + instruction);
 		if ("read".equals(instruction))
-			System.out.println("memory[" + parameter + "]=" + memory.getDataList()[parameter]);
+			System.out.println("memory[" + parameter + "]=" + memory.load(parameter));
 
 	}
 
@@ -1222,6 +2217,16 @@ public class Architecture {
 		return memorySize;
 	}
 
+	/**
+	 * This method returns the first address of the reserved memory area,
+	 * where the registers are saved and the imul routine is kept
+	 *
+	 * @return
+	 */
+	public int getReservedAreaStart() {
+		return INICIO_AREA_RESERVADA;
+	}
+
 	public static void main(String[] args) throws IOException {
 		Assembler.main(null);
 		Architecture arch = new Architecture(true);
@@ -0,0 +1,61 @@
+package architecture;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps architectures ready to be reused, so a batch of programs
+ * does not pay the instantiation of all components for each program.
+ * The released architectures are reset before going back to the pool.
+ * It is thread safe.
+ */
+public class ArchitecturePool {
+
+	private final ConcurrentLinkedDeque<Architecture> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final int maxIdle;
+	private final boolean pagedMemory;
+
+	public ArchitecturePool(int maxIdle) {
+		this(maxIdle, false);
+	}
+
+	public ArchitecturePool(int maxIdle, boolean pagedMemory) {
+		this.maxIdle = maxIdle;
+		this.pagedMemory = pagedMemory;
+	}
+
+	/**
+	 * This method returns an architecture in its initial state.
+	 * A new one is created only if the pool is empty
+	 * 
+	 * @return
+	 */
+	public Architecture acquire() {
+		Architecture arch = idle.pollFirst();
+		if (arch == null)
+			return new Architecture(false, pagedMemory);
+		idleCount.decrementAndGet();
+		return arch;
+	}
+
+	/**
+	 * This method resets the architecture and gives it back to the pool.
+	 * If the pool is full, the architecture is discarded
+	 * 
+	 * @param arch
+	 */
+	public void release(Architecture arch) {
+		if (idleCount.incrementAndGet() > maxIdle) {
+			idleCount.decrementAndGet();
+			return;
+		}
+		arch.reset();
+		idle.offerFirst(arch);
+	}
+
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+}
@@ -0,0 +1,97 @@
+package architecture;
+
+/**
+ * This class stores an immutable picture of the whole machine state:
+ * memory, registers, flags, ULA internal registers and buses values.
+ * It is created by Architecture.snapshot() and consumed by Architecture.restore(),
+ * so many runs can be started from the same (already warmed up) state
+ * without re-executing readExec and the program prefix.
+ */
+public final class ArchitectureSnapshot {
+
+	private final int memory[];
+	private final int storePosition;
+	private final int registers[]; // in the same order of the architecture registers list
+	private final int flagBits[];
+	private final int ulaRegisters[];
+	private final int buses[]; // extbus1, intbus1, intbus2, demux
+	private final long instructionCount;
+
+	ArchitectureSnapshot(int memory[], int storePosition, int registers[], int flagBits[],
+			int ulaRegisters[], int buses[], long instructionCount) {
+		this.memory = memory;
+		this.storePosition = storePosition;
+		this.registers = registers;
+		this.flagBits = flagBits;
+		this.ulaRegisters = ulaRegisters;
+		this.buses = buses;
+		this.instructionCount = instructionCount;
+	}
+
+	// the arrays below are never exposed outside the package, keeping the snapshot immutable
+
+	int[] memory() {
+		return memory;
+	}
+
+	int storePosition() {
+		return storePosition;
+	}
+
+	int[] registers() {
+		return registers;
+	}
+
+	int[] flagBits() {
+		return flagBits;
+	}
+
+	int[] ulaRegisters() {
+		return ulaRegisters;
+	}
+
+	int[] buses() {
+		return buses;
+	}
+
+	/**
+	 * This method returns how many instructions were executed when the snapshot was taken
+	 * @return
+	 */
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+
+	public int getMemorySize() {
+		return memory.length;
+	}
+
+	/**
+	 * This method returns the data stored in a memory position when the snapshot was taken
+	 * @param position
+	 * @return
+	 */
+	public int getMemoryData(int position) {
+		return memory[position];
+	}
+
+	/**
+	 * This method returns the data of a register (by its id in the registers list)
+	 * when the snapshot was taken
+	 * @param id
+	 * @return
+	 */
+	public int getRegisterData(int id) {
+		return registers[id];
+	}
+
+	/**
+	 * This method returns a flag bit when the snapshot was taken
+	 * @param pos
+	 * @return
+	 */
+	public int getFlagBit(int pos) {
+		return flagBits[pos];
+	}
+
+}
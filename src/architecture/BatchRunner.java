@@ -0,0 +1,130 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs many programs (already in machine code) in parallel.
+ * The architectures are taken from a pool and reset after each program,
+ * so the components are instantiated only once per thread.
+ */
+public class BatchRunner {
+
+	/**
+	 * The outcome of a single program of the batch
+	 */
+	public static class Result {
+		private final ExecutionStatus status;
+		private final long instructions;
+		private final int registers[];
+
+		Result(ExecutionStatus status, long instructions, int registers[]) {
+			this.status = status;
+			this.instructions = instructions;
+			this.registers = registers;
+		}
+
+		public ExecutionStatus getStatus() {
+			return status;
+		}
+
+		public long getInstructions() {
+			return instructions;
+		}
+
+		/**
+		 * This method returns the final data of a register (by its id in the registers list)
+		 * @param id
+		 * @return
+		 */
+		public int getRegisterData(int id) {
+			return registers[id];
+		}
+	}
+
+	private final int threads;
+	private final ArchitecturePool pool;
+	private final ExecutionStatistics statistics = new ExecutionStatistics();
+	private long maxInstructions;
+	private long maxMillis;
+
+	public BatchRunner(int threads) {
+		this.threads = threads;
+		this.pool = new ArchitecturePool(threads);
+	}
+
+	/**
+	 * This method sets the budgets applied to each program of the batch (zero means no limit)
+	 *
+	 * @param maxInstructions
+	 * @param maxMillis
+	 */
+	public void setBudget(long maxInstructions, long maxMillis) {
+		this.maxInstructions = maxInstructions;
+		this.maxMillis = maxMillis;
+	}
+
+	public ExecutionStatistics getStatistics() {
+		return statistics;
+	}
+
+	public ArchitecturePool getPool() {
+		return pool;
+	}
+
+	/**
+	 * This method runs all programs, returning the results in the same order
+	 *
+	 * @param programs
+	 * @return
+	 */
+	public List<Result> run(List<int[]> programs) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (int program[] : programs) {
+				futures.add(executor.submit(() -> runProgram(program)));
+			}
+			List<Result> results = new ArrayList<>();
+			for (Future<Result> f : futures) {
+				results.add(f.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Batch interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Program failed in the batch", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This method runs a single program in an architecture taken from the pool
+	 *
+	 * @param program
+	 * @return
+	 */
+	public Result runProgram(int program[]) {
+		Architecture arch = pool.acquire();
+		try {
+			arch.setBudget(maxInstructions, maxMillis);
+			arch.setStatistics(statistics);
+			arch.loadProgram(program);
+			arch.controlUnitEexec();
+			int registers[] = new int[arch.getRegistersList().size()];
+			for (int i = 0; i < registers.length; i++) {
+				registers[i] = arch.getRegistersList().get(i).getData();
+			}
+			return new Result(arch.getExecutionStatus(), arch.getInstructionCount(), registers);
+		} finally {
+			pool.release(arch);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package architecture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class reads and writes the checkpoint files.
+ * A checkpoint file is a compact binary image of an ArchitectureSnapshot:
+ *
+ * magic, version, instruction count,
+ * memory size, memory data, memory store position,
+ * registers count, registers data,
+ * flags count, flags bits,
+ * ula registers (2), buses (4)
+ *
+ * All numbers are written in big endian. The file has no timestamps, so the same
+ * state always produces the same file.
+ */
+public class Checkpoint {
+
+	public static final int MAGIC = 0x41534d43; // "ASMC"
+	public static final int VERSION = 1;
+
+	private Checkpoint() {
+	}
+
+	/**
+	 * This method writes the snapshot into the file.
+	 * The data is written into a temporary file which is then moved over the
+	 * destination, so a crash during the writing never destroys the previous checkpoint
+	 *
+	 * @param snapshot
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(ArchitectureSnapshot snapshot, File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(snapshot.getInstructionCount());
+			writeArray(out, snapshot.memory());
+			out.writeInt(snapshot.storePosition());
+			writeArray(out, snapshot.registers());
+			writeArray(out, snapshot.flagBits());
+			writeArray(out, snapshot.ulaRegisters());
+			writeArray(out, snapshot.buses());
+		} finally {
+			out.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * This method reads a snapshot from a checkpoint file
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a checkpoint or its version is unknown
+	 */
+	public static ArchitectureSnapshot read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a checkpoint file");
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unknown checkpoint version " + version + " in " + file);
+			long instructionCount = in.readLong();
+			int memory[] = readArray(in);
+			int storePosition = in.readInt();
+			int registers[] = readArray(in);
+			int flagBits[] = readArray(in);
+			int ulaRegisters[] = readArray(in);
+			int buses[] = readArray(in);
+			return new ArchitectureSnapshot(memory, storePosition, registers, flagBits, ulaRegisters, buses,
+					instructionCount);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeArray(DataOutputStream out, int data[]) throws IOException {
+		out.writeInt(data.length);
+		for (int d : data) {
+			out.writeInt(d);
+		}
+	}
+
+	private static int[] readArray(DataInputStream in) throws IOException {
+		int data[] = new int[in.readInt()];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = in.readInt();
+		}
+		return data;
+	}
+
+}
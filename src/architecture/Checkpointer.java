@@ -0,0 +1,105 @@
+package architecture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class decides when a checkpoint must be taken and writes the checkpoint
+ * files in a background thread, out of the execution thread.
+ * Only the latest checkpoint is kept in the file.
+ */
+class Checkpointer {
+
+	private static final int TIME_CHECK_INTERVAL = 1024; // the clock is read only once in this many instructions
+
+	private File file;
+	private long everyInstructions;
+	private long everyNanos;
+	private long nextInstruction;
+	private long nextTime;
+	private ExecutorService writer;
+	private Future<?> pending;
+
+	Checkpointer(File file, long everyInstructions, long everyMillis) {
+		this.file = file;
+		this.everyInstructions = everyInstructions;
+		this.everyNanos = everyMillis * 1000000L;
+	}
+
+	/**
+	 * This method starts (or restarts) the counting for the next checkpoint
+	 *
+	 * @param instructionCount
+	 */
+	void start(long instructionCount) {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "checkpoint-writer");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		nextInstruction = Long.MAX_VALUE;
+		nextTime = Long.MAX_VALUE;
+		scheduleNext(instructionCount);
+	}
+
+	private void scheduleNext(long instructionCount) {
+		if (everyInstructions > 0)
+			nextInstruction = instructionCount + everyInstructions;
+		if (everyNanos > 0)
+			nextTime = System.nanoTime() + everyNanos;
+	}
+
+	/**
+	 * This method checks if a checkpoint must be taken now
+	 *
+	 * @param instructionCount
+	 * @return
+	 */
+	boolean isDue(long instructionCount) {
+		if (instructionCount >= nextInstruction)
+			return true;
+		return (everyNanos > 0) && (instructionCount % TIME_CHECK_INTERVAL == 0)
+				&& (System.nanoTime() >= nextTime);
+	}
+
+	/**
+	 * This method sends the snapshot to be written by the background thread.
+	 * If the previous checkpoint is still being written, this one is skipped,
+	 * so the execution never waits for the disk
+	 *
+	 * @param arch
+	 */
+	void save(Architecture arch) {
+		scheduleNext(arch.getInstructionCount());
+		if ((pending != null) && !pending.isDone())
+			return;
+		ArchitectureSnapshot snapshot = arch.snapshot();
+		pending = writer.submit(() -> {
+			try {
+				Checkpoint.write(snapshot, file);
+			} catch (IOException e) {
+				System.out.println("Checkpoint failed: " + e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * This method waits until the last checkpoint is in the disk
+	 */
+	void awaitPendingWrites() {
+		if (pending == null)
+			return;
+		try {
+			pending.get();
+		} catch (Exception e) {
+			System.out.println("Checkpoint failed: " + e.getMessage());
+		}
+		pending = null;
+	}
+
+}
@@ -0,0 +1,113 @@
+package architecture;
+
+/**
+ * This class gives the modeled cost (cycles) of each command of the architecture.
+ * One cycle is one operation of a component: a register, memory or ULA operation,
+ * or a data put into a bus. The numbers were counted running each microprogram
+ * in the simulator.
+ *
+ * imul runs a routine in the reserved memory area, whose loop runs once for each
+ * bit of the multiplier (RPG0) minus 1, adding only for the bits set, so its cost depends
+ * on the multiplier.
+ * For the conditional jumps and the divisions, the cost of the slower path is used.
+ *
+ * copy and fill move the whole block at once, so their cost is the cost of reading the
+ * operands plus a cost for each word of the block: a memory read and store for copy,
+ * only the store for fill.
+ */
+public class CycleModel {
+
+	public static final int IMUL_ITERATION = 374; // the cost of each iteration (bit) of the imul routine
+	public static final int IMUL_ADD = 94; // the cost of each bit set, added by the imul routine
+	public static final int COPY_WORD = 6; // the cost of each word copied
+	public static final int FILL_WORD = 4; // the cost of each word filled
+
+	private static final int CYCLES[] = {
+			92, // 0 addRegReg
+			91, // 1 addMemReg
+			94, // 2 addRegMem
+			84, // 3 subRegReg
+			91, // 4 subMemReg
+			94, // 5 subRegMem
+			633, // 6 imulMemReg (as imulRegReg)
+			633, // 7 imulRegMem (as imulRegReg)
+			633, // 8 imulRegReg, multiplier 1 (the routine included)
+			82, // 9 moveMemReg
+			68, // 10 moveRegMem
+			68, // 11 moveRegReg
+			80, // 12 moveImmReg
+			62, // 13 incReg
+			72, // 14 incMem
+			30, // 15 jmp
+			39, // 16 jn
+			39, // 17 jz
+			39, // 18 jnz
+			88, // 19 jeq
+			88, // 20 jgt
+			88, // 21 jlw
+			65, // 22 ldi
+			74, // 23 read
+			68, // 24 store
+			96, // 25 copy, length 0
+			96, // 26 fill, length 0
+			104, // 27 moveIdxReg
+			126, // 28 moveRegIdx
+			117, // 29 addIdxReg
+			117, // 30 subIdxReg
+			82, // 31 addImmReg
+			82, // 32 subImmReg
+			80, // 33 cmpImmReg
+			86, // 34 loop
+			62, // 35 shl
+			62, // 36 shr
+			62, // 37 rol
+			92, // 38 and
+			92, // 39 or
+			92, // 40 xor
+			94, // 41 idivMemReg
+			97, // 42 idivRegMem
+			95, // 43 idivRegReg
+			94, // 44 imodMemReg
+			97, // 45 imodRegMem
+			95, // 46 imodRegReg
+			62 // 47 ror
+	};
+
+	private CycleModel() {
+	}
+
+	/**
+	 * This method returns the cycles of a command.
+	 * For imul, the multiplier is supposed to be 1. For copy and fill, the length is supposed to be 0
+	 *
+	 * @param opcode
+	 * @return
+	 */
+	public static int cycles(int opcode) {
+		return CYCLES[opcode];
+	}
+
+	/**
+	 * This method returns the cycles of an imul with a known multiplier (the RPG0 value)
+	 *
+	 * @param multiplier multiplier - 1 is taken as unsigned, as the routine does
+	 * @return
+	 */
+	public static long imulCycles(int multiplier) {
+		int bits = multiplier - 1;
+		return CYCLES[8] + (long) IMUL_ITERATION * (Integer.SIZE - Integer.numberOfLeadingZeros(bits))
+				+ (long) IMUL_ADD * Integer.bitCount(bits);
+	}
+
+	/**
+	 * This method returns the cycles of a copy (opcode 25) or a fill (opcode 26) of a block
+	 *
+	 * @param opcode
+	 * @param length the words of the block
+	 * @return
+	 */
+	public static long blockCycles(int opcode, int length) {
+		return CYCLES[opcode] + (long) ((opcode == 25) ? COPY_WORD : FILL_WORD) * length;
+	}
+
+}
@@ -0,0 +1,86 @@
+package architecture;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import assembler.Assembler;
+
+/**
+ * The fixture shared by the tests of the engines: assembles the programs, runs them in
+ * the chosen engine and compares the machine states
+ */
+final class EngineFixture {
+
+	static final int BUDGET = 100000;
+
+	/**
+	 * the Java microprograms
+	 */
+	static final Consumer<Architecture> JAVA = arch -> {
+	};
+
+	static final Consumer<Architecture> FAST = arch -> arch.setFastEngine(true);
+
+	private EngineFixture() {
+	}
+
+	/**
+	 * the microcode of the rom, run by the sequencer or compiled
+	 */
+	static Consumer<Architecture> microcode(MicrocodeRom rom, boolean compiled) {
+		return arch -> arch.setMicrocode(rom, compiled);
+	}
+
+	static int[] assemble(String... lines) {
+		return assemble(Arrays.asList(lines));
+	}
+
+	static int[] assemble(List<String> lines) {
+		Assembler ass = new Assembler();
+		ass.setLines(new ArrayList<>(lines));
+		ass.parse();
+		assertTrue(ass.buildExecutable());
+		return ass.getExecutable();
+	}
+
+	/**
+	 * runs the executable until it halts, in the budget. The engine sets up the
+	 * architecture before the program is loaded
+	 */
+	static Architecture run(int executable[], Consumer<Architecture> engine) {
+		Architecture arch = new Architecture();
+		arch.setBudget(BUDGET, 0);
+		engine.accept(arch);
+		arch.loadProgram(executable);
+		arch.controlUnitEexec();
+		assertEquals(ExecutionStatus.HALTED, arch.getExecutionStatus());
+		return arch;
+	}
+
+	/**
+	 * the memory, the registers, the flags and the instruction count must be the same.
+	 * With microState the IR, the ula registers and the buses must be the same too: only
+	 * the engines that run the bus protocol keep them
+	 */
+	static void assertSameState(String message, Architecture expected, Architecture actual, boolean microState) {
+		ArchitectureSnapshot e = expected.snapshot();
+		ArchitectureSnapshot a = actual.snapshot();
+		assertArrayEquals(message, e.memory(), a.memory());
+		int registers[] = e.registers();
+		for (int id = 0; id < registers.length; id++) {
+			if (microState || id != 5) //IR
+				assertEquals(message + " register " + id, registers[id], a.registers()[id]);
+		}
+		assertArrayEquals(message, e.flagBits(), a.flagBits());
+		if (microState) {
+			assertArrayEquals(message, e.ulaRegisters(), a.ulaRegisters());
+			assertArrayEquals(message, e.buses(), a.buses());
+		}
+		assertEquals(message, e.getInstructionCount(), a.getInstructionCount());
+	}
+
+}
@@ -0,0 +1,76 @@
+package architecture;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class counts how the programs executed by the control unit finished.
+ * It is thread safe, so a single instance can be shared by all architectures
+ * of a batch running in parallel.
+ */
+public class ExecutionStatistics {
+
+	private final AtomicLong programs = new AtomicLong();
+	private final AtomicLong halted = new AtomicLong();
+	private final AtomicLong instructionLimit = new AtomicLong();
+	private final AtomicLong timeLimit = new AtomicLong();
+	private final AtomicLong instructions = new AtomicLong();
+
+	/**
+	 * This method registers the end of an execution
+	 * @param status
+	 * @param executedInstructions
+	 */
+	public void record(ExecutionStatus status, long executedInstructions) {
+		programs.incrementAndGet();
+		instructions.addAndGet(executedInstructions);
+		switch (status) {
+			case HALTED:
+				halted.incrementAndGet();
+				break;
+			case INSTRUCTION_LIMIT:
+				instructionLimit.incrementAndGet();
+				break;
+			case TIME_LIMIT:
+				timeLimit.incrementAndGet();
+				break;
+			default:
+				break;
+		}
+	}
+
+	public long getPrograms() {
+		return programs.get();
+	}
+
+	public long getHalted() {
+		return halted.get();
+	}
+
+	public long getInstructionLimitHits() {
+		return instructionLimit.get();
+	}
+
+	public long getTimeLimitHits() {
+		return timeLimit.get();
+	}
+
+	public long getInstructions() {
+		return instructions.get();
+	}
+
+	public void reset() {
+		programs.set(0);
+		halted.set(0);
+		instructionLimit.set(0);
+		timeLimit.set(0);
+		instructions.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "programs: " + getPrograms() + ", halted: " + getHalted() + ", instruction limit: "
+				+ getInstructionLimitHits() + ", time limit: " + getTimeLimitHits() + ", instructions: "
+				+ getInstructions();
+	}
+
+}
@@ -0,0 +1,11 @@
+package architecture;
+
+/**
+ * This enum tells why the control unit stopped executing a program
+ */
+public enum ExecutionStatus {
+	NOT_STARTED, // the control unit was never started
+	HALTED, // the program reached an unknown command (usually the -1 end flag)
+	INSTRUCTION_LIMIT, // the instruction budget was exhausted
+	TIME_LIMIT // the wall-clock budget was exhausted
+}
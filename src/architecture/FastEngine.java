@@ -0,0 +1,324 @@
+package architecture;
+
+import components.Memory;
+import components.Register;
+
+/**
+ * This engine runs each command at once: the operands are read through the memory port
+ * (Memory.load and Memory.store(position, data)) and the registers are changed directly,
+ * without the buses, the ula and the store protocol of the microprograms.
+ *
+ * It gives the same memory, registers (but IR) and flags of the Java microprograms, not the same
+ * buses and ula registers (they are never read before being written by the next command).
+ * The commands whose operands are not general purpose registers or memory positions (for instance,
+ * a move to PC) are run by the Java microprograms.
+ */
+class FastEngine implements MicroEngine {
+
+	private static final int GENERAL_REGISTERS = 4; // RPG0 to RPG3
+	private static final int JUMP_FLAGS[] = { 1, 0, 2 }; // the flags bits tested by jn, jz and jnz
+
+	private Architecture arch;
+	private Memory memory;
+	private int size;
+	private int reserved;
+	private int commands; // the number of opcodes
+	private Register registers[] = new Register[GENERAL_REGISTERS];
+	private Register pc;
+
+	FastEngine(Architecture arch) {
+		this.arch = arch;
+		memory = arch.getMemory();
+		size = memory.getSize();
+		reserved = arch.getReservedAreaStart();
+		commands = arch.getCommandsList().size();
+		for (int i = 0; i < GENERAL_REGISTERS; i++) {
+			registers[i] = arch.getRegistersList().get(i);
+		}
+		pc = arch.getPC();
+	}
+
+	/**
+	 * The fast engine doesn't run micro-operations
+	 */
+	@Override
+	public long getMicroOpsCount() {
+		return 0;
+	}
+
+	@Override
+	public boolean execute(int opcode) {
+		if ((opcode < 0) || (opcode >= commands))
+			return false;
+		if (!fast(opcode))
+			return arch.microprogram(opcode);
+		return true;
+	}
+
+	private boolean isRegister(int id) {
+		return (id >= 0) && (id < GENERAL_REGISTERS);
+	}
+
+	private boolean isAddress(int position) {
+		return (position >= 0) && (position < size);
+	}
+
+	/**
+	 * This method runs a command, if its operands allow it
+	 * @return false if the command must be run by the Java microprogram
+	 */
+	private boolean fast(int opcode) {
+		int p = pc.getData();
+		if (!isAddress(p + 1) || !isAddress(p + 3))
+			return false;
+		int a = memory.load(p + 1);
+		int b = memory.load(p + 2);
+		boolean storing = memory.getStorePosition() >= 0; // a store started: the protocol must be kept
+		switch (opcode) {
+			case 0: // addRegReg %A %B: B <- A + B
+			case 3: // subRegReg %A %B: B <- A - B
+				if (!isRegister(a) || !isRegister(b))
+					return false;
+				setRegister(b, alu(opcode, register(a), register(b)), p + 3);
+				return true;
+			case 1: // addMemReg mem %B: B <- mem + B
+			case 4: // subMemReg mem %B: B <- mem - B
+				if (!isAddress(a) || !isRegister(b))
+					return false;
+				setRegister(b, alu(opcode, memory.load(a), register(b)), p + 3);
+				return true;
+			case 2: // addRegMem %A mem: mem <- A + mem
+			case 5: // subRegMem %A mem: mem <- A - mem
+				if (!isRegister(a) || !isAddress(b) || storing)
+					return false;
+				int stored = alu(opcode, register(a), memory.load(b));
+				memory.store(b, stored);
+				arch.setStatusFlags(stored);
+				pc.setData(p + 3);
+				return true;
+			case 6: // imulMemReg mem %B: the imul routine starts, mem is the multiplicand and B the destination
+				if (!isAddress(a) || !isRegister(b) || storing)
+					return false;
+				imul(p, memory.load(a), b);
+				return true;
+			case 7: // imulRegMem %A mem: the imul routine starts, mem is the multiplicand and A the destination
+				if (!isRegister(a) || !isAddress(b) || storing)
+					return false;
+				imul(p, memory.load(b), a);
+				return true;
+			case 8: // imulRegReg %A %B: the imul routine starts, B is the multiplicand and the destination
+				if (!isRegister(a) || !isRegister(b) || storing)
+					return false;
+				imul(p, register(b), b);
+				return true;
+			case 9: // moveMemReg mem %B
+			case 23: // read mem %B
+				if (!isAddress(a) || !isRegister(b))
+					return false;
+				registers[b].setData(memory.load(a));
+				pc.setData(p + 3);
+				return true;
+			case 10: // moveRegMem %A mem
+			case 24: // store %A mem
+				if (!isRegister(a) || !isAddress(b) || storing)
+					return false;
+				memory.store(b, register(a));
+				pc.setData(p + 3);
+				return true;
+			case 11: // moveRegReg %A %B
+				if (!isRegister(a) || !isRegister(b))
+					return false;
+				registers[b].setData(register(a));
+				pc.setData(p + 3);
+				return true;
+			case 12: // moveImmReg imm %B
+				if (!isRegister(b))
+					return false;
+				registers[b].setData(a);
+				pc.setData(p + 3);
+				return true;
+			case 13: // incReg %A
+				if (!isRegister(a))
+					return false;
+				setRegister(a, register(a) + 1, p + 2);
+				return true;
+			case 14: // incMem mem
+				if (!isAddress(a) || storing)
+					return false;
+				int incremented = memory.load(a) + 1;
+				memory.store(a, incremented);
+				arch.setStatusFlags(incremented);
+				pc.setData(p + 2);
+				return true;
+			case 15: // jmp label
+				pc.setData(a);
+				return true;
+			case 16: // jn label
+			case 17: // jz label
+			case 18: // jnz label
+				pc.setData((arch.getFlagBit(JUMP_FLAGS[opcode - 16]) == 1) ? a : p + 2);
+				return true;
+			case 19: // jeq %A %B label
+			case 20: // jgt %A %B label (B > A)
+			case 21: // jlw %A %B label (B < A)
+				if (!isRegister(a) || !isRegister(b))
+					return false;
+				int first = register(a);
+				int second = register(b);
+				boolean taken = (opcode == 19) ? second == first : (opcode == 20) ? second > first : second < first;
+				pc.setData(taken ? memory.load(p + 3) : p + 4);
+				return true;
+			case 25: // copy %A %B %C: C positions from the position in A to the position in B
+			case 26: // fill %A %B %C: A into C positions, from the position in B
+				int c = memory.load(p + 3);
+				if (!isRegister(a) || !isRegister(b) || !isRegister(c))
+					return false;
+				int length = register(c);
+				if (opcode == 25) {
+					if (memory.isBlock(register(a), length) && memory.isBlock(register(b), length))
+						memory.copyBlock(register(a), register(b), length);
+				} else if (memory.isBlock(register(b), length)) {
+					memory.fillBlock(register(b), length, register(a));
+				}
+				pc.setData(p + 4);
+				return true;
+			case 27: // moveIdxReg offset(%A) %B: B <- mem[A + offset]
+			case 29: // addIdxReg offset(%A) %B: B <- mem[A + offset] + B
+			case 30: // subIdxReg offset(%A) %B: B <- mem[A + offset] - B
+				int destination = memory.load(p + 3);
+				if (!isRegister(b) || !isRegister(destination) || !isAddress(a + register(b)))
+					return false;
+				int data = memory.load(a + register(b));
+				if (opcode == 27) {
+					registers[destination].setData(data);
+					pc.setData(p + 4);
+				} else {
+					int result = (opcode == 29) ? data + register(destination) : data - register(destination);
+					setRegister(destination, result, p + 4);
+				}
+				return true;
+			case 28: // moveRegIdx %A offset(%B): mem[B + offset] <- A
+				int base = memory.load(p + 3);
+				if (!isRegister(a) || !isRegister(base) || !isAddress(b + register(base)) || storing)
+					return false;
+				memory.store(b + register(base), register(a));
+				pc.setData(p + 4);
+				return true;
+			case 31: // addImmReg imm %B: B <- imm + B
+			case 32: // subImmReg imm %B: B <- imm - B
+				if (!isRegister(b))
+					return false;
+				setRegister(b, (opcode == 31) ? a + register(b) : a - register(b), p + 3);
+				return true;
+			case 33: // cmpImmReg imm %B: the flags of imm - B
+				if (!isRegister(b))
+					return false;
+				arch.setStatusFlags(a - register(b));
+				pc.setData(p + 3);
+				return true;
+			case 34: // loop %A label: A <- A - 1, jumping if A != 0
+				if (!isRegister(a))
+					return false;
+				int counter = register(a) - 1;
+				setRegister(a, counter, (counter != 0) ? b : p + 3);
+				return true;
+			case 35: // shl %A
+			case 36: // shr %A (logical)
+			case 37: // rol %A
+			case 47: // ror %A
+				if (!isRegister(a))
+					return false;
+				int bits = register(a);
+				int shifted = (opcode == 35) ? bits << 1 : (opcode == 36) ? bits >>> 1
+						: (opcode == 37) ? Integer.rotateLeft(bits, 1) : Integer.rotateRight(bits, 1);
+				setRegister(a, shifted, p + 2);
+				return true;
+			case 38: // and %A %B: B <- A & B
+			case 39: // or %A %B: B <- A | B
+			case 40: // xor %A %B: B <- A ^ B
+				if (!isRegister(a) || !isRegister(b))
+					return false;
+				int x = register(a);
+				int y = register(b);
+				setRegister(b, (opcode == 38) ? x & y : (opcode == 39) ? x | y : x ^ y, p + 3);
+				return true;
+			case 41: // idivMemReg mem %B: B <- mem / B
+			case 44: // imodMemReg mem %B: B <- mem % B
+				if (!isAddress(a) || !isRegister(b))
+					return false;
+				divide(b, opcode == 41, memory.load(a), p + 3);
+				return true;
+			case 42: // idivRegMem %A mem: mem <- A / mem
+			case 45: // imodRegMem %A mem: mem <- A % mem
+				if (!isRegister(a) || !isAddress(b) || storing)
+					return false;
+				int divisor = memory.load(b);
+				arch.setDivideFlag(divisor);
+				if (divisor != 0) {
+					int quotient = (opcode == 42) ? register(a) / divisor : register(a) % divisor;
+					memory.store(b, quotient);
+					arch.setStatusFlags(quotient);
+				}
+				pc.setData(p + 3);
+				return true;
+			case 43: // idivRegReg %A %B: B <- A / B
+			case 46: // imodRegReg %A %B: B <- A % B
+				if (!isRegister(a) || !isRegister(b))
+					return false;
+				divide(b, opcode == 43, register(a), p + 3);
+				return true;
+			default: // 22, ldi %A imm
+				if (!isRegister(a))
+					return false;
+				registers[a].setData(b);
+				pc.setData(p + 3);
+				return true;
+		}
+	}
+
+	private int register(int id) {
+		return registers[id].getData();
+	}
+
+	private int alu(int opcode, int first, int second) {
+		return (opcode <= 2) ? first + second : first - second;
+	}
+
+	/**
+	 * This method divides into a register: a zero divisor only sets the divide by zero flag
+	 */
+	private void divide(int id, boolean quotient, int dividend, int nextPC) {
+		int divisor = register(id);
+		arch.setDivideFlag(divisor);
+		if (divisor != 0)
+			setRegister(id, quotient ? dividend / divisor : dividend % divisor, nextPC);
+		else
+			pc.setData(nextPC);
+	}
+
+	/**
+	 * This method starts the imul routine as the Java microprograms do: the registers are saved,
+	 * with PC (and IR) pointing to the last operand, and the routine gets its multiplicand and destination
+	 * @param p the position of the imul command
+	 */
+	private void imul(int p, int multiplicand, int destination) {
+		for (int i = 0; i < GENERAL_REGISTERS; i++) {
+			memory.store(reserved + i, register(i));
+		}
+		memory.store(reserved + 4, p + 2); // PC
+		memory.store(reserved + 5, p + 2); // IR
+		memory.store(reserved + 6, multiplicand);
+		memory.store(reserved + 40, destination);
+		pc.setData(reserved + 7);
+	}
+
+	/**
+	 * This method stores the result of an ula operation into a register, setting the flags
+	 */
+	private void setRegister(int id, int result, int nextPC) {
+		registers[id].setData(result);
+		arch.setStatusFlags(result);
+		pc.setData(nextPC);
+	}
+
+}
@@ -0,0 +1,22 @@
+package architecture;
+
+/**
+ * An engine that runs the microprograms of a microcode ROM on the components of an Architecture
+ */
+public interface MicroEngine {
+
+	/**
+	 * This method runs the microprogram of a command
+	 * @param opcode
+	 * @return false if the architecture must halt (the opcode is not in the ROM or the microprogram halts)
+	 */
+	boolean execute(int opcode);
+
+	/**
+	 * This method returns how many micro-operations were run, not counting the sequencer ones
+	 * (branches and halt)
+	 * @return
+	 */
+	long getMicroOpsCount();
+
+}
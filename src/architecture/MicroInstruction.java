@@ -0,0 +1,68 @@
+package architecture;
+
+/**
+ * A micro-instruction of the microcode ROM: a micro-operation with its operand and,
+ * for the branches, the position of the target micro-instruction in the microprogram
+ */
+public final class MicroInstruction {
+
+	public static final int DEMUX = -1; // the register operand is the register whose id is in the demux
+
+	private final MicroOp op;
+	private final int operand;
+	private final int target;
+
+	public MicroInstruction(MicroOp op, int operand, int target) {
+		this.op = op;
+		this.operand = operand;
+		this.target = target;
+	}
+
+	public MicroInstruction(MicroOp op, int operand) {
+		this(op, operand, -1);
+	}
+
+	public MicroInstruction(MicroOp op) {
+		this(op, 0, -1);
+	}
+
+	public MicroOp getOp() {
+		return op;
+	}
+
+	public int getOperand() {
+		return operand;
+	}
+
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * This method returns the same micro-instruction with another target
+	 * @param target
+	 * @return
+	 */
+	public MicroInstruction withTarget(int target) {
+		return new MicroInstruction(op, operand, target);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof MicroInstruction))
+			return false;
+		MicroInstruction m = (MicroInstruction) other;
+		return (op == m.op) && (operand == m.operand) && (target == m.target);
+	}
+
+	@Override
+	public int hashCode() {
+		return (op.ordinal() * 31 + operand) * 31 + target;
+	}
+
+	@Override
+	public String toString() {
+		return op + " " + operand + (op.hasTarget() ? " -> " + target : "");
+	}
+
+}
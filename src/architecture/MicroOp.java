@@ -0,0 +1,74 @@
+package architecture;
+
+/**
+ * The micro-operations of the microprograms: each one is a single operation of a component
+ * (as the methods of Register, Memory, Ula and Bus), a status flags update or a sequencer operation
+ * (branches and halt).
+ *
+ * The text form of each one is given by the microcode parser (MicrocodeRom).
+ */
+public enum MicroOp {
+	// registers. The operand is the register id, or MicroInstruction.DEMUX for the register in the demux
+	REGISTER_READ, // register -> its external bus
+	REGISTER_STORE, // its external bus -> register
+	REGISTER_INTERNAL_READ, // register -> its internal bus
+	REGISTER_INTERNAL_STORE, // its internal bus -> register
+
+	// memory
+	MEMORY_READ,
+	MEMORY_STORE,
+	MEMORY_COPY, // copies extbus1 positions from the position in the ula register 0 to the one in the ula register 1
+	MEMORY_FILL, // stores the ula register 0 into extbus1 positions, from the position in the ula register 1
+
+	// ula. The operand is the ula register (0 or 1), for the transfers
+	ULA_STORE,
+	ULA_READ,
+	ULA_INTERNAL_STORE,
+	ULA_INTERNAL_READ,
+	ULA_ADD,
+	ULA_SUB,
+	ULA_INC,
+	ULA_AND,
+	ULA_OR,
+	ULA_XOR,
+	ULA_SHL, // one bit to the left
+	ULA_SHR, // one bit to the right, logical
+	ULA_ROL, // one bit to the left, the highest bit becomes the lowest
+	ULA_ROR, // one bit to the right, the lowest bit becomes the highest
+	ULA_DIV, // a zero divisor (ula register 1) is not changed
+	ULA_MOD,
+
+	// buses
+	DEMUX_PUT, // extbus1 -> demux
+	EXTBUS_PUT_DEMUX, // demux -> extbus1
+	EXTBUS_PUT, // the operand -> extbus1
+
+	SET_STATUS_FLAGS, // the flags of the value in the intbus1
+	SET_DIVIDE_FLAG, // the divide by zero flag bit of the divisor in the intbus1
+
+	// sequencer. The target is the position of the next micro-instruction, if the branch is taken
+	IF_FLAG, // the flag bit in the operand is 1
+	IF_EQUAL, // intbus1 == intbus2
+	IF_GREATER, // intbus2 > intbus1
+	IF_LOWER, // intbus2 < intbus1
+	GOTO,
+	HALT;
+
+	/**
+	 * This method checks if the micro-operation belongs to the sequencer (it changes only
+	 * the next micro-instruction)
+	 * @return
+	 */
+	public boolean isSequencing() {
+		return ordinal() >= IF_FLAG.ordinal();
+	}
+
+	/**
+	 * This method checks if the micro-operation is a branch with a target
+	 * @return
+	 */
+	public boolean hasTarget() {
+		return isSequencing() && (this != HALT);
+	}
+
+}
@@ -0,0 +1,175 @@
+package architecture;
+
+import java.util.ArrayList;
+
+import components.Bus;
+import components.Memory;
+import components.Register;
+import components.Ula;
+
+/**
+ * This class runs the microprograms of a ROM one micro-instruction at a time: a micro-PC
+ * points to the next micro-instruction and the branches change it.
+ */
+class MicroSequencer implements MicroEngine {
+
+	private MicroInstruction microprograms[][];
+	private Architecture arch;
+	private Bus extbus1;
+	private Bus intbus1;
+	private Bus intbus2;
+	private Bus demux;
+	private Memory memory;
+	private Ula ula;
+	private ArrayList<Register> registersList;
+	private long microOps;
+
+	MicroSequencer(MicrocodeRom rom, Architecture arch) {
+		microprograms = new MicroInstruction[rom.size()][];
+		for (int i = 0; i < microprograms.length; i++) {
+			microprograms[i] = rom.getMicroprogram(i);
+		}
+		this.arch = arch;
+		extbus1 = arch.getExtbus1();
+		intbus1 = arch.getIntbus1();
+		intbus2 = arch.getIntbus2();
+		demux = arch.getDemux();
+		memory = arch.getMemory();
+		ula = arch.getUla();
+		registersList = arch.getRegistersList();
+	}
+
+	@Override
+	public boolean execute(int opcode) {
+		if ((opcode < 0) || (opcode >= microprograms.length))
+			return false;
+		MicroInstruction program[] = microprograms[opcode];
+		int microPC = 0;
+		while (microPC < program.length) {
+			MicroInstruction m = program[microPC++];
+			switch (m.getOp()) {
+				case REGISTER_READ:
+					register(m).read();
+					break;
+				case REGISTER_STORE:
+					register(m).store();
+					break;
+				case REGISTER_INTERNAL_READ:
+					register(m).internalRead();
+					break;
+				case REGISTER_INTERNAL_STORE:
+					register(m).internalStore();
+					break;
+				case MEMORY_READ:
+					memory.read();
+					break;
+				case MEMORY_STORE:
+					memory.store();
+					break;
+				case MEMORY_COPY:
+					arch.memoryCopy();
+					break;
+				case MEMORY_FILL:
+					arch.memoryFill();
+					break;
+				case ULA_STORE:
+					ula.store(m.getOperand());
+					break;
+				case ULA_READ:
+					ula.read(m.getOperand());
+					break;
+				case ULA_INTERNAL_STORE:
+					ula.internalStore(m.getOperand());
+					break;
+				case ULA_INTERNAL_READ:
+					ula.internalRead(m.getOperand());
+					break;
+				case ULA_ADD:
+					ula.add();
+					break;
+				case ULA_SUB:
+					ula.sub();
+					break;
+				case ULA_INC:
+					ula.inc();
+					break;
+				case ULA_AND:
+					ula.and();
+					break;
+				case ULA_OR:
+					ula.or();
+					break;
+				case ULA_XOR:
+					ula.xor();
+					break;
+				case ULA_SHL:
+					ula.shl();
+					break;
+				case ULA_SHR:
+					ula.shr();
+					break;
+				case ULA_ROL:
+					ula.rol();
+					break;
+				case ULA_ROR:
+					ula.ror();
+					break;
+				case ULA_DIV:
+					ula.div();
+					break;
+				case ULA_MOD:
+					ula.mod();
+					break;
+				case DEMUX_PUT:
+					demux.put(extbus1.get());
+					break;
+				case EXTBUS_PUT_DEMUX:
+					extbus1.put(demux.get());
+					break;
+				case EXTBUS_PUT:
+					extbus1.put(m.getOperand());
+					break;
+				case SET_STATUS_FLAGS:
+					arch.setStatusFlags(intbus1.get());
+					break;
+				case SET_DIVIDE_FLAG:
+					arch.setDivideFlag(intbus1.get());
+					break;
+				case IF_FLAG:
+					if (arch.getFlagBit(m.getOperand()) == 1)
+						microPC = m.getTarget();
+					continue;
+				case IF_EQUAL:
+					if (intbus1.get() == intbus2.get())
+						microPC = m.getTarget();
+					continue;
+				case IF_GREATER:
+					if (intbus2.get() > intbus1.get())
+						microPC = m.getTarget();
+					continue;
+				case IF_LOWER:
+					if (intbus2.get() < intbus1.get())
+						microPC = m.getTarget();
+					continue;
+				case GOTO:
+					microPC = m.getTarget();
+					continue;
+				default: // HALT
+					return false;
+			}
+			microOps++;
+		}
+		return true;
+	}
+
+	private Register register(MicroInstruction m) {
+		int id = m.getOperand();
+		return registersList.get((id == MicroInstruction.DEMUX) ? demux.get() : id);
+	}
+
+	@Override
+	public long getMicroOpsCount() {
+		return microOps;
+	}
+
+}
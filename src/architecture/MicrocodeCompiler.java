@@ -0,0 +1,431 @@
+package architecture;
+
+import java.util.ArrayList;
+
+import components.Bus;
+import components.Memory;
+import components.Register;
+import components.Ula;
+
+/**
+ * This class compiles the microprograms of a ROM into handlers: each microprogram is cut into
+ * blocks of micro-operations without branches, and each micro-operation is decoded once, when
+ * compiling, into a step code bound to its component (the register, the ula register or the constant).
+ * The sequencer operations are replaced by the links between the blocks, so a microprogram without
+ * branches becomes a single block, run straight through.
+ *
+ * Usage:
+ * MicroEngine engine = MicrocodeCompiler.compile(rom, arch);
+ */
+class MicrocodeCompiler implements MicroEngine {
+
+	private static final int END = -1; // the microprogram is finished
+	private static final int HALT = -2; // the architecture must halt
+
+	// the step codes
+	private static final int REGISTER_READ = 0;
+	private static final int REGISTER_STORE = 1;
+	private static final int REGISTER_INTERNAL_READ = 2;
+	private static final int REGISTER_INTERNAL_STORE = 3;
+	private static final int DEMUX_REGISTER_READ = 4;
+	private static final int DEMUX_REGISTER_STORE = 5;
+	private static final int DEMUX_REGISTER_INTERNAL_READ = 6;
+	private static final int DEMUX_REGISTER_INTERNAL_STORE = 7;
+	private static final int MEMORY_READ = 8;
+	private static final int MEMORY_STORE = 9;
+	private static final int ULA_STORE = 10;
+	private static final int ULA_READ = 11;
+	private static final int ULA_INTERNAL_STORE = 12;
+	private static final int ULA_INTERNAL_READ = 13;
+	private static final int ULA_ADD = 14;
+	private static final int ULA_SUB = 15;
+	private static final int ULA_INC = 16;
+	private static final int DEMUX_PUT = 17;
+	private static final int EXTBUS_PUT_DEMUX = 18;
+	private static final int EXTBUS_PUT = 19;
+	private static final int SET_STATUS_FLAGS = 20;
+	private static final int MEMORY_COPY = 21;
+	private static final int MEMORY_FILL = 22;
+	private static final int ULA_AND = 23;
+	private static final int ULA_OR = 24;
+	private static final int ULA_XOR = 25;
+	private static final int ULA_SHL = 26;
+	private static final int ULA_SHR = 27;
+	private static final int ULA_ROL = 28;
+	private static final int ULA_DIV = 29;
+	private static final int ULA_MOD = 30;
+	private static final int SET_DIVIDE_FLAG = 31;
+	private static final int ULA_ROR = 32;
+
+	// the branch codes
+	private static final int ALWAYS = 0;
+	private static final int IF_FLAG = 1;
+	private static final int IF_EQUAL = 2;
+	private static final int IF_GREATER = 3;
+	private static final int IF_LOWER = 4;
+
+	/**
+	 * A sequence of steps without branches, followed by the next block: fall, or target when the
+	 * branch is taken
+	 */
+	private static final class Block {
+		int steps[];
+		int operands[];
+		Register registers[]; // the registers of the register steps
+		int branch = ALWAYS;
+		int flag; // the flag bit of IF_FLAG
+		int target;
+		int fall;
+	}
+
+	private Block handlers[][];
+	private long microOps;
+
+	private Architecture arch;
+	private Bus extbus1;
+	private Bus intbus1;
+	private Bus intbus2;
+	private Bus demux;
+	private Memory memory;
+	private Ula ula;
+	private ArrayList<Register> registersList;
+
+	private MicrocodeCompiler(Architecture arch) {
+		this.arch = arch;
+		extbus1 = arch.getExtbus1();
+		intbus1 = arch.getIntbus1();
+		intbus2 = arch.getIntbus2();
+		demux = arch.getDemux();
+		memory = arch.getMemory();
+		ula = arch.getUla();
+		registersList = arch.getRegistersList();
+	}
+
+	/**
+	 * This method compiles all the microprograms of the ROM for the components of arch
+	 * @param rom
+	 * @param arch
+	 * @return
+	 */
+	static MicroEngine compile(MicrocodeRom rom, Architecture arch) {
+		MicrocodeCompiler compiler = new MicrocodeCompiler(arch);
+		compiler.handlers = new Block[rom.size()][];
+		for (int i = 0; i < rom.size(); i++) {
+			compiler.handlers[i] = compiler.compile(rom.getMicroprogram(i));
+		}
+		return compiler;
+	}
+
+	@Override
+	public boolean execute(int opcode) {
+		if ((opcode < 0) || (opcode >= handlers.length))
+			return false;
+		Block blocks[] = handlers[opcode];
+		int next = 0;
+		while (next >= 0) {
+			Block block = blocks[next];
+			run(block);
+			next = taken(block) ? block.target : block.fall;
+		}
+		return next == END;
+	}
+
+	private void run(Block block) {
+		int steps[] = block.steps;
+		int operands[] = block.operands;
+		Register registers[] = block.registers;
+		for (int i = 0; i < steps.length; i++) {
+			switch (steps[i]) {
+				case REGISTER_READ:
+					registers[i].read();
+					break;
+				case REGISTER_STORE:
+					registers[i].store();
+					break;
+				case REGISTER_INTERNAL_READ:
+					registers[i].internalRead();
+					break;
+				case REGISTER_INTERNAL_STORE:
+					registers[i].internalStore();
+					break;
+				case DEMUX_REGISTER_READ:
+					registersList.get(demux.get()).read();
+					break;
+				case DEMUX_REGISTER_STORE:
+					registersList.get(demux.get()).store();
+					break;
+				case DEMUX_REGISTER_INTERNAL_READ:
+					registersList.get(demux.get()).internalRead();
+					break;
+				case DEMUX_REGISTER_INTERNAL_STORE:
+					registersList.get(demux.get()).internalStore();
+					break;
+				case MEMORY_READ:
+					memory.read();
+					break;
+				case MEMORY_STORE:
+					memory.store();
+					break;
+				case MEMORY_COPY:
+					arch.memoryCopy();
+					break;
+				case MEMORY_FILL:
+					arch.memoryFill();
+					break;
+				case ULA_STORE:
+					ula.store(operands[i]);
+					break;
+				case ULA_READ:
+					ula.read(operands[i]);
+					break;
+				case ULA_INTERNAL_STORE:
+					ula.internalStore(operands[i]);
+					break;
+				case ULA_INTERNAL_READ:
+					ula.internalRead(operands[i]);
+					break;
+				case ULA_ADD:
+					ula.add();
+					break;
+				case ULA_SUB:
+					ula.sub();
+					break;
+				case ULA_INC:
+					ula.inc();
+					break;
+				case ULA_AND:
+					ula.and();
+					break;
+				case ULA_OR:
+					ula.or();
+					break;
+				case ULA_XOR:
+					ula.xor();
+					break;
+				case ULA_SHL:
+					ula.shl();
+					break;
+				case ULA_SHR:
+					ula.shr();
+					break;
+				case ULA_ROL:
+					ula.rol();
+					break;
+				case ULA_ROR:
+					ula.ror();
+					break;
+				case ULA_DIV:
+					ula.div();
+					break;
+				case ULA_MOD:
+					ula.mod();
+					break;
+				case SET_DIVIDE_FLAG:
+					arch.setDivideFlag(intbus1.get());
+					break;
+				case DEMUX_PUT:
+					demux.put(extbus1.get());
+					break;
+				case EXTBUS_PUT_DEMUX:
+					extbus1.put(demux.get());
+					break;
+				case EXTBUS_PUT:
+					extbus1.put(operands[i]);
+					break;
+				default: // SET_STATUS_FLAGS
+					arch.setStatusFlags(intbus1.get());
+					break;
+			}
+		}
+		microOps += steps.length;
+	}
+
+	private boolean taken(Block block) {
+		switch (block.branch) {
+			case IF_FLAG:
+				return arch.getFlagBit(block.flag) == 1;
+			case IF_EQUAL:
+				return intbus1.get() == intbus2.get();
+			case IF_GREATER:
+				return intbus2.get() > intbus1.get();
+			case IF_LOWER:
+				return intbus2.get() < intbus1.get();
+			default: // ALWAYS: the block has no branch
+				return false;
+		}
+	}
+
+	@Override
+	public long getMicroOpsCount() {
+		return microOps;
+	}
+
+	/**
+	 * This method cuts the microprogram into blocks: a block starts in the position 0, in each
+	 * branch target and after each branch
+	 */
+	private Block[] compile(MicroInstruction program[]) {
+		boolean leader[] = new boolean[program.length + 1];
+		leader[0] = true;
+		leader[program.length] = true; // the end of the microprogram
+		for (int i = 0; i < program.length; i++) {
+			if (program[i].getOp().isSequencing()) {
+				leader[i + 1] = true;
+				if (program[i].getOp().hasTarget())
+					leader[program[i].getTarget()] = true;
+			}
+		}
+		int blockOf[] = new int[program.length + 1]; // the block starting in each leader position
+		int count = 0;
+		for (int i = 0; i <= program.length; i++) {
+			if (leader[i])
+				blockOf[i] = (i == program.length) ? END : count++;
+		}
+		Block blocks[] = new Block[count];
+		int i = 0;
+		for (int b = 0; b < count; b++) {
+			int start = i;
+			while ((i < program.length) && !program[i].getOp().isSequencing() && ((i == start) || !leader[i])) {
+				i++;
+			}
+			Block block = decode(program, start, i);
+			if ((i < program.length) && program[i].getOp().isSequencing() && ((i == start) || !leader[i])) {
+				MicroInstruction m = program[i];
+				i++;
+				block.branch = branch(m.getOp());
+				block.flag = m.getOperand();
+				block.target = (m.getOp() == MicroOp.HALT) ? HALT : blockOf[m.getTarget()];
+				block.fall = (block.branch == ALWAYS) ? block.target : blockOf[i];
+			} else
+				block.fall = blockOf[i];
+			blocks[b] = block;
+		}
+		return blocks;
+	}
+
+	private static int branch(MicroOp op) {
+		switch (op) {
+			case IF_FLAG:
+				return IF_FLAG;
+			case IF_EQUAL:
+				return IF_EQUAL;
+			case IF_GREATER:
+				return IF_GREATER;
+			case IF_LOWER:
+				return IF_LOWER;
+			default: // GOTO and HALT
+				return ALWAYS;
+		}
+	}
+
+	/**
+	 * This method makes a block with the steps of the micro-operations from start to end (exclusive)
+	 */
+	private Block decode(MicroInstruction program[], int start, int end) {
+		Block block = new Block();
+		block.steps = new int[end - start];
+		block.operands = new int[end - start];
+		block.registers = new Register[end - start];
+		for (int i = start; i < end; i++) {
+			MicroInstruction m = program[i];
+			int operand = m.getOperand();
+			boolean inDemux = operand == MicroInstruction.DEMUX;
+			int step;
+			switch (m.getOp()) {
+				case REGISTER_READ:
+					step = inDemux ? DEMUX_REGISTER_READ : REGISTER_READ;
+					break;
+				case REGISTER_STORE:
+					step = inDemux ? DEMUX_REGISTER_STORE : REGISTER_STORE;
+					break;
+				case REGISTER_INTERNAL_READ:
+					step = inDemux ? DEMUX_REGISTER_INTERNAL_READ : REGISTER_INTERNAL_READ;
+					break;
+				case REGISTER_INTERNAL_STORE:
+					step = inDemux ? DEMUX_REGISTER_INTERNAL_STORE : REGISTER_INTERNAL_STORE;
+					break;
+				case MEMORY_READ:
+					step = MEMORY_READ;
+					break;
+				case MEMORY_STORE:
+					step = MEMORY_STORE;
+					break;
+				case MEMORY_COPY:
+					step = MEMORY_COPY;
+					break;
+				case MEMORY_FILL:
+					step = MEMORY_FILL;
+					break;
+				case ULA_STORE:
+					step = ULA_STORE;
+					break;
+				case ULA_READ:
+					step = ULA_READ;
+					break;
+				case ULA_INTERNAL_STORE:
+					step = ULA_INTERNAL_STORE;
+					break;
+				case ULA_INTERNAL_READ:
+					step = ULA_INTERNAL_READ;
+					break;
+				case ULA_ADD:
+					step = ULA_ADD;
+					break;
+				case ULA_SUB:
+					step = ULA_SUB;
+					break;
+				case ULA_INC:
+					step = ULA_INC;
+					break;
+				case ULA_AND:
+					step = ULA_AND;
+					break;
+				case ULA_OR:
+					step = ULA_OR;
+					break;
+				case ULA_XOR:
+					step = ULA_XOR;
+					break;
+				case ULA_SHL:
+					step = ULA_SHL;
+					break;
+				case ULA_SHR:
+					step = ULA_SHR;
+					break;
+				case ULA_ROL:
+					step = ULA_ROL;
+					break;
+				case ULA_ROR:
+					step = ULA_ROR;
+					break;
+				case ULA_DIV:
+					step = ULA_DIV;
+					break;
+				case ULA_MOD:
+					step = ULA_MOD;
+					break;
+				case SET_DIVIDE_FLAG:
+					step = SET_DIVIDE_FLAG;
+					break;
+				case DEMUX_PUT:
+					step = DEMUX_PUT;
+					break;
+				case EXTBUS_PUT_DEMUX:
+					step = EXTBUS_PUT_DEMUX;
+					break;
+				case EXTBUS_PUT:
+					step = EXTBUS_PUT;
+					break;
+				default:
+					step = SET_STATUS_FLAGS;
+					break;
+			}
+			block.steps[i - start] = step;
+			block.operands[i - start] = operand;
+			if (step <= REGISTER_INTERNAL_STORE)
+				block.registers[i - start] = registersList.get(operand);
+		}
+		return block;
+	}
+
+}
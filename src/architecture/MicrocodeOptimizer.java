@@ -0,0 +1,588 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import components.Bus;
+import components.Register;
+
+/**
+ * This class makes shorter microprograms from the ones of a microcode ROM, removing the
+ * micro-operations whose results are not needed:
+ * - dead writes: every location written (bus, register, ula register) is written again
+ * before being read, or never read again
+ * - redundant transfers: every location written already holds the same value (for instance,
+ * a second incrementarPC doesn't need to copy PC to the ula again, the ula register 1 still has it)
+ *
+ * The values are followed by value numbering inside the blocks without branches, and the
+ * locations read later by a liveness analysis over the whole microprogram. The micro-operations
+ * are removed one at a time, the analyses done again after each one.
+ *
+ * After a command, the memory, the registers (but IR), the flags and the memory store state are
+ * needed. The buses, the ula registers and IR are needed only if some microprogram reads them
+ * before writing them (IR, extbus1 and intbus2 are always written by the fetch).
+ * So the optimized commands give the same memory, registers and flags, but not the same buses.
+ *
+ * Usage:
+ * MicrocodeOptimizer optimizer = new MicrocodeOptimizer(arch);
+ * MicrocodeRom optimized = optimizer.optimize(MicrocodeRom.standard(arch));
+ * optimizer.getReport();
+ */
+public class MicrocodeOptimizer {
+
+	// the locations of the data path
+	private static final int EXTBUS1 = 0;
+	private static final int INTBUS1 = 1;
+	private static final int INTBUS2 = 2;
+	private static final int DEMUX = 3;
+	private static final int ULA0 = 4;
+	private static final int ULA1 = 5;
+	private static final int FLAG_BITS = 6;
+	private static final int STORE_POSITION = 7; // the memory store state (the first store sets the address)
+	private static final int MEMORY = 8;
+	private static final int REGISTERS = 9; // the first register location
+
+	private static final int NO_LOCATION = -1;
+
+	/**
+	 * This class shows how many micro-operations each command has, before and after the optimization
+	 */
+	public static class Report {
+		private final List<String> commands;
+		private final int before[];
+		private final int after[];
+
+		Report(List<String> commands, int before[], int after[]) {
+			this.commands = commands;
+			this.before = before;
+			this.after = after;
+		}
+
+		public int getMicroOpsBefore(int opcode) {
+			return before[opcode];
+		}
+
+		public int getMicroOpsAfter(int opcode) {
+			return after[opcode];
+		}
+
+		public int getRemoved(int opcode) {
+			return before[opcode] - after[opcode];
+		}
+
+		public int getTotalRemoved() {
+			int removed = 0;
+			for (int i = 0; i < before.length; i++) {
+				removed += getRemoved(i);
+			}
+			return removed;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < before.length; i++) {
+				s.append(commands.get(i)).append(": ").append(before[i]).append(" -> ").append(after[i])
+						.append(" micro-operations\n");
+			}
+			return s.append("Micro-operations removed: ").append(getTotalRemoved()).append('\n').toString();
+		}
+	}
+
+	private int extBus[]; // the location of the external bus of each register
+	private int intBus[]; // the location of the internal bus of each register (NO_LOCATION if none)
+	private int registersCount;
+	private long internalRegisters; // the registers having an internal bus
+	private long liveOut; // the locations needed after a command
+	private Report report;
+
+	// value numbering
+	private HashMap<String, Integer> valueNumbers = new HashMap<>();
+	private int nextValue;
+	private int memoryVersion; // changed by each memory store, so the memory reads are not reused
+
+	public MicrocodeOptimizer(Architecture arch) {
+		ArrayList<Register> registers = arch.getRegistersList();
+		registersCount = registers.size();
+		extBus = new int[registersCount];
+		intBus = new int[registersCount];
+		for (int i = 0; i < registersCount; i++) {
+			extBus[i] = busLocation(arch, registers.get(i).getExtBus());
+			intBus[i] = busLocation(arch, registers.get(i).getIntBus());
+			if (intBus[i] != NO_LOCATION)
+				internalRegisters |= bit(REGISTERS + i);
+		}
+	}
+
+	private static int busLocation(Architecture arch, Bus bus) {
+		if (bus == arch.getExtbus1())
+			return EXTBUS1;
+		if (bus == arch.getIntbus1())
+			return INTBUS1;
+		if (bus == arch.getIntbus2())
+			return INTBUS2;
+		return NO_LOCATION;
+	}
+
+	private static long bit(int location) {
+		return (location == NO_LOCATION) ? 0 : 1L << location;
+	}
+
+	private long allRegisters() {
+		return ((1L << registersCount) - 1) << REGISTERS;
+	}
+
+	/**
+	 * This method makes the optimized copy of a ROM
+	 * @param rom
+	 * @return
+	 */
+	public MicrocodeRom optimize(MicrocodeRom rom) {
+		liveOut = neededAfterCommands(rom);
+		MicrocodeRom optimized = rom.copy();
+		int before[] = new int[rom.size()];
+		int after[] = new int[rom.size()];
+		for (int opcode = 0; opcode < rom.size(); opcode++) {
+			before[opcode] = rom.microOpsCount(opcode);
+			optimized.set(opcode, optimize(rom.getMicroprogram(opcode)));
+			after[opcode] = optimized.microOpsCount(opcode);
+		}
+		report = new Report(rom.getCommands(), before, after);
+		return optimized;
+	}
+
+	public Report getReport() {
+		return report;
+	}
+
+	/**
+	 * The locations needed after any command: the machine state, and the data path locations
+	 * that some microprogram reads before writing them
+	 */
+	private long neededAfterCommands(MicrocodeRom rom) {
+		long architectural = bit(MEMORY) | bit(STORE_POSITION) | bit(FLAG_BITS) | allRegisters();
+		long fetched = bit(EXTBUS1) | bit(INTBUS2) | bit(REGISTERS + registerId(rom, "IR"));
+		architectural &= ~bit(REGISTERS + registerId(rom, "IR")); // the fetch always writes IR
+		long needed = architectural;
+		long previous;
+		do {
+			previous = needed;
+			for (int opcode = 0; opcode < rom.size(); opcode++) {
+				MicroInstruction program[] = rom.getMicroprogram(opcode);
+				needed |= liveness(program, needed)[0] & ~fetched;
+			}
+		} while (needed != previous);
+		return needed;
+	}
+
+	private static int registerId(MicrocodeRom rom, String name) {
+		return rom.getRegisterNames().indexOf(name);
+	}
+
+	/**
+	 * This method removes the micro-operations not needed, one at a time
+	 */
+	MicroInstruction[] optimize(MicroInstruction microprogram[]) {
+		MicroInstruction program[] = microprogram.clone();
+		int removable;
+		while ((removable = findRemovable(program)) >= 0) {
+			program = remove(program, removable);
+		}
+		return program;
+	}
+
+	private int findRemovable(MicroInstruction program[]) {
+		long live[] = liveness(program, liveOut);
+		boolean target[] = targets(program);
+		int values[] = null;
+		for (int i = 0; i < program.length; i++) {
+			MicroInstruction m = program[i];
+			if ((values == null) || target[i])
+				values = unknownValues();
+			if ((m.getOp() == MicroOp.GOTO) && (m.getTarget() == i + 1))
+				return i;
+			long liveAfter = (i + 1 < program.length) ? live[i + 1] : liveOut;
+			if (m.getOp().hasTarget())
+				liveAfter = liveAfterBranch(program, i, live);
+			int next[] = values.clone();
+			transfer(m, next);
+			if (removable(m, values, next, liveAfter))
+				return i;
+			values = next;
+		}
+		return -1;
+	}
+
+	/**
+	 * A micro-operation can be removed if every location it writes is not needed later or already
+	 * has the value written
+	 */
+	private boolean removable(MicroInstruction m, int values[], int next[], long liveAfter) {
+		MicroOp op = m.getOp();
+		if (op.isSequencing() || (op == MicroOp.MEMORY_STORE) || (op == MicroOp.MEMORY_COPY)
+				|| (op == MicroOp.MEMORY_FILL) || (op == MicroOp.SET_DIVIDE_FLAG)) // a single flag bit: not a location
+			return false;
+		if ((mayWrites(m) & liveAfter) != 0)
+			return false;
+		long writes = writes(m);
+		for (int location = 0; location < values.length; location++) {
+			if (((writes & bit(location)) != 0) && ((liveAfter & bit(location)) != 0)
+					&& (values[location] != next[location]))
+				return false;
+		}
+		return true;
+	}
+
+	private MicroInstruction[] remove(MicroInstruction program[], int position) {
+		MicroInstruction result[] = new MicroInstruction[program.length - 1];
+		for (int i = 0, j = 0; i < program.length; i++) {
+			if (i == position)
+				continue;
+			MicroInstruction m = program[i];
+			if (m.getOp().hasTarget() && (m.getTarget() > position))
+				m = m.withTarget(m.getTarget() - 1);
+			result[j++] = m;
+		}
+		return result;
+	}
+
+	private static boolean[] targets(MicroInstruction program[]) {
+		boolean target[] = new boolean[program.length + 1];
+		for (MicroInstruction m : program) {
+			if (m.getOp().hasTarget())
+				target[m.getTarget()] = true;
+		}
+		return target;
+	}
+
+	/**
+	 * This method returns the locations needed before each micro-instruction (live[program.length]
+	 * is liveOut, the locations needed after the microprogram)
+	 */
+	private long[] liveness(MicroInstruction program[], long liveOut) {
+		long live[] = new long[program.length + 1];
+		live[program.length] = liveOut;
+		boolean changed = true;
+		while (changed) { // the backward branches need more than one pass
+			changed = false;
+			for (int i = program.length - 1; i >= 0; i--) {
+				MicroInstruction m = program[i];
+				long after;
+				if (m.getOp() == MicroOp.HALT)
+					after = liveOut;
+				else if (m.getOp().hasTarget())
+					after = liveAfterBranch(program, i, live);
+				else
+					after = live[i + 1];
+				long before = reads(m) | (after & ~writes(m));
+				if (before != live[i]) {
+					live[i] = before;
+					changed = true;
+				}
+			}
+		}
+		return live;
+	}
+
+	private static long liveAfterBranch(MicroInstruction program[], int i, long live[]) {
+		long after = live[program[i].getTarget()];
+		if (program[i].getOp() != MicroOp.GOTO)
+			after |= live[i + 1];
+		return after;
+	}
+
+	private long reads(MicroInstruction m) {
+		int operand = m.getOperand();
+		boolean inDemux = operand == MicroInstruction.DEMUX;
+		switch (m.getOp()) {
+			case REGISTER_READ:
+				return inDemux ? bit(DEMUX) | allRegisters() : bit(REGISTERS + operand);
+			case REGISTER_INTERNAL_READ:
+				return inDemux ? bit(DEMUX) | internalRegisters : bit(REGISTERS + operand);
+			case REGISTER_STORE:
+				return inDemux ? bit(DEMUX) | allBuses(extBus) : bit(extBus[operand]);
+			case REGISTER_INTERNAL_STORE:
+				return inDemux ? bit(DEMUX) | allBuses(intBus) : bit(intBus[operand]);
+			case MEMORY_READ:
+				return bit(EXTBUS1) | bit(MEMORY);
+			case MEMORY_STORE:
+				return bit(EXTBUS1) | bit(STORE_POSITION);
+			case MEMORY_COPY:
+			case MEMORY_FILL: // a block doesn't write the whole memory, so the memory is read too
+				return bit(ULA0) | bit(ULA1) | bit(EXTBUS1) | bit(MEMORY);
+			case ULA_STORE:
+				return bit(INTBUS1);
+			case ULA_READ:
+			case ULA_INTERNAL_READ:
+				return bit(ULA0 + operand);
+			case ULA_INTERNAL_STORE:
+				return bit(INTBUS2);
+			case ULA_ADD:
+			case ULA_SUB:
+			case ULA_AND:
+			case ULA_OR:
+			case ULA_XOR:
+			case ULA_DIV:
+			case ULA_MOD:
+				return bit(ULA0) | bit(ULA1);
+			case ULA_INC:
+			case ULA_SHL:
+			case ULA_SHR:
+			case ULA_ROL:
+			case ULA_ROR:
+				return bit(ULA1);
+			case DEMUX_PUT:
+				return bit(EXTBUS1);
+			case EXTBUS_PUT_DEMUX:
+				return bit(DEMUX);
+			case SET_STATUS_FLAGS:
+			case SET_DIVIDE_FLAG:
+				return bit(INTBUS1);
+			case IF_FLAG:
+				return bit(FLAG_BITS);
+			case IF_EQUAL:
+			case IF_GREATER:
+			case IF_LOWER:
+				return bit(INTBUS1) | bit(INTBUS2);
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * The locations surely written (the ones that may be written are given by mayWrites)
+	 */
+	private long writes(MicroInstruction m) {
+		int operand = m.getOperand();
+		if (operand == MicroInstruction.DEMUX)
+			return 0;
+		switch (m.getOp()) {
+			case REGISTER_READ:
+				return bit(extBus[operand]);
+			case REGISTER_INTERNAL_READ:
+				return bit(intBus[operand]);
+			case REGISTER_STORE:
+			case REGISTER_INTERNAL_STORE:
+				return bit(REGISTERS + operand);
+			case MEMORY_READ:
+			case EXTBUS_PUT_DEMUX:
+			case EXTBUS_PUT:
+				return bit(EXTBUS1);
+			case MEMORY_STORE:
+				return bit(STORE_POSITION) | bit(MEMORY);
+			case ULA_STORE:
+			case ULA_ADD:
+			case ULA_SUB:
+			case ULA_INC:
+			case ULA_AND:
+			case ULA_OR:
+			case ULA_XOR:
+			case ULA_SHL:
+			case ULA_SHR:
+			case ULA_ROL:
+			case ULA_ROR:
+			case ULA_DIV:
+			case ULA_MOD:
+				return bit((m.getOp() == MicroOp.ULA_STORE) ? ULA0 + operand : ULA1);
+			case ULA_READ:
+				return bit(INTBUS1);
+			case ULA_INTERNAL_STORE:
+				return bit(INTBUS1) | bit(ULA0 + operand);
+			case ULA_INTERNAL_READ:
+				return bit(INTBUS1) | bit(INTBUS2);
+			case DEMUX_PUT:
+				return bit(DEMUX);
+			case SET_STATUS_FLAGS:
+				return bit(FLAG_BITS);
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * The locations that may be written by the micro-operations on the register in the demux
+	 */
+	private long mayWrites(MicroInstruction m) {
+		if (m.getOperand() != MicroInstruction.DEMUX)
+			return 0;
+		switch (m.getOp()) {
+			case REGISTER_READ:
+				return allBuses(extBus);
+			case REGISTER_INTERNAL_READ:
+				return allBuses(intBus);
+			case REGISTER_STORE:
+				return allRegisters();
+			case REGISTER_INTERNAL_STORE:
+				return internalRegisters; // only a register with an internal bus can be in the demux
+			default:
+				return 0;
+		}
+	}
+
+	private static long allBuses(int buses[]) {
+		long all = 0;
+		for (int bus : buses) {
+			all |= bit(bus);
+		}
+		return all;
+	}
+
+	private int[] unknownValues() {
+		int values[] = new int[REGISTERS + registersCount];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = nextValue++;
+		}
+		return values;
+	}
+
+	/**
+	 * The value number of an operation on values
+	 */
+	private int value(String operation, int... operands) {
+		String key = operation + Arrays.toString(operands);
+		Integer value = valueNumbers.get(key);
+		if (value == null) {
+			value = nextValue++;
+			valueNumbers.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * This method changes the values of the locations as the micro-operation does
+	 */
+	private void transfer(MicroInstruction m, int values[]) {
+		int operand = m.getOperand();
+		if ((operand == MicroInstruction.DEMUX) && (m.getOp().ordinal() <= MicroOp.REGISTER_INTERNAL_STORE.ordinal())) {
+			long changed = mayWrites(m);
+			for (int location = 0; location < values.length; location++) {
+				if ((changed & bit(location)) != 0)
+					values[location] = nextValue++;
+			}
+			return;
+		}
+		switch (m.getOp()) {
+			case REGISTER_READ:
+				set(values, extBus[operand], values[REGISTERS + operand]);
+				break;
+			case REGISTER_INTERNAL_READ:
+				set(values, intBus[operand], values[REGISTERS + operand]);
+				break;
+			case REGISTER_STORE:
+				values[REGISTERS + operand] = (extBus[operand] == NO_LOCATION) ? nextValue++ : values[extBus[operand]];
+				break;
+			case REGISTER_INTERNAL_STORE:
+				values[REGISTERS + operand] = (intBus[operand] == NO_LOCATION) ? nextValue++ : values[intBus[operand]];
+				break;
+			case MEMORY_READ:
+				values[EXTBUS1] = value("memory", values[EXTBUS1], memoryVersion);
+				break;
+			case MEMORY_STORE:
+				memoryVersion = nextValue++;
+				values[STORE_POSITION] = nextValue++;
+				values[MEMORY] = nextValue++;
+				break;
+			case MEMORY_COPY:
+			case MEMORY_FILL:
+				memoryVersion = nextValue++;
+				values[MEMORY] = nextValue++;
+				break;
+			case ULA_STORE:
+				values[ULA0 + operand] = values[INTBUS1];
+				break;
+			case ULA_READ:
+				values[INTBUS1] = values[ULA0 + operand];
+				break;
+			case ULA_INTERNAL_STORE:
+				values[INTBUS1] = values[INTBUS2];
+				values[ULA0 + operand] = values[INTBUS2];
+				break;
+			case ULA_INTERNAL_READ:
+				values[INTBUS1] = values[ULA0 + operand];
+				values[INTBUS2] = values[ULA0 + operand];
+				break;
+			case ULA_ADD:
+				values[ULA1] = value("add", values[ULA0], values[ULA1]);
+				break;
+			case ULA_SUB:
+				values[ULA1] = value("sub", values[ULA0], values[ULA1]);
+				break;
+			case ULA_INC:
+				values[ULA1] = value("inc", values[ULA1]);
+				break;
+			case ULA_AND:
+			case ULA_OR:
+			case ULA_XOR:
+			case ULA_DIV:
+			case ULA_MOD:
+				values[ULA1] = value(m.getOp().toString(), values[ULA0], values[ULA1]);
+				break;
+			case ULA_SHL:
+			case ULA_SHR:
+			case ULA_ROL:
+			case ULA_ROR:
+				values[ULA1] = value(m.getOp().toString(), values[ULA1]);
+				break;
+			case DEMUX_PUT:
+				values[DEMUX] = values[EXTBUS1];
+				break;
+			case EXTBUS_PUT_DEMUX:
+				values[EXTBUS1] = values[DEMUX];
+				break;
+			case EXTBUS_PUT:
+				values[EXTBUS1] = value("constant", operand);
+				break;
+			case SET_STATUS_FLAGS:
+				values[FLAG_BITS] = value("flags", values[INTBUS1]);
+				break;
+			case SET_DIVIDE_FLAG:
+				values[FLAG_BITS] = value("divide", values[INTBUS1], values[FLAG_BITS]);
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static void set(int values[], int location, int value) {
+		if (location != NO_LOCATION)
+			values[location] = value;
+	}
+
+	/**
+	 * This method checks, by running the programs, if the optimized ROM gives the same results of the
+	 * original one: the same memory, registers (but IR), flags and memory store state
+	 * @param original
+	 * @param optimized
+	 * @param programs executables, ready to be loaded into the memory
+	 * @return
+	 */
+	public static boolean verify(MicrocodeRom original, MicrocodeRom optimized, List<int[]> programs) {
+		for (int program[] : programs) {
+			ArchitectureSnapshot expected = run(original, program);
+			ArchitectureSnapshot actual = run(optimized, program);
+			if (!Arrays.equals(expected.memory(), actual.memory())
+					|| (expected.storePosition() != actual.storePosition())
+					|| !Arrays.equals(expected.flagBits(), actual.flagBits())
+					|| (expected.getInstructionCount() != actual.getInstructionCount()))
+				return false;
+			int ir = original.getRegisterNames().indexOf("IR");
+			for (int r = 0; r < expected.registers().length; r++) {
+				if ((r != ir) && (expected.getRegisterData(r) != actual.getRegisterData(r)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static ArchitectureSnapshot run(MicrocodeRom rom, int program[]) {
+		Architecture arch = new Architecture();
+		arch.setBudget(100000, 0);
+		arch.setMicrocode(rom, false);
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		return arch.snapshot();
+	}
+
+}
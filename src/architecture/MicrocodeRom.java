@@ -0,0 +1,478 @@
+package architecture;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class keeps the microprograms of the commands as data: for each command (by its opcode),
+ * a list of micro-instructions, run by a micro-sequencer (MicroSequencer) or compiled into
+ * a handler (MicrocodeCompiler).
+ *
+ * The microcode is written in a text form, close to the Java microprograms:
+ *
+ * macro incrementarPC          a sequence used by the commands
+ *     PC.read
+ *     ...
+ * end
+ * command jz                   the opcodes are given by the commands order
+ *     incrementarPC
+ *     ifFlag 0 taken           branches go to labels
+ *     ula.inc
+ *     ...
+ *     goto end
+ * taken:
+ *     memory.read
+ *     PC.store
+ * end:
+ * end
+ *
+ * The micro-operations are:
+ * - REG.read, REG.store, REG.internalRead, REG.internalStore, where REG is a register name
+ * (RPG0, PC, IR, ...) or demuxRegister (the register whose id is in the demux)
+ * - memory.read, memory.store
+ * - ula.store N, ula.read N, ula.internalStore N, ula.internalRead N, ula.add, ula.sub, ula.inc,
+ * ula.and, ula.or, ula.xor, ula.shl, ula.shr, ula.rol, ula.ror, ula.div, ula.mod
+ * - demux.put (extbus1 to demux), extbus1.put demux, extbus1.put N (N can be reserved+N, an address
+ * of the reserved area)
+ * - setStatusFlags (the flags of the intbus1 value), setDivideFlag (the flag bit 3, if the intbus1 value is 0)
+ * - ifFlag N label, ifEqual label, ifGreater label (intbus2 > intbus1), ifLower label, goto label, halt
+ * Comments start with //
+ */
+public class MicrocodeRom {
+
+	private static final String REGISTER_METHODS[] = { "read", "store", "internalRead", "internalStore" };
+	private static final MicroOp REGISTER_OPS[] = { MicroOp.REGISTER_READ, MicroOp.REGISTER_STORE,
+			MicroOp.REGISTER_INTERNAL_READ, MicroOp.REGISTER_INTERNAL_STORE };
+	private static final String ULA_TRANSFERS[] = { "ula.read", "ula.store", "ula.internalRead", "ula.internalStore" };
+	private static final MicroOp ULA_OPS[] = { MicroOp.ULA_READ, MicroOp.ULA_STORE, MicroOp.ULA_INTERNAL_READ,
+			MicroOp.ULA_INTERNAL_STORE };
+
+	private ArrayList<String> commands = new ArrayList<>();
+	private ArrayList<MicroInstruction[]> microprograms = new ArrayList<>();
+	private List<String> registerNames;
+	private int reservedAreaStart;
+
+	/**
+	 * @param registerNames the register names, by the register id
+	 * @param reservedAreaStart the address used by reserved+N
+	 */
+	public MicrocodeRom(List<String> registerNames, int reservedAreaStart) {
+		this.registerNames = registerNames;
+		this.reservedAreaStart = reservedAreaStart;
+	}
+
+	/**
+	 * This method returns the microcode of the commands of the Architecture
+	 * (the same microprograms of its Java methods)
+	 * @param arch
+	 * @return
+	 */
+	public static MicrocodeRom standard(Architecture arch) {
+		return parse(Arrays.asList(StandardMicrocode.LINES), arch);
+	}
+
+	/**
+	 * This method makes a ROM from the microcode text
+	 * @param lines
+	 * @param arch gives the register names and the reserved area
+	 * @return
+	 * @throws IllegalArgumentException if the text has errors
+	 */
+	public static MicrocodeRom parse(List<String> lines, Architecture arch) {
+		ArrayList<String> names = new ArrayList<>();
+		for (int i = 0; i < arch.getRegistersList().size(); i++) {
+			names.add(arch.getRegistersList().get(i).getRegisterName());
+		}
+		MicrocodeRom rom = new MicrocodeRom(names, arch.getReservedAreaStart());
+		rom.parse(lines);
+		return rom;
+	}
+
+	/**
+	 * This method reads the microcode text from a file
+	 * @param filename
+	 * @param arch
+	 * @return
+	 * @throws IOException
+	 */
+	public static MicrocodeRom read(String filename, Architecture arch) throws IOException {
+		ArrayList<String> lines = new ArrayList<>();
+		BufferedReader br = new BufferedReader(new FileReader(filename));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			br.close();
+		}
+		return parse(lines, arch);
+	}
+
+	/**
+	 * This method adds the macros and commands of the text to the ROM
+	 * @param lines
+	 */
+	public void parse(List<String> lines) {
+		HashMap<String, List<String>> macros = new HashMap<>();
+		ArrayList<String> body = null;
+		String name = null;
+		boolean macro = false;
+		int first = 0; // the line of the name, for the error messages
+		for (int n = 0; n < lines.size(); n++) {
+			String line = stripComment(lines.get(n));
+			if (line.isEmpty())
+				continue;
+			String f[] = line.split("\\s+");
+			if (body == null) {
+				if ((f.length != 2) || (!"macro".equals(f[0]) && !"command".equals(f[0])))
+					throw error(n, "macro or command expected: " + line);
+				macro = "macro".equals(f[0]);
+				name = f[1];
+				body = new ArrayList<>();
+				first = n;
+			} else if ("end".equals(line)) {
+				if (macro)
+					macros.put(name, body);
+				else
+					add(name, assemble(body, macros, first));
+				body = null;
+			} else
+				body.add(line);
+		}
+		if (body != null)
+			throw error(first, "end expected for " + name);
+	}
+
+	/**
+	 * This method adds a command, whose opcode is the next one
+	 * @param name
+	 * @param microprogram
+	 */
+	public void add(String name, MicroInstruction microprogram[]) {
+		if (commands.contains(name))
+			throw new IllegalArgumentException("Command " + name + " already in the microcode");
+		commands.add(name);
+		microprograms.add(microprogram.clone());
+	}
+
+	/**
+	 * This method replaces the microprogram of a command
+	 * @param opcode
+	 * @param microprogram
+	 */
+	public void set(int opcode, MicroInstruction microprogram[]) {
+		microprograms.set(opcode, microprogram.clone());
+	}
+
+	public List<String> getCommands() {
+		return commands;
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	public int getOpcode(String command) {
+		return commands.indexOf(command);
+	}
+
+	public MicroInstruction[] getMicroprogram(int opcode) {
+		return microprograms.get(opcode).clone();
+	}
+
+	public List<String> getRegisterNames() {
+		return registerNames;
+	}
+
+	/**
+	 * This method returns how many micro-operations (not counting the sequencer ones) a microprogram has
+	 * @param opcode
+	 * @return
+	 */
+	public int microOpsCount(int opcode) {
+		int count = 0;
+		for (MicroInstruction m : microprograms.get(opcode)) {
+			if (!m.getOp().isSequencing())
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * This method makes a copy of the ROM, whose microprograms can be changed
+	 * @return
+	 */
+	public MicrocodeRom copy() {
+		MicrocodeRom rom = new MicrocodeRom(registerNames, reservedAreaStart);
+		for (int i = 0; i < size(); i++) {
+			rom.add(commands.get(i), microprograms.get(i));
+		}
+		return rom;
+	}
+
+	/**
+	 * This method returns the microprogram of a command in the text form (the macros expanded)
+	 * @param opcode
+	 * @return
+	 */
+	public String toText(int opcode) {
+		MicroInstruction program[] = microprograms.get(opcode);
+		boolean target[] = new boolean[program.length + 1];
+		for (MicroInstruction m : program) {
+			if (m.getOp().hasTarget())
+				target[m.getTarget()] = true;
+		}
+		StringBuilder s = new StringBuilder("command ").append(commands.get(opcode)).append('\n');
+		for (int i = 0; i <= program.length; i++) {
+			if (target[i])
+				s.append("L").append(i).append(":\n");
+			if (i < program.length)
+				s.append('\t').append(toText(program[i])).append('\n');
+		}
+		return s.append("end\n").toString();
+	}
+
+	private String toText(MicroInstruction m) {
+		int operand = m.getOperand();
+		String label = " L" + m.getTarget();
+		switch (m.getOp()) {
+			case REGISTER_READ:
+			case REGISTER_STORE:
+			case REGISTER_INTERNAL_READ:
+			case REGISTER_INTERNAL_STORE:
+				String register = (operand == MicroInstruction.DEMUX) ? "demuxRegister" : registerNames.get(operand);
+				return register + "." + REGISTER_METHODS[Arrays.asList(REGISTER_OPS).indexOf(m.getOp())];
+			case MEMORY_READ:
+				return "memory.read";
+			case MEMORY_STORE:
+				return "memory.store";
+			case MEMORY_COPY:
+				return "memory.copy";
+			case MEMORY_FILL:
+				return "memory.fill";
+			case ULA_STORE:
+			case ULA_READ:
+			case ULA_INTERNAL_STORE:
+			case ULA_INTERNAL_READ:
+				return ULA_TRANSFERS[Arrays.asList(ULA_OPS).indexOf(m.getOp())] + " " + operand;
+			case ULA_ADD:
+				return "ula.add";
+			case ULA_SUB:
+				return "ula.sub";
+			case ULA_INC:
+				return "ula.inc";
+			case ULA_AND:
+				return "ula.and";
+			case ULA_OR:
+				return "ula.or";
+			case ULA_XOR:
+				return "ula.xor";
+			case ULA_SHL:
+				return "ula.shl";
+			case ULA_SHR:
+				return "ula.shr";
+			case ULA_ROL:
+				return "ula.rol";
+			case ULA_ROR:
+				return "ula.ror";
+			case ULA_DIV:
+				return "ula.div";
+			case ULA_MOD:
+				return "ula.mod";
+			case DEMUX_PUT:
+				return "demux.put";
+			case EXTBUS_PUT_DEMUX:
+				return "extbus1.put demux";
+			case EXTBUS_PUT:
+				return "extbus1.put " + operand;
+			case SET_STATUS_FLAGS:
+				return "setStatusFlags";
+			case SET_DIVIDE_FLAG:
+				return "setDivideFlag";
+			case IF_FLAG:
+				return "ifFlag " + operand + label;
+			case IF_EQUAL:
+				return "ifEqual" + label;
+			case IF_GREATER:
+				return "ifGreater" + label;
+			case IF_LOWER:
+				return "ifLower" + label;
+			case GOTO:
+				return "goto" + label;
+			default:
+				return "halt";
+		}
+	}
+
+	/**
+	 * This method makes the micro-instructions of a command, expanding the macros and
+	 * replacing the labels by the positions
+	 */
+	private MicroInstruction[] assemble(List<String> body, HashMap<String, List<String>> macros, int line) {
+		ArrayList<String> expanded = new ArrayList<>();
+		expand(body, macros, expanded, 0, line);
+		HashMap<String, Integer> labels = new HashMap<>();
+		ArrayList<String> code = new ArrayList<>();
+		for (String s : expanded) {
+			if (s.endsWith(":")) {
+				String label = s.substring(0, s.length() - 1);
+				if (labels.put(label, code.size()) != null)
+					throw error(line, "label " + label + " repeated");
+			} else
+				code.add(s);
+		}
+		MicroInstruction program[] = new MicroInstruction[code.size()];
+		for (int i = 0; i < program.length; i++) {
+			program[i] = microInstruction(code.get(i).split("\\s+"), labels, line);
+		}
+		return program;
+	}
+
+	private void expand(List<String> body, HashMap<String, List<String>> macros, List<String> expanded, int depth,
+			int line) {
+		if (depth > 16)
+			throw error(line, "macros calling themselves");
+		for (String s : body) {
+			List<String> macro = macros.get(s);
+			if (macro != null)
+				expand(macro, macros, expanded, depth + 1, line);
+			else
+				expanded.add(s);
+		}
+	}
+
+	private MicroInstruction microInstruction(String f[], HashMap<String, Integer> labels, int line) {
+		String op = f[0];
+		int dot = op.indexOf('.');
+		if (dot > 0) {
+			String component = op.substring(0, dot);
+			String method = op.substring(dot + 1);
+			boolean inDemux = "demuxRegister".equals(component);
+			int register = inDemux ? MicroInstruction.DEMUX : registerNames.indexOf(component);
+			int m = Arrays.asList(REGISTER_METHODS).indexOf(method);
+			if ((inDemux || (register >= 0)) && (m >= 0)) {
+				operands(f, 0, line);
+				return new MicroInstruction(REGISTER_OPS[m], register);
+			}
+		}
+		int transfer = Arrays.asList(ULA_TRANSFERS).indexOf(op);
+		if (transfer >= 0) {
+			operands(f, 1, line);
+			int ulaRegister = number(f[1], line);
+			if ((ulaRegister != 0) && (ulaRegister != 1))
+				throw error(line, "ula register must be 0 or 1: " + f[1]);
+			return new MicroInstruction(ULA_OPS[transfer], ulaRegister);
+		}
+		switch (op) {
+			case "memory.read":
+				return simple(MicroOp.MEMORY_READ, f, line);
+			case "memory.store":
+				return simple(MicroOp.MEMORY_STORE, f, line);
+			case "memory.copy":
+				return simple(MicroOp.MEMORY_COPY, f, line);
+			case "memory.fill":
+				return simple(MicroOp.MEMORY_FILL, f, line);
+			case "ula.add":
+				return simple(MicroOp.ULA_ADD, f, line);
+			case "ula.sub":
+				return simple(MicroOp.ULA_SUB, f, line);
+			case "ula.inc":
+				return simple(MicroOp.ULA_INC, f, line);
+			case "ula.and":
+				return simple(MicroOp.ULA_AND, f, line);
+			case "ula.or":
+				return simple(MicroOp.ULA_OR, f, line);
+			case "ula.xor":
+				return simple(MicroOp.ULA_XOR, f, line);
+			case "ula.shl":
+				return simple(MicroOp.ULA_SHL, f, line);
+			case "ula.shr":
+				return simple(MicroOp.ULA_SHR, f, line);
+			case "ula.rol":
+				return simple(MicroOp.ULA_ROL, f, line);
+			case "ula.ror":
+				return simple(MicroOp.ULA_ROR, f, line);
+			case "ula.div":
+				return simple(MicroOp.ULA_DIV, f, line);
+			case "ula.mod":
+				return simple(MicroOp.ULA_MOD, f, line);
+			case "setDivideFlag":
+				return simple(MicroOp.SET_DIVIDE_FLAG, f, line);
+			case "demux.put":
+				return simple(MicroOp.DEMUX_PUT, f, line);
+			case "setStatusFlags":
+				return simple(MicroOp.SET_STATUS_FLAGS, f, line);
+			case "halt":
+				return simple(MicroOp.HALT, f, line);
+			case "extbus1.put":
+				operands(f, 1, line);
+				if ("demux".equals(f[1]))
+					return new MicroInstruction(MicroOp.EXTBUS_PUT_DEMUX);
+				return new MicroInstruction(MicroOp.EXTBUS_PUT, number(f[1], line));
+			case "ifFlag":
+				operands(f, 2, line);
+				return new MicroInstruction(MicroOp.IF_FLAG, number(f[1], line), target(f[2], labels, line));
+			case "ifEqual":
+				return branch(MicroOp.IF_EQUAL, f, labels, line);
+			case "ifGreater":
+				return branch(MicroOp.IF_GREATER, f, labels, line);
+			case "ifLower":
+				return branch(MicroOp.IF_LOWER, f, labels, line);
+			case "goto":
+				return branch(MicroOp.GOTO, f, labels, line);
+			default:
+				throw error(line, "unknown micro-operation " + op);
+		}
+	}
+
+	private MicroInstruction simple(MicroOp op, String f[], int line) {
+		operands(f, 0, line);
+		return new MicroInstruction(op);
+	}
+
+	private MicroInstruction branch(MicroOp op, String f[], HashMap<String, Integer> labels, int line) {
+		operands(f, 1, line);
+		return new MicroInstruction(op, 0, target(f[1], labels, line));
+	}
+
+	private int target(String label, HashMap<String, Integer> labels, int line) {
+		Integer target = labels.get(label);
+		if (target == null)
+			throw error(line, "label " + label + " not found");
+		return target;
+	}
+
+	private void operands(String f[], int count, int line) {
+		if (f.length != count + 1)
+			throw error(line, f[0] + " must have " + count + " operands");
+	}
+
+	/**
+	 * a number, or reserved+N (an address of the reserved area)
+	 */
+	private int number(String s, int line) {
+		try {
+			if (s.startsWith("reserved+"))
+				return reservedAreaStart + Integer.parseInt(s.substring("reserved+".length()));
+			return Integer.parseInt(s);
+		} catch (NumberFormatException e) {
+			throw error(line, "number expected: " + s);
+		}
+	}
+
+	private static String stripComment(String line) {
+		int comment = line.indexOf("//");
+		return ((comment >= 0) ? line.substring(0, comment) : line).trim();
+	}
+
+	private static IllegalArgumentException error(int line, String message) {
+		return new IllegalArgumentException("Microcode line " + (line + 1) + ": " + message);
+	}
+
+}
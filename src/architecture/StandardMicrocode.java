@@ -0,0 +1,838 @@
+package architecture;
+
+/**
+ * The microcode of the Architecture commands, in the text form read by MicrocodeRom.
+ * Each command does exactly what its Java microprogram (in Architecture) does, so the
+ * microcode engines and the Java methods give the same results.
+ */
+final class StandardMicrocode {
+
+	private StandardMicrocode() {
+	}
+
+	static final String LINES[] = {
+			"macro incrementarPC",
+			"	PC.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.inc",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	PC.store // now PC points to the next word",
+			"end",
+			"",
+			"macro nextParameter // PC + 1, when PC + 1 is already in the ula register 1",
+			"	ula.inc",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	PC.store",
+			"end",
+			"",
+			"macro blockOperands // ula register 0 <- RegA, ula register 1 <- RegB, extbus1 <- RegC",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0 // kept in the ula: incrementarPC overwrites the intbus1",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter // PC points to the third register id",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.read",
+			"end",
+			"",
+			"macro indexedOperand // IR <- mem[RegA + offset], for offset(%RegA) in the first parameters",
+			"	incrementarPC",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0 // kept in the ula: the next parameters don't use the ula register 0",
+			"	nextParameter // PC points to the base register id",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter // PC points to the last parameter",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.add",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.read",
+			"	IR.store",
+			"end",
+			"",
+			"macro indexedUlaOperand // ula register 1 <- RegB, ula register 0 <- IR, for the RegB in the last parameter",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"end",
+			"",
+			"macro immediateOperands // ula register 0 <- imm, ula register 1 <- RegA, for imm %RegA",
+			"	incrementarPC",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	nextParameter // PC points to the RegA id",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"end",
+			"",
+			"macro registersOperands // ula register 0 <- RegA, ula register 1 <- RegB, for %RegA %RegB",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"end",
+			"",
+			"macro memRegOperands // ula register 0 <- mem, ula register 1 <- RegB, for mem %RegB",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"end",
+			"",
+			"macro regMemOperands // ula register 0 <- RegA, ula register 1 <- mem, for %RegA mem (the store started)",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	memory.read",
+			"	memory.store",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"end",
+			"",
+			"macro salvarEstadoRegistradores",
+			"	extbus1.put reserved+0",
+			"	memory.store",
+			"	RPG0.read",
+			"	memory.store",
+			"	extbus1.put reserved+1",
+			"	memory.store",
+			"	RPG1.read",
+			"	memory.store",
+			"	extbus1.put reserved+2",
+			"	memory.store",
+			"	RPG2.read",
+			"	memory.store",
+			"	extbus1.put reserved+3",
+			"	memory.store",
+			"	RPG3.read",
+			"	memory.store",
+			"	extbus1.put reserved+4",
+			"	memory.store",
+			"	PC.read",
+			"	memory.store",
+			"	extbus1.put reserved+5",
+			"	memory.store",
+			"	IR.read",
+			"	memory.store",
+			"end",
+			"",
+			"macro imulDestination // the register id in the demux gets the result of the imul routine, which starts",
+			"	extbus1.put reserved+40",
+			"	memory.store",
+			"	extbus1.put demux",
+			"	memory.store",
+			"	extbus1.put reserved+7",
+			"	PC.store",
+			"end",
+			"",
+			"macro conditionalJump // the branch taken goes to the label taken",
+			"	nextParameter",
+			"	goto end",
+			"taken:",
+			"	memory.read",
+			"	PC.store",
+			"end:",
+			"end",
+			"",
+			"macro compareRegisters // the first register in the intbus1, the second in the intbus2",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0 // kept in the ula: incrementarPC overwrites the intbus1",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	demuxRegister.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.read 0",
+			"end",
+			"",
+			"macro jumpIfTaken",
+			"	nextParameter",
+			"	goto end",
+			"taken:",
+			"	PC.read",
+			"	memory.read",
+			"	PC.store",
+			"end:",
+			"end",
+			"",
+			"command addRegReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.add",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command addMemReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.add",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command addRegMem",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	memory.read",
+			"	memory.store // the address of the second parameter, where the result is stored",
+			"	memory.read",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.add",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command subRegReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	nextParameter",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command subMemReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command subRegMem",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	memory.read",
+			"	memory.store",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command imulMemReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0 // kept in the ula while PC goes to the register id",
+			"	nextParameter",
+			"	memory.read",
+			"	demux.put",
+			"	salvarEstadoRegistradores // PC points to the last parameter: the routine restores it",
+			"	extbus1.put reserved+6",
+			"	memory.store",
+			"	ula.internalRead 0",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	imulDestination",
+			"end",
+			"",
+			"command imulRegMem",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	salvarEstadoRegistradores // PC points to the last parameter: the routine restores it",
+			"	PC.read",
+			"	memory.read",
+			"	memory.read",
+			"	IR.store",
+			"	extbus1.put reserved+6",
+			"	memory.store",
+			"	IR.read",
+			"	memory.store",
+			"	imulDestination",
+			"end",
+			"",
+			"command imulRegReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	nextParameter",
+			"	memory.read",
+			"	demux.put",
+			"	salvarEstadoRegistradores // PC points to the last parameter: the routine restores it",
+			"	incrementarPC",
+			"	extbus1.put reserved+6 // the multiplicand goes to the result of the routine",
+			"	memory.store",
+			"	demuxRegister.read",
+			"	memory.store",
+			"	imulDestination",
+			"end",
+			"",
+			"command moveMemReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	demux.put",
+			"	incrementarPC",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	IR.read",
+			"	demuxRegister.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command moveRegMem",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	memory.read",
+			"	memory.store",
+			"	demuxRegister.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command moveRegReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	demuxRegister.internalRead",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command moveImmReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	incrementarPC",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	IR.read",
+			"	demuxRegister.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command incReg",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.inc",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command incMem",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.store",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.inc",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command jmp",
+			"	incrementarPC",
+			"	memory.read",
+			"	PC.store",
+			"end",
+			"",
+			"command jn",
+			"	incrementarPC",
+			"	ifFlag 1 taken",
+			"	conditionalJump",
+			"end",
+			"",
+			"command jz",
+			"	incrementarPC",
+			"	ifFlag 0 taken",
+			"	conditionalJump",
+			"end",
+			"",
+			"command jnz",
+			"	incrementarPC",
+			"	ifFlag 2 taken",
+			"	conditionalJump",
+			"end",
+			"",
+			"command jeq",
+			"	compareRegisters",
+			"	ifEqual taken",
+			"	jumpIfTaken",
+			"end",
+			"",
+			"command jgt",
+			"	compareRegisters",
+			"	ifGreater taken",
+			"	jumpIfTaken",
+			"end",
+			"",
+			"command jlw",
+			"	compareRegisters",
+			"	ifLower taken",
+			"	jumpIfTaken",
+			"end",
+			"",
+			"command ldi",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	memory.read",
+			"	demuxRegister.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command read",
+			"	incrementarPC",
+			"	memory.read",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	extbus1.put demux",
+			"	IR.store",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	IR.read",
+			"	demuxRegister.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command store",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	nextParameter",
+			"	memory.read",
+			"	memory.store",
+			"	demuxRegister.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command copy",
+			"	blockOperands",
+			"	memory.copy",
+			"	incrementarPC",
+			"end",
+			"",
+			"command fill",
+			"	blockOperands",
+			"	memory.fill",
+			"	incrementarPC",
+			"end",
+			"",
+			"command moveIdxReg",
+			"	indexedOperand",
+			"	PC.read",
+			"	memory.read",
+			"	demux.put",
+			"	IR.read",
+			"	demuxRegister.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command moveRegIdx",
+			"	incrementarPC",
+			"	nextParameter // PC points to the offset",
+			"	memory.read",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	nextParameter // PC points to the base register id",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.add",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	PC.read // back to the RegA id, in PC - 2",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 0",
+			"	extbus1.put 2",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.sub",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command addIdxReg",
+			"	indexedOperand",
+			"	indexedUlaOperand",
+			"	ula.add",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command subIdxReg",
+			"	indexedOperand",
+			"	indexedUlaOperand",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command addImmReg",
+			"	immediateOperands",
+			"	ula.add",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command subImmReg",
+			"	immediateOperands",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command cmpImmReg",
+			"	immediateOperands",
+			"	ula.sub",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	incrementarPC",
+			"end",
+			"",
+			"command loop",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 0",
+			"	extbus1.put 1",
+			"	IR.store",
+			"	IR.internalRead",
+			"	ula.internalStore 1",
+			"	ula.sub // RegA - 1",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC // PC points to the label",
+			"	ifFlag 2 taken",
+			"	conditionalJump",
+			"end",
+			"",
+			"command shl",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.shl",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command shr",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.shr",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command rol",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.rol",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command and",
+			"	registersOperands",
+			"	ula.and",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command or",
+			"	registersOperands",
+			"	ula.or",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command xor",
+			"	registersOperands",
+			"	ula.xor",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+			"",
+			"command idivMemReg",
+			"	memRegOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero // the register is not changed",
+			"	ula.div",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"zero:",
+			"	incrementarPC",
+			"end",
+			"",
+			"command idivRegMem",
+			"	regMemOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero // the divisor is stored back",
+			"	ula.div",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"zero:",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command idivRegReg",
+			"	registersOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero",
+			"	ula.div",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"zero:",
+			"	incrementarPC",
+			"end",
+			"",
+			"command imodMemReg",
+			"	memRegOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero // the register is not changed",
+			"	ula.mod",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"zero:",
+			"	incrementarPC",
+			"end",
+			"",
+			"command imodRegMem",
+			"	regMemOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero // the divisor is stored back",
+			"	ula.mod",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"zero:",
+			"	ula.internalRead 1",
+			"	IR.internalStore",
+			"	IR.read",
+			"	memory.store",
+			"	incrementarPC",
+			"end",
+			"",
+			"command imodRegReg",
+			"	registersOperands",
+			"	setDivideFlag",
+			"	ifFlag 3 zero",
+			"	ula.mod",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"zero:",
+			"	incrementarPC",
+			"end",
+			"",
+			"command ror",
+			"	incrementarPC",
+			"	memory.read",
+			"	demux.put",
+			"	demuxRegister.internalRead",
+			"	ula.store 1",
+			"	ula.ror",
+			"	ula.read 1",
+			"	setStatusFlags",
+			"	demuxRegister.internalStore",
+			"	incrementarPC",
+			"end",
+	};
+
+}
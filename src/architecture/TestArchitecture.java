@@ -612,7 +612,30 @@ public class TestArchitecture {
 				"jlw",
 				"ldi",
 				"read",
-				"store");
+				"store",
+				"copy",
+				"fill",
+				"moveIdxReg",
+				"moveRegIdx",
+				"addIdxReg",
+				"subIdxReg",
+				"addImmReg",
+				"subImmReg",
+				"cmpImmReg",
+				"loop",
+				"shl",
+				"shr",
+				"rol",
+				"and",
+				"or",
+				"xor",
+				"idivMemReg",
+				"idivRegMem",
+				"idivRegReg",
+				"imodMemReg",
+				"imodRegMem",
+				"imodRegReg",
+				"ror");
 		
 		assertEquals(listaComandos, commands);
 	}
@@ -629,4 +652,356 @@ public class TestArchitecture {
 		assertEquals(0, arch.getMemory().getDataList()[5]);
 	}
 
+	@Test
+	public void testSnapshotRestore() {
+		Architecture arch = new Architecture();
+		// move 3 %RPG0
+		// move 5 %RPG1
+		// add %RPG0 %RPG1
+		int program[] = { 12, 3, 0, 12, 5, 1, 0, 0, 1, -1 };
+		for (int i = 0; i < program.length; i++) {
+			arch.getMemory().getDataList()[i] = program[i];
+		}
+		ArchitectureSnapshot snapshot = arch.snapshot();
+
+		arch.controlUnitEexec();
+		assertEquals(3, arch.getRPG().getData());
+		assertEquals(8, arch.getRPG1().getData());
+
+		// the snapshot must not be changed by the execution
+		assertEquals(0, snapshot.getRegisterData(0));
+		assertEquals(0, snapshot.getRegisterData(1));
+		assertEquals(12, snapshot.getMemoryData(0));
+
+		// changing the program and restoring: the original program must run again
+		arch.getMemory().getDataList()[4] = 10;
+		arch.restore(snapshot);
+		assertEquals(0, arch.getRPG1().getData());
+		assertEquals(0, arch.getPC().getData());
+		assertEquals(5, arch.getMemory().getDataList()[4]);
+		arch.controlUnitEexec();
+		assertEquals(8, arch.getRPG1().getData());
+
+		// the reserved area must also be restored
+		assertEquals(snapshot.getMemoryData(207), arch.getMemory().getDataList()[207]);
+	}
+
+	@Test
+	public void testFork() {
+		Architecture arch = new Architecture(false, true);
+		// move 3 %RPG0
+		// move 5 %RPG1
+		// add %RPG0 %RPG1
+		int program[] = { 12, 3, 0, 12, 5, 1, 0, 0, 1, -1 };
+		for (int i = 0; i < program.length; i++) {
+			arch.getExtbus1().put(i);
+			arch.getMemory().store();
+			arch.getExtbus1().put(program[i]);
+			arch.getMemory().store();
+		}
+		arch.getExtbus1().put(7);
+		arch.getRPG3().store();
+
+		Architecture fork = arch.fork();
+		assertEquals(7, fork.getRPG3().getData());
+		assertEquals(31, fork.getMemory().load(207)); // the reserved area is shared
+
+		// the fork changes the program: move 6 %RPG1
+		fork.getExtbus1().put(4);
+		fork.getMemory().store();
+		fork.getExtbus1().put(6);
+		fork.getMemory().store();
+
+		fork.controlUnitEexec();
+		arch.controlUnitEexec();
+		assertEquals(9, fork.getRPG1().getData());
+		assertEquals(8, arch.getRPG1().getData());
+	}
+
+	@Test
+	public void testBudget() {
+		ExecutionStatistics statistics = new ExecutionStatistics();
+
+		// a program that never ends: jmp 0
+		Architecture arch = new Architecture();
+		arch.setStatistics(statistics);
+		arch.getMemory().getDataList()[0] = 15;
+		arch.getMemory().getDataList()[1] = 0;
+		arch.setBudget(10000, 0);
+		arch.controlUnitEexec();
+		assertEquals(ExecutionStatus.INSTRUCTION_LIMIT, arch.getExecutionStatus());
+		assertEquals(12288, arch.getInstructionCount()); // the budget is checked once in 4096 instructions
+
+		arch.setBudget(0, 50);
+		arch.controlUnitEexec();
+		assertEquals(ExecutionStatus.TIME_LIMIT, arch.getExecutionStatus());
+
+		// a program that ends before the budget
+		arch.getMemory().getDataList()[0] = -1;
+		arch.setBudget(10000, 1000);
+		arch.controlUnitEexec();
+		assertEquals(ExecutionStatus.HALTED, arch.getExecutionStatus());
+		assertEquals(1, arch.getInstructionCount());
+
+		assertEquals(3, statistics.getPrograms());
+		assertEquals(1, statistics.getHalted());
+		assertEquals(1, statistics.getInstructionLimitHits());
+		assertEquals(1, statistics.getTimeLimitHits());
+	}
+
+	@Test
+	public void testReset() {
+		Architecture arch = new Architecture();
+		int original[] = arch.getMemory().getDataList().clone();
+		arch.loadProgram(new int[] { 12, 3, 0, 12, 5, 1, 0, 0, 1, -1 });
+		arch.controlUnitEexec();
+		assertEquals(8, arch.getRPG1().getData());
+
+		arch.reset();
+		assertArrayEquals(original, arch.getMemory().getDataList());
+		for (int i = 0; i < arch.getRegistersList().size(); i++) {
+			assertEquals(0, arch.getRegistersList().get(i).getData());
+		}
+		assertEquals(0, arch.getFlags().getBit(2));
+		assertEquals(0, arch.getInstructionCount());
+		assertEquals(ExecutionStatus.NOT_STARTED, arch.getExecutionStatus());
+
+		// the architecture can run a new program after the reset
+		arch.loadProgram(new int[] { 12, 4, 2, 12, 5, 1, 0, 2, 1, -1 });
+		arch.controlUnitEexec();
+		assertEquals(9, arch.getRPG1().getData());
+		assertEquals(0, arch.getRPG().getData());
+	}
+
+	@Test
+	public void testResetTemplate() {
+		// the template is taken by each instance, after its own fillReservedSpace
+		Architecture plain = new Architecture();
+		Architecture custom = new Architecture() {
+			@Override
+			protected void fillReservedSpace() {
+				getMemory().store(250, 42);
+			}
+		};
+		custom.getMemory().store(250, 0);
+		custom.reset();
+		assertEquals(42, custom.getMemory().load(250));
+		assertEquals(0, custom.getMemory().load(207));
+		plain.reset();
+		assertEquals(31, plain.getMemory().load(207));
+	}
+
+	@Test
+	public void testLazyFlags() {
+		// move 3 %RPG0; sub %RPG1 %RPG0 (flags of -3, not read by any jump)
+		int program[] = { 12, 3, 0, 3, 1, 0, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		ArchitectureSnapshot snapshot = arch.snapshot();
+		assertEquals(0, snapshot.getFlagBit(0));
+		assertEquals(1, snapshot.getFlagBit(1));
+		assertEquals(1, snapshot.getFlagBit(2));
+
+		// the flags of a fork are the computed ones
+		Architecture child = arch.fork();
+		assertEquals(1, child.getFlags().getBit(1));
+
+		// a bit changed after the command is not replaced by the computed ones
+		arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		arch.getFlags().setBit(1, 0);
+		assertEquals(0, arch.getFlags().getBit(1));
+		assertEquals(0, arch.snapshot().getFlagBit(1));
+
+		// the restored bits are not replaced either
+		arch.restore(snapshot);
+		assertEquals(1, arch.getFlags().getBit(1));
+	}
+
+
+	@Test
+	public void testCopyFill() {
+		Architecture arch = new Architecture();
+		for (int i = 0; i < 5; i++) {
+			arch.getMemory().store(100 + i, i + 1);
+		}
+		// move 100 %RPG0; move 102 %RPG1; move 5 %RPG2; copy %RPG0 %RPG1 %RPG2 (overlapped blocks)
+		// move 9 %RPG3; fill %RPG3 %RPG0 %RPG2 (100..104 <- 9, so the copy source is overwritten)
+		// move 250 %RPG0; fill %RPG3 %RPG0 %RPG2 (250..254 <- 9)
+		// move 252 %RPG1; copy %RPG0 %RPG1 %RPG2 (252..256 is out of the memory: ignored)
+		int program[] = { 12, 100, 0, 12, 102, 1, 12, 5, 2, 25, 0, 1, 2, 12, 9, 3, 26, 3, 0, 2,
+				12, 250, 0, 26, 3, 0, 2, 12, 252, 1, 25, 0, 1, 2, -1 };
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		int expected[] = { 9, 9, 9, 9, 9, 4, 5, 0 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], arch.getMemory().load(100 + i));
+		}
+		for (int i = 250; i < 255; i++) {
+			assertEquals(9, arch.getMemory().load(i));
+		}
+		assertEquals(0, arch.getMemory().load(255));
+		assertEquals(34, arch.getPC().getData()); // the last copy was run, and PC went to the next command
+		assertEquals(11, arch.getInstructionCount()); // the ten commands and the -1
+		assertEquals(CycleModel.cycles(25) + 5 * CycleModel.COPY_WORD, CycleModel.blockCycles(25, 5));
+	}
+
+
+	@Test
+	public void testIndexed() {
+		Architecture arch = new Architecture();
+		for (int i = 0; i < 4; i++) {
+			arch.getMemory().store(100 + i, 10 * (i + 1));
+		}
+		// move 1 %RPG0; move 99(%RPG0) %RPG1 (mem[100]); add 101(%RPG0) %RPG1 (mem[102])
+		// sub 102(%RPG0) %RPG1 (mem[103] - RPG1); move %RPG1 2(%RPG0) (mem[3] <- RPG1, a code position)
+		// move 102 %RPG2; moveIdxReg (%RPG2) %RPG3 (mem[102])
+		int program[] = { 12, 1, 0, 27, 99, 0, 1, 29, 101, 0, 1, 30, 102, 0, 1, 28, 1, 2, 0, 12, 102, 2,
+				27, 0, 2, 3, -1 };
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(0, arch.getRPG1().getData()); // 40 - (10 + 30)
+		assertEquals(1, arch.snapshot().getFlagBit(0)); // zero
+		assertEquals(0, arch.getMemory().load(3));
+		assertEquals(30, arch.getRPG3().getData());
+		assertEquals(26, arch.getPC().getData());
+	}
+
+
+	@Test
+	public void testImmediates() {
+		// move 10 %RPG0; add 5 %RPG0; sub 20 %RPG0 (20 - 15); cmp 5 %RPG0 (zero); cmp 2 %RPG0 (negative)
+		int program[] = { 12, 10, 0, 31, 5, 0, 32, 20, 0, 33, 5, 0, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(5, arch.getRPG().getData());
+		assertEquals(1, arch.snapshot().getFlagBit(0));
+		arch = new Architecture();
+		program[10] = 2;
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(5, arch.getRPG().getData()); // cmp doesn't change the register
+		assertEquals(0, arch.snapshot().getFlagBit(0));
+		assertEquals(1, arch.snapshot().getFlagBit(1));
+		assertEquals(12, arch.getPC().getData());
+	}
+
+
+	@Test
+	public void testLoop() {
+		// move 5 %RPG0; add %RPG0 %RPG1; loop %RPG0 3 (5 + 4 + 3 + 2 + 1)
+		int program[] = { 12, 5, 0, 0, 0, 1, 34, 0, 3, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(15, arch.getRPG1().getData());
+		assertEquals(0, arch.getRPG().getData());
+		assertEquals(1, arch.snapshot().getFlagBit(0));
+		assertEquals(9, arch.getPC().getData());
+		assertEquals(12, arch.getInstructionCount()); // the loop body runs 5 times
+	}
+
+
+	@Test
+	public void testShiftsAndLogic() {
+		// move 12 %RPG0; move 10 %RPG1; and %RPG0 %RPG1 (8); move 5 %RPG2; or %RPG2 %RPG1 (13);
+		// xor %RPG0 %RPG1 (1); shl %RPG0; shr %RPG2; move MIN_VALUE %RPG3; rol %RPG3
+		int program[] = { 12, 12, 0, 12, 10, 1, 38, 0, 1, 12, 5, 2, 39, 2, 1, 40, 0, 1, 35, 0, 36, 2,
+				12, Integer.MIN_VALUE, 3, 37, 3, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(24, arch.getRPG().getData());
+		assertEquals(1, arch.getRPG1().getData());
+		assertEquals(2, arch.getRPG2().getData());
+		assertEquals(1, arch.getRPG3().getData());
+		assertEquals(0, arch.snapshot().getFlagBit(1));
+		assertEquals(27, arch.getPC().getData());
+	}
+
+	@Test
+	public void testRor() {
+		// move 3 %RPG0; ror %RPG0 (MIN_VALUE + 1); ror %RPG0; move 0 %RPG1; ror %RPG1
+		int program[] = { 12, 3, 0, 47, 0, 47, 0, 12, 0, 1, 47, 1, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(Integer.MIN_VALUE + (1 << 30), arch.getRPG().getData());
+		assertEquals(0, arch.getRPG1().getData());
+		assertEquals(1, arch.snapshot().getFlagBit(0));
+		assertEquals(12, arch.getPC().getData());
+
+		program = new int[] { 12, 3, 0, 47, 0, -1 };
+		arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(Integer.MIN_VALUE + 1, arch.getRPG().getData());
+		assertEquals(1, arch.snapshot().getFlagBit(1)); // the lowest bit became the sign
+	}
+
+	@Test
+	public void testImulBits() {
+		// move k %RPG0; move 7 %RPG1; imul %RPG0 %RPG1
+		int multipliers[] = { 1, 2, 1000, 0, -3 };
+		for (int k : multipliers) {
+			int program[] = { 12, k, 0, 12, 7, 1, 8, 0, 1, -1 };
+			Architecture arch = new Architecture();
+			arch.loadProgram(program);
+			arch.controlUnitEexec();
+			assertEquals(7 * k, arch.getRPG1().getData());
+			assertEquals(k, arch.getRPG().getData());
+			assertEquals(1, arch.snapshot().getFlagBit(0));
+			assertEquals(9, arch.getPC().getData());
+			if (k == 1000) // the loop runs once for each bit of 999, not 999 times
+				assertTrue(arch.getInstructionCount() < 80);
+		}
+	}
+
+	@Test
+	public void testImulIR() {
+		// IR is not restored by the imul routine: as after any command, it holds the word fetched next
+		// move 5 %RPG0; move 7 %RPG1; imul %RPG0 %RPG1
+		Architecture arch = new Architecture();
+		arch.loadProgram(new int[] { 12, 5, 0, 12, 7, 1, 8, 0, 1, -1 });
+		arch.controlUnitEexec();
+		assertEquals(35, arch.getRPG1().getData());
+		assertEquals(-1, arch.getRegistersList().get(5).getData());
+		assertEquals(8, arch.getMemory().load(205)); // the saved IR, never read back
+		// move 5 %RPG0; move 35 %RPG1
+		Architecture plain = new Architecture();
+		plain.loadProgram(new int[] { 12, 5, 0, 12, 35, 1, -1 });
+		plain.controlUnitEexec();
+		assertEquals(plain.getRegistersList().get(5).getData(), arch.getRegistersList().get(5).getData());
+	}
+
+
+	@Test
+	public void testDivision() {
+		// move 23 %RPG0; move 5 %RPG1; move %RPG1 %RPG2; idiv %RPG0 %RPG1; imod %RPG0 %RPG2
+		int program[] = { 12, 23, 0, 12, 5, 1, 11, 1, 2, 43, 0, 1, 46, 0, 2, -1 };
+		Architecture arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(4, arch.getRPG1().getData());
+		assertEquals(3, arch.getRPG2().getData());
+		assertEquals(0, arch.snapshot().getFlagBit(3));
+
+		// move -7 %RPG0; move %RPG0 100; move 2 %RPG1; imod 100 %RPG1; move 0 %RPG3;
+		// idiv %RPG0 %RPG3 (zero divisor); idiv %RPG0 101 (zero divisor); move %RPG0 102
+		program = new int[] { 12, -7, 0, 10, 0, 100, 12, 2, 1, 44, 100, 1, 12, 0, 3, 43, 0, 3, 42, 0, 101, 10, 0, 102, -1 };
+		arch = new Architecture();
+		arch.loadProgram(program);
+		arch.controlUnitEexec();
+		assertEquals(-1, arch.getRPG1().getData());
+		assertEquals(0, arch.getRPG3().getData());
+		assertEquals(0, arch.getMemory().load(101));
+		assertEquals(-7, arch.getMemory().load(102)); // the store of the zero divisor was finished
+		assertEquals(1, arch.snapshot().getFlagBit(3));
+		assertEquals(1, arch.snapshot().getFlagBit(1)); // the flags of the imod are kept
+		assertEquals(24, arch.getPC().getData());
+	}
+
 }
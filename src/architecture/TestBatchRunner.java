@@ -0,0 +1,55 @@
+package architecture;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestBatchRunner {
+
+	@Test
+	public void testPool() {
+		ArchitecturePool pool = new ArchitecturePool(1);
+		Architecture arch = pool.acquire();
+		arch.getExtbus1().put(10);
+		arch.getRPG().store();
+		pool.release(arch);
+		assertEquals(1, pool.getIdleCount());
+
+		// the same architecture is reused, already reset
+		Architecture again = pool.acquire();
+		assertSame(arch, again);
+		assertEquals(0, again.getRPG().getData());
+		assertEquals(0, pool.getIdleCount());
+
+		// the pool never keeps more than its maximum
+		Architecture other = pool.acquire();
+		pool.release(again);
+		pool.release(other);
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	public void testRun() {
+		List<int[]> programs = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			// move i %RPG0, move 5 %RPG1, add %RPG0 %RPG1
+			programs.add(new int[] { 12, i, 0, 12, 5, 1, 0, 0, 1, -1 });
+		}
+		programs.add(new int[] { 15, 0 }); // jmp 0 never ends
+
+		BatchRunner runner = new BatchRunner(4);
+		runner.setBudget(5000, 0);
+		List<BatchRunner.Result> results = runner.run(programs);
+		for (int i = 0; i < 50; i++) {
+			assertEquals(ExecutionStatus.HALTED, results.get(i).getStatus());
+			assertEquals(i + 5, results.get(i).getRegisterData(1));
+		}
+		assertEquals(ExecutionStatus.INSTRUCTION_LIMIT, results.get(50).getStatus());
+		assertEquals(51, runner.getStatistics().getPrograms());
+		assertEquals(1, runner.getStatistics().getInstructionLimitHits());
+	}
+
+}
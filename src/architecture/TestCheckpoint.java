@@ -0,0 +1,80 @@
+package architecture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TestCheckpoint {
+
+	// move -5 %RPG0
+	// loop:
+	// add %RPG0 %RPG1
+	// inc %RPG0
+	// jnz loop
+	private static final int PROGRAM[] = { 12, -5, 0, 0, 0, 1, 13, 0, 18, 3, -1 };
+
+	private Architecture load() {
+		Architecture arch = new Architecture();
+		for (int i = 0; i < PROGRAM.length; i++) {
+			arch.getMemory().getDataList()[i] = PROGRAM[i];
+		}
+		return arch;
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+		Architecture arch = load();
+		arch.getExtbus1().put(33);
+		arch.getRPG2().store();
+		arch.getFlags().setBit(1, 1);
+		File file = File.createTempFile("checkpoint", ".chk");
+		file.deleteOnExit();
+
+		Checkpoint.write(arch.snapshot(), file);
+		ArchitectureSnapshot snapshot = Checkpoint.read(file);
+		assertEquals(256, snapshot.getMemorySize());
+		assertEquals(-5, snapshot.getMemoryData(1));
+		assertEquals(33, snapshot.getRegisterData(2));
+		assertEquals(1, snapshot.getFlagBit(1));
+		assertEquals(31, snapshot.getMemoryData(207)); // the reserved area is in the checkpoint
+
+		// the same state always produces the same file
+		byte first[] = Files.readAllBytes(file.toPath());
+		Checkpoint.write(snapshot, file);
+		assertArrayEquals(first, Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		Architecture uninterrupted = load();
+		uninterrupted.controlUnitEexec();
+		assertEquals(-15, uninterrupted.getRPG1().getData());
+
+		File file = File.createTempFile("checkpoint", ".chk");
+		file.deleteOnExit();
+		Architecture arch = load();
+		arch.setCheckpointing(file.getPath(), 4, 0);
+		arch.controlUnitEexec();
+		ArchitectureSnapshot saved = Checkpoint.read(file);
+		assertTrue(saved.getInstructionCount() > 0);
+		assertTrue(saved.getInstructionCount() < uninterrupted.getInstructionCount());
+
+		// a brand new architecture continues from the checkpoint
+		Architecture resumed = new Architecture();
+		resumed.resume(file.getPath());
+		for (int i = 0; i < 6; i++) {
+			assertEquals(uninterrupted.getRegistersList().get(i).getData(),
+					resumed.getRegistersList().get(i).getData());
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals(uninterrupted.getFlags().getBit(i), resumed.getFlags().getBit(i));
+		}
+		assertEquals(uninterrupted.getInstructionCount(), resumed.getInstructionCount());
+		assertArrayEquals(uninterrupted.getMemory().getDataList(), resumed.getMemory().getDataList());
+	}
+
+}
@@ -0,0 +1,173 @@
+package architecture;
+
+import static architecture.EngineFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import assembler.WorkloadGenerator;
+
+public class TestFastEngine {
+
+	@Test
+	public void testWorkloads() {
+		for (long seed = 1; seed <= 3; seed++) {
+			for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+				int executable[] = assemble(new WorkloadGenerator(seed).generate(shape, 4));
+				assertSameState(shape + " " + seed, run(executable, JAVA), run(executable, FAST), false);
+			}
+		}
+	}
+
+	@Test
+	public void testFallback() {
+		//move 5 %PC runs the Java microprogram (PC is incremented after the move); move 9 %RPG1 is skipped; move 3 %RPG2
+		int program[] = { 12, 5, 4, 12, 9, 1, 12, 3, 2, -1 };
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("fallback", java, fast, false);
+		assertEquals(0, fast.getRPG1().getData());
+		assertEquals(3, fast.getRPG2().getData());
+	}
+
+	@Test
+	public void testFork() {
+		//move 5 %RPG0; inc %RPG0
+		int program[] = { 12, 5, 0, 13, 0, -1 };
+		Architecture arch = new Architecture();
+		arch.setFastEngine(true);
+		arch.loadProgram(program);
+		Architecture child = arch.fork();
+		child.controlUnitEexec();
+		assertEquals(6, child.getRPG().getData());
+		assertEquals(0, arch.getRPG().getData());
+		assertEquals(0, child.getMicroEngine().getMicroOpsCount());
+	}
+
+	@Test
+	public void testOpcodeBound() {
+		Architecture arch = new Architecture();
+		arch.setFastEngine(true);
+		int commands = arch.getCommandsList().size();
+		assertFalse(arch.getMicroEngine().execute(-1));
+		assertFalse(arch.getMicroEngine().execute(commands));
+		//the last opcode is accepted
+		int program[] = { commands - 1, 0, 0, 0, -1 };
+		arch.loadProgram(program);
+		assertTrue(arch.getMicroEngine().execute(commands - 1));
+	}
+
+	@Test
+	public void testBlockCommands() {
+		// move 100 %RPG0; move 102 %RPG1; move 5 %RPG2; copy %RPG0 %RPG1 %RPG2; fill %RPG2 %RPG0 %RPG2
+		// move 200 %RPG3; fill %RPG2 %RPG3 %RPG1 (200..301 is out of the memory: ignored)
+		int program[] = { 12, 100, 0, 12, 102, 1, 12, 5, 2, 25, 0, 1, 2, 26, 2, 0, 2, 12, 200, 3, 26, 2, 3, 1, -1 };
+		assertArrayEquals(program, assemble("move 100 %RPG0", "move 102 %RPG1", "move 5 %RPG2", "copy %RPG0 %RPG1 %RPG2",
+				"fill %RPG2 %RPG0 %RPG2", "move 200 %RPG3", "fill %RPG2 %RPG3 %RPG1"));
+		Consumer<Architecture> data = arch -> {
+			for (int i = 0; i < 10; i++) {
+				arch.getMemory().store(100 + i, i);
+			}
+		};
+		Architecture java = run(program, data);
+		Architecture fast = run(program, FAST.andThen(data));
+		assertSameState("blocks", java, fast, false);
+		assertEquals(5, fast.getMemory().load(104));
+		assertEquals(4, fast.getMemory().load(106)); // copied from 104 before the fill
+	}
+
+
+	@Test
+	public void testIndexed() {
+		// the sum of a 5 words array, in 100..104, by a loop with an index
+		int program[] = assemble("move -5 %RPG0", "loop:", "add 105(%RPG0) %RPG1", "move %RPG1 110(%RPG0)",
+				"inc %RPG0", "jnz loop", "move 4 %RPG2", "move %RPG2 -3(%RPG2)", "move -3(%RPG2) %RPG3");
+		assertEquals(29, program[3]); // addIdxReg
+		assertEquals(28, program[7]); // moveRegIdx
+		Consumer<Architecture> array = arch -> {
+			for (int i = 0; i < 5; i++) {
+				arch.getMemory().store(100 + i, i + 1);
+			}
+		};
+		Architecture java = run(program, array);
+		Architecture fast = run(program, FAST.andThen(array));
+		assertSameState("indexed", java, fast, false);
+		assertEquals(15, fast.getRPG1().getData());
+		assertEquals(15, fast.getMemory().load(109)); // the partial sums
+		assertEquals(4, fast.getRPG3().getData()); // mem[1], written by the move to -3(%RPG2)
+	}
+
+
+	@Test
+	public void testLoop() {
+		int program[] = assemble("move 4 %RPG0", "loop:", "add %RPG0 %RPG1", "loop %RPG0 loop",
+				"move 1 %RPG2", "again:", "inc %RPG3", "loop %RPG2 again");
+		assertEquals(34, program[6]); // loop
+		assertEquals(3, program[8]); // the label
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("loop", java, fast, false);
+		assertEquals(10, fast.getRPG1().getData());
+		assertEquals(1, fast.getRPG3().getData()); // a counter of 1 doesn't jump
+	}
+
+
+	@Test
+	public void testShiftsAndLogic() {
+		int program[] = assemble("move 12 %RPG0", "move -10 %RPG1", "and %RPG0 %RPG1", "or %RPG1 %RPG2",
+				"xor %RPG0 %RPG2", "shl %RPG0", "shr %RPG1", "rol %RPG2", "ror %RPG2", "ror %RPG2", "move 300 %RPG0", "move 9 %RPG1",
+				"imul %RPG0 %RPG1");
+		assertEquals(38, program[6]); // and
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("shifts", java, fast, false);
+		assertEquals(2700, fast.getRPG1().getData());
+	}
+
+
+	@Test
+	public void testRegMemFlags() {
+		// the flags of add %A mem and sub %A mem are tested by the jumps after them
+		int program[] = assemble("a", "b", "move -4 %RPG0", "move 4 %RPG1", "move %RPG1 a", "move 1 %RPG1",
+				"move %RPG1 b", "add %RPG0 a", "jz zero", "move 7 %RPG2", "zero:", "sub %RPG0 b", "jn negative",
+				"move 9 %RPG3", "negative:");
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("add and sub into memory", java, fast, false);
+		assertEquals(0, fast.getRPG2().getData()); // a = 0: jz taken
+		assertEquals(0, fast.getRPG3().getData()); // b = -4 - 1: jn taken
+	}
+
+	@Test
+	public void testImulFormats() {
+		int program[] = assemble("a", "move 5 %RPG0", "move 3 %RPG1", "move 4 %RPG2", "move 10 %RPG3",
+				"move %RPG3 a", "imul a %RPG2", "imul %RPG3 a", "inc %RPG0");
+		assertEquals(6, program[15]); // imulMemReg
+		assertEquals(7, program[18]); // imulRegMem
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("imul", java, fast, false);
+		assertEquals(22, fast.getRPG2().getData()); // 10 + (5 - 1) * 3
+		assertEquals(22, fast.getRPG3().getData());
+		assertEquals(6, fast.getRPG().getData()); // the inc after the routine
+		assertEquals(3, fast.getRPG1().getData());
+	}
+
+	@Test
+	public void testDivision() {
+		int program[] = assemble("a", "zero", "move 100 %RPG0", "move %RPG0 a", "move 7 %RPG1",
+				"move %RPG1 %RPG2", "idiv a %RPG1", "imod %RPG0 %RPG2", "idiv %RPG2 a", "imod %RPG0 zero",
+				"move 0 %RPG3", "idiv %RPG0 %RPG3");
+		assertEquals(41, program[12]); // idivMemReg
+		Architecture java = run(program, JAVA);
+		Architecture fast = run(program, FAST);
+		assertSameState("division", java, fast, false);
+		assertEquals(14, fast.getRPG1().getData());
+		assertEquals(2, fast.getRPG2().getData());
+		assertEquals(0, fast.getMemory().load(255)); // 2 / 100
+		assertEquals(1, fast.snapshot().getFlagBit(3));
+	}
+
+}
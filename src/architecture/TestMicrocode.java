@@ -0,0 +1,231 @@
+package architecture;
+
+import static architecture.EngineFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import assembler.WorkloadGenerator;
+
+public class TestMicrocode {
+
+	@Test
+	public void testStandardCommands() {
+		Architecture arch = new Architecture();
+		MicrocodeRom rom = MicrocodeRom.standard(arch);
+		assertEquals(arch.getCommandsList(), rom.getCommands());
+		assertEquals(11, rom.microOpsCount(rom.getOpcode("jmp"))); // incrementarPC has 9 micro-operations
+		assertTrue(rom.toText(rom.getOpcode("jz")).contains("ifFlag 0 L"));
+	}
+
+	@Test
+	public void testEngines() {
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			int executable[] = assemble(new WorkloadGenerator(7).generate(shape, 4));
+			Architecture java = run(executable, JAVA);
+			Architecture sequencer = run(executable, microcode(rom, false));
+			Architecture compiled = run(executable, microcode(rom, true));
+			assertSameState("sequencer " + shape, java, sequencer, true);
+			assertSameState("compiled " + shape, java, compiled, true);
+			assertTrue(sequencer.getMicroEngine().getMicroOpsCount() > 0);
+			assertEquals(shape.toString(), sequencer.getMicroEngine().getMicroOpsCount(),
+					compiled.getMicroEngine().getMicroOpsCount());
+		}
+	}
+
+	@Test
+	public void testNewCommand() {
+		Architecture arch = new Architecture();
+		ArrayList<String> text = new ArrayList<>(Arrays.asList(StandardMicrocode.LINES));
+		text.addAll(Arrays.asList(
+				"command double // double %RegA: RegA <- RegA + RegA",
+				"	incrementarPC",
+				"	memory.read",
+				"	demux.put",
+				"	demuxRegister.internalRead",
+				"	ula.store 0",
+				"	ula.store 1",
+				"	ula.add",
+				"	ula.read 1",
+				"	setStatusFlags",
+				"	demuxRegister.internalStore",
+				"	incrementarPC",
+				"end"));
+		MicrocodeRom rom = MicrocodeRom.parse(text, arch);
+		int twice = rom.getOpcode("double");
+		assertEquals(arch.getCommandsList().size(), twice); // the first opcode after the standard commands
+		// move 21 %RPG2; double %RPG2
+		int program[] = { 12, 21, 2, twice, 2, -1 };
+		for (boolean compiled : new boolean[] { false, true }) {
+			Architecture result = run(program, microcode(rom, compiled));
+			assertEquals(42, result.getRPG2().getData());
+			assertEquals(5, result.getPC().getData());
+		}
+	}
+
+	@Test
+	public void testLoopAndHalt() {
+		Architecture arch = new Architecture();
+		ArrayList<String> text = new ArrayList<>(Arrays.asList(StandardMicrocode.LINES));
+		text.addAll(Arrays.asList(
+				"command clear // clear %RegA: decrements RegA until it is zero (a backward branch)",
+				"	incrementarPC",
+				"	memory.read",
+				"	demux.put",
+				"loop:",
+				"	demuxRegister.internalRead",
+				"	setStatusFlags",
+				"	ifFlag 0 done",
+				"	ula.store 0",
+				"	extbus1.put 1",
+				"	IR.store",
+				"	IR.internalRead",
+				"	ula.internalStore 1",
+				"	ula.sub",
+				"	ula.read 1",
+				"	demuxRegister.internalStore",
+				"	goto loop",
+				"done:",
+				"	incrementarPC",
+				"end",
+				"command stop",
+				"	halt",
+				"end"));
+		MicrocodeRom rom = MicrocodeRom.parse(text, arch);
+		// move 5 %RPG3; clear %RPG3; stop; move 1 %RPG0
+		int program[] = { 12, 5, 3, rom.getOpcode("clear"), 3, rom.getOpcode("stop"), 12, 1, 0, -1 };
+		long counts[] = new long[2];
+		for (int c = 0; c < 2; c++) {
+			Architecture result = run(program, microcode(rom, c == 1));
+			assertEquals(0, result.getRPG3().getData());
+			assertEquals(0, result.getRPG().getData()); // the last move is not reached
+			assertEquals(3, result.getInstructionCount());
+			counts[c] = result.getMicroEngine().getMicroOpsCount();
+		}
+		assertEquals(counts[0], counts[1]);
+	}
+
+	@Test
+	public void testParseErrors() {
+		Architecture arch = new Architecture();
+		String errors[][] = {
+				{ "command a", "	PC.jump", "end" },
+				{ "command a", "	goto nowhere", "end" },
+				{ "command a", "	ula.store 2", "end" },
+				{ "command a", "	memory.read" },
+				{ "macro a", "	a", "end", "command b", "	a", "end" },
+				{ "PC.read" } };
+		for (String lines[] : errors) {
+			try {
+				MicrocodeRom.parse(Arrays.asList(lines), arch);
+				fail(Arrays.toString(lines));
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().startsWith("Microcode line "));
+			}
+		}
+	}
+
+
+	@Test
+	public void testBlockCommands() {
+		// move 3 %RPG0; move 60 %RPG1; move 20 %RPG2; fill %RPG0 %RPG1 %RPG2
+		// move 65 %RPG0; move 70 %RPG3; copy %RPG0 %RPG3 %RPG2
+		int program[] = { 12, 3, 0, 12, 60, 1, 12, 20, 2, 26, 0, 1, 2, 12, 65, 0, 12, 70, 3, 25, 0, 3, 2, -1 };
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		Architecture java = run(program, JAVA);
+		assertEquals(3, java.getMemory().load(84));
+		assertEquals(0, java.getMemory().load(85)); // copied from 80
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().memory(), run(program, microcode(optimized, true)).snapshot().memory());
+	}
+
+
+	@Test
+	public void testIndexedCommands() {
+		// move 100 %RPG0; move 7 %RPG1; move %RPG1 3(%RPG0); move 103(%RPG2) %RPG3
+		// add 3(%RPG0) %RPG3; sub (%RPG0) %RPG3 (mem[100] - RPG3)
+		int program[] = { 12, 100, 0, 12, 7, 1, 28, 1, 3, 0, 27, 103, 2, 3, 29, 3, 0, 3, 30, 0, 0, 3, -1 };
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		Architecture java = run(program, JAVA);
+		assertEquals(-14, java.getRPG3().getData());
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().registers(), run(program, microcode(optimized, true)).snapshot().registers());
+	}
+
+
+	@Test
+	public void testLoopCommand() {
+		// move 5 %RPG0; add %RPG0 %RPG1; loop %RPG0 3
+		int program[] = { 12, 5, 0, 0, 0, 1, 34, 0, 3, -1 };
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		Architecture java = run(program, JAVA);
+		assertEquals(15, java.getRPG1().getData());
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().registers(), run(program, microcode(optimized, true)).snapshot().registers());
+	}
+
+
+	@Test
+	public void testShiftCommands() {
+		// move 12 %RPG0; move 10 %RPG1; and %RPG0 %RPG1; or %RPG0 %RPG2; xor %RPG1 %RPG2; shl %RPG0; shr %RPG1;
+		// rol %RPG2; ror %RPG2; ror %RPG2; move 5 %RPG0; imul %RPG0 %RPG1
+		int program[] = { 12, 12, 0, 12, 10, 1, 38, 0, 1, 39, 0, 2, 40, 1, 2, 35, 0, 36, 1, 37, 2, 47, 2, 47, 2, 12, 5, 0,
+				8, 0, 1, -1 };
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		Architecture java = run(program, JAVA);
+		assertEquals(20, java.getRPG1().getData());
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().registers(), run(program, microcode(optimized, true)).snapshot().registers());
+	}
+
+
+	@Test
+	public void testImulFormats() {
+		// move 5 %RPG0; move 3 %RPG1; move 4 %RPG2; move 10 %RPG3; move %RPG3 100; imul 100 %RPG2;
+		// imul %RPG3 100; inc %RPG0 (run after the registers are restored)
+		int program[] = { 12, 5, 0, 12, 3, 1, 12, 4, 2, 12, 10, 3, 10, 3, 100, 6, 100, 2, 7, 3, 100, 13, 0, -1 };
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		Architecture java = run(program, JAVA);
+		assertEquals(22, java.getRPG2().getData()); // 10 + (5 - 1) * 3
+		assertEquals(22, java.getRPG3().getData());
+		assertEquals(6, java.getRPG().getData());
+		assertEquals(3, java.getRPG1().getData());
+		assertEquals(10, java.getMemory().load(100));
+		assertEquals(23, java.getPC().getData());
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().registers(), run(program, microcode(optimized, true)).snapshot().registers());
+		assertArrayEquals(java.snapshot().memory(), run(program, microcode(optimized, true)).snapshot().memory());
+	}
+
+	@Test
+	public void testDivisionCommands() {
+		MicrocodeRom rom = MicrocodeRom.standard(new Architecture());
+		MicrocodeRom optimized = new MicrocodeOptimizer(new Architecture()).optimize(rom);
+		// move 23 %RPG0; move 5 %RPG1; move %RPG1 %RPG2; idiv %RPG0 %RPG1; imod %RPG0 %RPG2; imod %RPG0 100
+		// (zero divisor); move -7 %RPG0; move %RPG0 101; idiv 101 %RPG1; idiv %RPG2 101
+		int program[] = { 12, 23, 0, 12, 5, 1, 11, 1, 2, 43, 0, 1, 46, 0, 2, 45, 0, 100, 12, -7, 0, 10, 0, 101,
+				41, 101, 1, 42, 2, 101, -1 };
+		Architecture java = run(program, JAVA);
+		assertEquals(-1, java.getRPG1().getData());
+		assertEquals(0, java.getMemory().load(101));
+		assertSameState("sequencer", java, run(program, microcode(rom, false)), true);
+		assertSameState("compiled", java, run(program, microcode(rom, true)), true);
+		assertArrayEquals(java.snapshot().flagBits(), run(program, microcode(optimized, true)).snapshot().flagBits());
+		assertArrayEquals(java.snapshot().memory(), run(program, microcode(optimized, true)).snapshot().memory());
+	}
+
+}
@@ -0,0 +1,120 @@
+package architecture;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import assembler.Assembler;
+import assembler.WorkloadGenerator;
+
+public class TestMicrocodeOptimizer {
+
+	private ArrayList<int[]> programs(long seed) {
+		ArrayList<int[]> programs = new ArrayList<>();
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			Assembler ass = new Assembler();
+			ass.setLines(new WorkloadGenerator(seed).generate(shape, 4));
+			ass.parse();
+			assertTrue(ass.buildExecutable());
+			programs.add(ass.getExecutable());
+		}
+		return programs;
+	}
+
+	private MicroInstruction[] parse(Architecture arch, String... lines) {
+		MicrocodeRom rom = MicrocodeRom.parse(Arrays.asList(lines), arch);
+		return rom.getMicroprogram(0);
+	}
+
+	@Test
+	public void testStandardMicrocode() {
+		Architecture arch = new Architecture();
+		MicrocodeRom rom = MicrocodeRom.standard(arch);
+		MicrocodeOptimizer optimizer = new MicrocodeOptimizer(arch);
+		MicrocodeRom optimized = optimizer.optimize(rom);
+		MicrocodeOptimizer.Report report = optimizer.getReport();
+		assertTrue(report.getTotalRemoved() > 0);
+		for (int opcode = 0; opcode < rom.size(); opcode++) {
+			assertEquals(rom.microOpsCount(opcode), report.getMicroOpsBefore(opcode));
+			assertEquals(optimized.microOpsCount(opcode), report.getMicroOpsAfter(opcode));
+		}
+		// the second incrementarPC of moveImmReg doesn't copy PC to the ula again
+		int moveImmReg = rom.getOpcode("moveImmReg");
+		assertEquals(5, report.getRemoved(moveImmReg));
+		for (long seed = 1; seed <= 5; seed++) {
+			assertTrue(MicrocodeOptimizer.verify(rom, optimized, programs(seed)));
+		}
+	}
+
+	@Test
+	public void testFewerMicroOpsExecuted() {
+		Architecture arch = new Architecture();
+		MicrocodeRom optimized = new MicrocodeOptimizer(arch).optimize(MicrocodeRom.standard(arch));
+		for (int program[] : programs(9)) {
+			Architecture original = new Architecture();
+			original.setMicrocode(MicrocodeRom.standard(original), true);
+			original.loadProgram(program);
+			original.controlUnitEexec();
+			Architecture faster = new Architecture();
+			faster.setMicrocode(optimized, true);
+			faster.loadProgram(program);
+			faster.controlUnitEexec();
+			assertTrue(faster.getMicroEngine().getMicroOpsCount() < original.getMicroEngine().getMicroOpsCount());
+			assertEquals(original.getRPG().getData(), faster.getRPG().getData());
+			assertEquals(original.getPC().getData(), faster.getPC().getData());
+		}
+	}
+
+	@Test
+	public void testDeadWrites() {
+		Architecture arch = new Architecture();
+		MicrocodeOptimizer optimizer = new MicrocodeOptimizer(arch);
+		optimizer.optimize(MicrocodeRom.standard(arch)); // the locations needed after the commands
+		MicroInstruction optimized[] = optimizer.optimize(parse(arch,
+				"command a",
+				"	extbus1.put 3 // dead: written again before being read",
+				"	extbus1.put 4",
+				"	RPG1.store",
+				"	RPG1.read // redundant: extbus1 already has RPG1",
+				"	RPG2.store",
+				"	ula.store 0 // dead: the ula registers are not needed after the commands",
+				"end"));
+		assertArrayEquals(parse(arch,
+				"command a",
+				"	extbus1.put 4",
+				"	RPG1.store",
+				"	RPG2.store",
+				"end"), optimized);
+	}
+
+	@Test
+	public void testBranches() {
+		Architecture arch = new Architecture();
+		MicrocodeOptimizer optimizer = new MicrocodeOptimizer(arch);
+		optimizer.optimize(MicrocodeRom.standard(arch));
+		MicroInstruction optimized[] = optimizer.optimize(parse(arch,
+				"command a",
+				"	RPG0.internalRead",
+				"	goto next // a jump to the next micro-instruction",
+				"next:",
+				"	ifFlag 0 zero",
+				"	goto end",
+				"zero:",
+				"	RPG1.internalStore // intbus1 is read in a single branch, so RPG0.internalRead is needed",
+				"end:",
+				"end"));
+		assertArrayEquals(parse(arch,
+				"command a",
+				"	RPG0.internalRead",
+				"	ifFlag 0 zero",
+				"	goto end",
+				"zero:",
+				"	RPG1.internalStore",
+				"end:",
+				"end"), optimized);
+	}
+
+}
@@ -9,8 +9,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
-
-import org.hamcrest.core.IsNull;
+import java.util.Arrays;
+import java.util.List;
 
 import components.Register;
 
@@ -19,31 +19,97 @@ import architecture.Architecture;
 public class Assembler {
 
 	private ArrayList<String> lines;
-	private ArrayList<String> objProgram;
-	private ArrayList<String> execProgram;
+	private ObjectProgram objectProgram; // the object program, made by parse
+	private ObjectProgram execObjectProgram; // the executable program, made by buildExecutable
+	private ArrayList<String> objProgram; // text form of the object program, made only when asked for
+	private ArrayList<String> execProgram; // text form of the executable program, made only when asked for
 	private Architecture arch;
 	private ArrayList<String> commands;
 	private ArrayList<String> labels;
 	private ArrayList<Integer> labelsAdresses;
 	private ArrayList<String> variables;
+	private ArrayList<String> registerNames;
+	private SymbolTable symbols;
+	private Lexer lexer;
+	private AssemblerCache cache;
+	private boolean parsed;
+	private boolean optimize; // makeExecutable runs the strength reduction and the peephole optimizer
+	private PeepholeOptimizer.Report optimizationReport;
+	private StrengthReducer.Report reductionReport;
+	private boolean eliminateDeadCode; // makeExecutable removes the unreachable code and the unused variables
+	private DeadCodeEliminator.Report deadCodeReport;
+
+	// these commands have multiple formats, so they aren't in the architecture commands list
+	private static final List<String> MULTIPLE_FORMAT_COMMANDS = Arrays.asList("move", "add", "sub", "imul", "inc", "cmp", "idiv",
+			"imod");
+
+	// the tokens of the line being processed (a command and up to 3 parameters)
+	private static final int MAX_TOKENS = 4;
+	private int tokenKinds[] = new int[MAX_TOKENS];
+	private int tokenValues[] = new int[MAX_TOKENS];
+	private boolean tokenMemory[] = new boolean[MAX_TOKENS];
+	private int tokenOffsets[] = new int[MAX_TOKENS]; // the offsets of the indexed tokens
+	private boolean tokenOffsetSymbols[] = new boolean[MAX_TOKENS];
+	private int tokenStarts[] = new int[MAX_TOKENS];
+	private int tokenLengths[] = new int[MAX_TOKENS];
+	private int tokensCount;
+	private int declaredSymbol; // the label or variable declared by the last line parsed
+
+	// kinds of source lines
+	static final int EMPTY_LINE = 0;
+	static final int COMMAND_LINE = 1;
+	static final int LABEL_LINE = 2;
+	static final int VARIABLE_LINE = 3;
 
 	public Assembler() {
 		lines = new ArrayList<>();
 		labels = new ArrayList<>();
 		labelsAdresses = new ArrayList<>();
 		variables = new ArrayList<>();
-		objProgram = new ArrayList<>();
-		execProgram = new ArrayList<>();
+		objectProgram = new ObjectProgram();
+		execObjectProgram = new ObjectProgram();
 		arch = new Architecture();
 		commands = arch.getCommandsList();
+		ArrayList<String> mnemonics = new ArrayList<>(commands);
+		mnemonics.addAll(MULTIPLE_FORMAT_COMMANDS);
+		registerNames = new ArrayList<>();
+		for (Register r : arch.getRegistersList()) {
+			registerNames.add(r.getRegisterName());
+		}
+		symbols = new SymbolTable();
+		lexer = new Lexer(mnemonics, registerNames, symbols);
 	}
 
 	// getters
 
+	/**
+	 * This method returns the object program in its text form
+	 * (opcodes and numbers, %registers and &variables or &labels).
+	 * The list can be changed: the changes are taken back into the object program
+	 * before it is used again
+	 * 
+	 * @return
+	 */
 	public ArrayList<String> getObjProgram() {
+		if (objProgram == null)
+			objProgram = toText(objectProgram);
 		return objProgram;
 	}
 
+	/**
+	 * This method returns the object program in its typed form
+	 * 
+	 * @return
+	 */
+	public ObjectProgram getObjectProgram() {
+		syncObjProgram();
+		return objectProgram;
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
 	/**
 	 * These methods getters and set below are used only for TDD purposes
 	 * 
@@ -63,10 +129,12 @@ public class Assembler {
 	}
 
 	protected ArrayList<String> getExecProgram() {
+		if (execProgram == null)
+			execProgram = toText(execObjectProgram);
 		return execProgram;
 	}
 
-	protected void setLines(ArrayList<String> lines) {
+	public void setLines(ArrayList<String> lines) {
 		this.lines = lines;
 	}
 
@@ -83,7 +151,7 @@ public class Assembler {
 	 * variables names must contains only alphabetical and numerical chars
 	 * variables names never uses any command name
 	 * names ended with ":" identifies labels i.e. address in the memory
-	 * Commands are only that ones known in the architecture. No comments allowed
+	 * Commands are only that ones known in the architecture. Comments start with // or ;
 	 * 
 	 * The assembly file must have the extention .dsf
 	 * The executable file must have the extention .dxf
@@ -112,154 +180,171 @@ public class Assembler {
 	 * @param lines
 	 */
 	public void parse() {
+		syncObjProgram();
+		parsed = true;
 		for (String s : lines) {
-			String tokens[] = s.split(" ");
-			if (findCommandNumber(tokens) >= 0) { // the line is a command
-				proccessCommand(tokens);
-			} else { // the line is not a command: so, it can be a variable or a label
-				if (tokens[0].endsWith(":")) { // if it ends with : it is a label
-					String label = tokens[0].substring(0, tokens[0].length() - 1); // removing the last character
-					labels.add(label);
-					labelsAdresses.add(objProgram.size());
-				} else // otherwise, it must be a variable
-					variables.add(tokens[0]);
+			int kind = parseLine(s, objectProgram);
+			if (kind == LABEL_LINE) {
+				labels.add(symbols.getName(declaredSymbol));
+				labelsAdresses.add(objectProgram.size());
+			}
+			if (kind == VARIABLE_LINE)
+				variables.add(symbols.getName(declaredSymbol));
+		}
+
+	}
+
+	/**
+	 * This method parses a single line, putting its machine code (if it is a command)
+	 * into the program. For labels and variables, the symbol declared by the line is
+	 * in declaredSymbol
+	 * 
+	 * @param line
+	 * @param program
+	 * @return the line kind (EMPTY_LINE, COMMAND_LINE, LABEL_LINE or VARIABLE_LINE)
+	 */
+	int parseLine(String line, ObjectProgram program) {
+		lexer.reset(line);
+		scanTokens();
+		if (tokensCount == 0) // empty line or only a comment
+			return EMPTY_LINE;
+		if (findCommandNumber() >= 0) { // the line is a command
+			proccessCommand(program);
+			return COMMAND_LINE;
+		}
+		// the line is not a command: so, it can be a variable or a label
+		declaredSymbol = internToken(0);
+		if (tokenKinds[0] == Lexer.LABEL) // if it ends with : it is a label
+			return LABEL_LINE;
+		return VARIABLE_LINE; // otherwise, it must be a variable
+	}
+
+	int getDeclaredSymbol() {
+		return declaredSymbol;
+	}
+
+	int getMemorySize() {
+		return arch.getMemorySize();
+	}
+
+	/**
+	 * This method reads the tokens of the current line of the lexer.
+	 * Tokens after the third parameter are ignored
+	 */
+	private void scanTokens() {
+		tokensCount = 0;
+		int kind;
+		while (((kind = lexer.next()) != Lexer.EOF) && (kind != Lexer.EOL)) {
+			if (tokensCount < MAX_TOKENS) {
+				tokenKinds[tokensCount] = kind;
+				tokenValues[tokensCount] = lexer.value;
+				tokenMemory[tokensCount] = lexer.memory;
+				tokenOffsets[tokensCount] = lexer.offset;
+				tokenOffsetSymbols[tokensCount] = lexer.offsetSymbol;
+				tokenStarts[tokensCount] = lexer.start;
+				tokenLengths[tokensCount] = lexer.length;
+				tokensCount++;
 			}
 		}
+		for (int i = tokensCount; i < MAX_TOKENS; i++) {
+			tokenKinds[i] = Lexer.EOF;
+			tokenMemory[i] = false;
+		}
+	}
 
+	/**
+	 * This method returns the name of a token, without the & prefix
+	 * 
+	 * @param token
+	 * @return
+	 */
+	private String tokenText(int token) {
+		if ((tokenKinds[token] == Lexer.SYMBOL) || (tokenKinds[token] == Lexer.LABEL))
+			return symbols.getName(tokenValues[token]);
+		int start = tokenStarts[token];
+		int length = tokenLengths[token];
+		if (tokenMemory[token]) {
+			start++;
+			length--;
+		}
+		return new String(lexer.getBuffer(), start, length);
 	}
 
 	/**
 	 * This method processes a command, putting it and its parameters (if they have)
-	 * into the final array
+	 * into the object program
 	 * 
 	 * @param tokens
 	 */
 	protected void proccessCommand(String[] tokens) {
-		String command = tokens[0];
-		String parameter = "";
-		String parameter2 = "";
-		String parameter3 = "";
-		int commandNumber = findCommandNumber(tokens);
-		if (commandNumber == 0) { // must to proccess an addRegReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 1) { // must to proccess an addMemReg command
-			parameter = "&" + tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 2) { // must to proccess an addRegMem command
-			parameter = tokens[1];
-			parameter2 = "&" + tokens[2];
-		}
-
-		if (commandNumber == 3) { // must to proccess an subRegReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 4) { // must to proccess an subMemReg command
-			parameter = "&" + tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 5) { // must to proccess an subRegMem command
-			parameter = tokens[1];
-			parameter2 = "&" + tokens[2];
-		}
-		if (commandNumber == 6) { // must to proccess an imulMemReg command
-			parameter = "&" + tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 7) { // must to proccess an imulRegMem command
-			parameter = tokens[1];
-			parameter2 = "&" + tokens[2];
-		}
-		if (commandNumber == 8) { // must to proccess an imulRegReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 9) { // must to proccess an moveMemReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 10) { // must to proccess an moveRegMem command
-			parameter = tokens[1];
-			parameter2 = "&" + tokens[2];
-		}
-		if (commandNumber == 11) { // must to proccess an moveRegReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 12) { // must to proccess an moveImmReg command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 13) { // must to proccess an incReg command
-			parameter = tokens[1];
-		}
-		if (commandNumber == 14) { // must to proccess an incMem command
-			parameter = tokens[1];
-			parameter = "&" + parameter;// this is a flag to indicate that is a position in memory
-		}
-		if (commandNumber == 15) { // must to proccess an jmp command
-			parameter = tokens[1];
-			parameter = "&" + parameter;// this is a flag to indicate that is a position in memory
-		}
-		if (commandNumber == 16) { // must to proccess an jn command
-			parameter = tokens[1];
-			parameter = "&" + parameter;// this is a flag to indicate that is a position in memory
-		}
-		if (commandNumber == 17) { // must to proccess an jz command
-			parameter = tokens[1];
-			parameter = "&" + parameter;// this is a flag to indicate that is a position in memory
-		}
-		if (commandNumber == 18) { // must to proccess an jnz command
-			parameter = tokens[1];
-			parameter = "&" + parameter;// this is a flag to indicate that is a position in memory
-		}
-		if (commandNumber == 19) { // must to proccess an jeq command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-			parameter3 = tokens[3];
-			parameter3 = "&" + parameter3;
-		}
-		if (commandNumber == 20) { // must to proccess an jgt command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-			parameter3 = tokens[3];
-			parameter3 = "&" + parameter3;
-		}
-		if (commandNumber == 21) { // must to proccess an jlw command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-			parameter3 = tokens[3];
-			parameter3 = "&" + parameter3;
-		}
-		if (commandNumber == 22) { // must to proccess an ldi command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 23) { // must to proccess an read command
-			parameter = tokens[1];
-			parameter = "&" + parameter;
-			parameter2 = tokens[2];
-		}
-		if (commandNumber == 24) { // must to proccess an store command
-			parameter = tokens[1];
-			parameter2 = tokens[2];
-			parameter2 = "&" + parameter2;
-		}
-		objProgram.add(Integer.toString(commandNumber));
-		if (!parameter.isEmpty()) {
-			objProgram.add(parameter);
-		}
-		if (!parameter2.isEmpty()) {
-			objProgram.add(parameter2);
-		}
-		if (!parameter3.isEmpty()) {
-			objProgram.add(parameter3);
+		syncObjProgram();
+		StringBuilder line = new StringBuilder();
+		for (String t : tokens) {
+			if (t != null)
+				line.append(t).append(' ');
+		}
+		lexer.reset(line.toString());
+		scanTokens();
+		proccessCommand(objectProgram);
+	}
+
+	/**
+	 * This method processes the command in the current tokens.
+	 * The kind of each parameter comes from the opcode operands table.
+	 * An indexed token, offset(%Reg), gives two operands: the offset and the register
+	 * 
+	 * @param program
+	 */
+	private void proccessCommand(ObjectProgram program) {
+		int commandNumber = findCommandNumber();
+		if (commandNumber < 0)
+			throw new IllegalArgumentException("Unknown command: " + tokenText(0));
+		int count = ObjectProgram.operandsCount(commandNumber);
+		int given = 0;
+		for (int token = 1; token < tokensCount; token++) {
+			given += isIndexed(token) ? 2 : 1;
+		}
+		if (given < count)
+			throw new IllegalArgumentException("Missing parameters for the command " + commands.get(commandNumber));
+		program.add(ObjectProgram.OPCODE, commandNumber);
+		int token = 0;
+		for (int i = 0; i < count; i++) {
+			token++;
+			if (isIndexed(token)) {
+				program.add(tokenOffsetSymbols[token] ? ObjectProgram.SYMBOL : ObjectProgram.IMMEDIATE, tokenOffsets[token]);
+				if (++i < count)
+					program.add(ObjectProgram.REGISTER, tokenValues[token]);
+			} else if (ObjectProgram.operandKind(commandNumber, i) == ObjectProgram.SYMBOL) {
+				// this is a position in memory
+				program.add(ObjectProgram.SYMBOL, internToken(token));
+			} else if (tokenKinds[token] == Lexer.REGISTER) {
+				program.add(ObjectProgram.REGISTER, tokenValues[token]);
+			} else if ((tokenKinds[token] == Lexer.IMMEDIATE) && !tokenMemory[token]) {
+				program.add(ObjectProgram.IMMEDIATE, tokenValues[token]);
+			} else { // a name where a register or a number was expected. It will be reported as not declared
+				program.add(ObjectProgram.SYMBOL, internToken(token));
+			}
 		}
 	}
 
+	/**
+	 * This method puts the text of a token (without the & prefix) in the symbols table
+	 * 
+	 * @param token
+	 * @return the symbol id
+	 */
+	private int internToken(int token) {
+		if ((tokenKinds[token] == Lexer.SYMBOL) || (tokenKinds[token] == Lexer.LABEL))
+			return tokenValues[token];
+		int start = tokenStarts[token];
+		int length = tokenLengths[token];
+		if (tokenMemory[token]) {
+			start++;
+			length--;
+		}
+		return symbols.intern(lexer.getBuffer(), start, length);
+	}
+
 	/**
 	 * This method uses the tokens to search a command
 	 * in the commands list and returns its id.
@@ -267,48 +352,66 @@ public class Assembler {
 	 * and
 	 * multiple ids, one for each format.
 	 * 
-	 * @param tokens
 	 * @return
 	 */
-	private int findCommandNumber(String[] tokens) {
-		int p = commands.indexOf(tokens[0]);
-		if (p < 0) { // the command isn't in the list. So it must have multiple formats
-			if ("move".equals(tokens[0])) // the command is a move
-				p = proccessMove(tokens);
-			if ("add".equals(tokens[0]))
-				p = proccessAdd(tokens);
-			if ("imul".equals(tokens[0]))
-				p = proccessImul(tokens);
-			if ("sub".equals(tokens[0]))
-				p = proccessSub(tokens);
-			if ("inc".equals(tokens[0]))
-				p = proccessInc(tokens);
+	private int findCommandNumber() {
+		if (tokenKinds[0] != Lexer.MNEMONIC)
+			return -1;
+		int p = tokenValues[0];
+		if (p >= commands.size()) { // the command isn't in the list. So it must have multiple formats
+			String command = MULTIPLE_FORMAT_COMMANDS.get(p - commands.size());
+			p = -1;
+			if ("move".equals(command)) // the command is a move
+				p = proccessMove();
+			if ("add".equals(command))
+				p = proccessAdd();
+			if ("imul".equals(command))
+				p = proccessImul();
+			if ("sub".equals(command))
+				p = proccessSub();
+			if ("inc".equals(command))
+				p = proccessInc();
+			if ("cmp".equals(command))
+				p = proccessCmp();
+			if ("idiv".equals(command) || "imod".equals(command))
+				p = proccessDivision(command);
 		}
 		return p;
 	}
 
+	private boolean isRegister(int token) {
+		return tokenKinds[token] == Lexer.REGISTER;
+	}
+
+	private boolean isIndexed(int token) {
+		return tokenKinds[token] == Lexer.INDEXED;
+	}
+
+	private boolean isImmediate(int token) {
+		return (tokenKinds[token] == Lexer.IMMEDIATE) && !tokenMemory[token];
+	}
+
 	/**
 	 * This method proccess a move command.
 	 * It must have differents formats, meaning differents internal commands
 	 * 
-	 * @param tokens
 	 * @return
 	 */
-	private int proccessMove(String[] tokens) {
-		String p1 = tokens[1];
-		String p2 = tokens[2];
+	private int proccessMove() {
 		int p = -1;
-		if ((p1.startsWith("%")) && (p2.startsWith("%"))) { // this is a moveRegReg comand
+		if (isIndexed(1)) // this is a moveIdxReg command
+			return commands.indexOf("moveIdxReg");
+		if (isIndexed(2)) // this is a moveRegIdx command
+			return commands.indexOf("moveRegIdx");
+		if (isRegister(1) && isRegister(2)) { // this is a moveRegReg comand
 			p = commands.indexOf("moveRegReg");
 		} else {
-			if ((p1.startsWith("&")) && (p2.startsWith("%"))) { // this is a moveMemReg comand
+			if (tokenMemory[1] && isRegister(2)) { // this is a moveMemReg comand
 				p = commands.indexOf("moveMemReg");
 			} else {
-				if (p1.startsWith("%")) { // this is a moveRegMem comand
-					p2 = "&" + p2;
+				if (isRegister(1)) { // this is a moveRegMem comand
 					p = commands.indexOf("moveRegMem");
 				} else {
-					p2 = "&" + p2;
 					p = commands.indexOf("moveImmReg");
 				}
 			}
@@ -316,19 +419,19 @@ public class Assembler {
 		return p;
 	}
 
-	private int proccessAdd(String[] tokens) {
-		String p1 = tokens[1];
-		String p2 = tokens[2];
+	private int proccessAdd() {
 		int p = -1;
-		if ((p1.startsWith("%")) && (p2.startsWith("%"))) { // this is a addRegReg comand
+		if (isIndexed(1)) // this is a addIdxReg command
+			return commands.indexOf("addIdxReg");
+		if (isImmediate(1) && isRegister(2)) // this is a addImmReg command
+			return commands.indexOf("addImmReg");
+		if (isRegister(1) && isRegister(2)) { // this is a addRegReg comand
 			p = commands.indexOf("addRegReg");
 		} else {
-			if (p2.startsWith("%")) { // this is a addMemReg comand
-				p1 = "&" + p1;
+			if (isRegister(2)) { // this is a addMemReg comand
 				p = commands.indexOf("addMemReg");
 			} else {
 				// this is a addRegMem comand
-				p2 = "&" + p2;
 				p = commands.indexOf("addRegMem");
 
 			}
@@ -336,19 +439,19 @@ public class Assembler {
 		return p;
 	}
 
-	private int proccessSub(String[] tokens) {
-		String p1 = tokens[1];
-		String p2 = tokens[2];
+	private int proccessSub() {
 		int p = -1;
-		if ((p1.startsWith("%")) && (p2.startsWith("%"))) { // this is a addRegReg comand
+		if (isIndexed(1)) // this is a subIdxReg command
+			return commands.indexOf("subIdxReg");
+		if (isImmediate(1) && isRegister(2)) // this is a subImmReg command
+			return commands.indexOf("subImmReg");
+		if (isRegister(1) && isRegister(2)) { // this is a addRegReg comand
 			p = commands.indexOf("subRegReg");
 		} else {
-			if (p2.startsWith("%")) { // this is a subMemReg comand
-				p1 = "&" + p1;
+			if (isRegister(2)) { // this is a subMemReg comand
 				p = commands.indexOf("subMemReg");
 			} else {
-				if (p1.startsWith("%")) { // this is a subRegMem comand
-					p2 = "&" + p2;
+				if (isRegister(1)) { // this is a subRegMem comand
 					p = commands.indexOf("subRegMem");
 				}
 			}
@@ -356,19 +459,15 @@ public class Assembler {
 		return p;
 	}
 
-	private int proccessImul(String[] tokens) {
-		String p1 = tokens[1];
-		String p2 = tokens[2];
+	private int proccessImul() {
 		int p = -1;
-		if ((p1.startsWith("%")) && (p2.startsWith("%"))) { // this is a imulRegReg comand
+		if (isRegister(1) && isRegister(2)) { // this is a imulRegReg comand
 			p = commands.indexOf("imulRegReg");
 		} else {
-			if (p2.startsWith("%")) { // this is a imulMemReg comand
-				p1 = "&" + p1;
+			if (isRegister(2)) { // this is a imulMemReg comand
 				p = commands.indexOf("imulMemReg");
 			} else {
-				if (p1.startsWith("%")) { // this is a imulRegMem comand
-					p2 = "&" + p2;
+				if (isRegister(1)) { // this is a imulRegMem comand
 					p = commands.indexOf("imulRegMem");
 				}
 			}
@@ -376,13 +475,33 @@ public class Assembler {
 		return p;
 	}
 
-	private int proccessInc(String[] tokens) {
-		String p1 = tokens[1];
+	/**
+	 * idiv and imod have the formats of imul: RegReg, MemReg and RegMem
+	 */
+	private int proccessDivision(String command) {
+		if (isRegister(1) && isRegister(2))
+			return commands.indexOf(command + "RegReg");
+		if (isRegister(2))
+			return commands.indexOf(command + "MemReg");
+		if (isRegister(1))
+			return commands.indexOf(command + "RegMem");
+		return -1;
+	}
+
+	/**
+	 * cmp has only the immediate format: cmp imm %RegA
+	 */
+	private int proccessCmp() {
+		if (isImmediate(1) && isRegister(2))
+			return commands.indexOf("cmpImmReg");
+		return -1;
+	}
+
+	private int proccessInc() {
 		int p = -1;
-		if (p1.startsWith("%")) { // this is a addRegReg comand
+		if (isRegister(1)) { // this is a addRegReg comand
 			p = commands.indexOf("incReg");
 		} else {
-			p1 = "&" + p1;
 			p = commands.indexOf("incMem");
 		}
 		return p;
@@ -398,18 +517,223 @@ public class Assembler {
 	 * Step 4: make the executable by replacing the labels and the variables by the
 	 * corresponding memory addresses
 	 * 
+	 * If there is a cache, the executable of the same source is taken from the cache,
+	 * without the steps above (and without parsing the source, if it wasn't parsed yet)
+	 * 
 	 * @param filename
 	 * @throws IOException
 	 */
 	public void makeExecutable(String filename) throws IOException {
-		if (!checkLabels())
+		String key = null;
+		if (cache != null) {
+			key = AssemblerCache.key(lines, getTablesVersion());
+			int executable[] = cache.get(key);
+			if (executable != null) {
+				System.out.println("Executable found in the cache");
+				setExecutable(executable);
+				saveExecFile(filename);
+				System.out.println("Finished");
+				return;
+			}
+		}
+		if (!parsed)
+			parse();
+		if (eliminateDeadCode && (deadCodeReport == null))
+			System.out.println("Dead code " + eliminateDeadCode());
+		if (optimize && (optimizationReport == null)) {
+			PeepholeOptimizer.Report report = optimize();
+			System.out.println("Strength reduction " + reductionReport);
+			System.out.println("Optimization " + report);
+		}
+		System.out.println("Checking labels and variables");
+		if (!buildExecutable())
 			return;
-		execProgram = (ArrayList<String>) objProgram.clone();
+		saveExecFile(filename);
+		if (cache != null)
+			cache.put(key, getExecutable());
+		System.out.println("Finished");
+	}
+
+	/**
+	 * This method replaces the imuls by constants with adds (strength reduction), then
+	 * runs the peephole optimizer over the object program, moving the labels.
+	 * It must be called after parse and before makeExecutable (or buildExecutable)
+	 * 
+	 * @return the words and modeled cycles saved by the peephole optimizer
+	 *         (the strength reduction report is given by getReductionReport)
+	 */
+	public PeepholeOptimizer.Report optimize() {
+		syncObjProgram();
+		int labelAddresses[] = newLabelAddressesTable();
+		int savedRPG1 = arch.getReservedAreaStart() + 1; // where imul saves RPG1
+		StrengthReducer reducer = new StrengthReducer(objectProgram, labelAddresses, savedRPG1);
+		reductionReport = reducer.reduce();
+		PeepholeOptimizer optimizer = new PeepholeOptimizer(objectProgram, labelAddresses);
+		optimizationReport = optimizer.optimize();
+		for (int i = 0; i < labelsAdresses.size(); i++) {
+			labelsAdresses.set(i, optimizer.newPosition(reducer.newPosition(labelsAdresses.get(i))));
+		}
+		return optimizationReport;
+	}
+
+	/**
+	 * This method removes the code not reached from the address 0 and the variables not used,
+	 * moving the labels. It must be called after parse and before makeExecutable (or buildExecutable)
+	 * 
+	 * @return the instructions and variables removed
+	 */
+	public DeadCodeEliminator.Report eliminateDeadCode() {
+		syncObjProgram();
+		DeadCodeEliminator eliminator = new DeadCodeEliminator(objectProgram, newLabelAddressesTable());
+		deadCodeReport = eliminator.eliminate(variables, symbols, arch.getMemorySize());
+		for (int i = 0; i < labelsAdresses.size(); i++) {
+			labelsAdresses.set(i, eliminator.newPosition(labelsAdresses.get(i)));
+		}
+		return deadCodeReport;
+	}
+
+	/**
+	 * This method creates a table with the address of each label, by the symbol id,
+	 * as the optimizers use it (-1 for the other symbols)
+	 * 
+	 * @return
+	 */
+	private int[] newLabelAddressesTable() {
+		int labelAddresses[] = newAddressesTable();
+		addLabelsAddresses(labelAddresses);
+		for (String var : variables) { // a variable with the same name of a label is used instead of the label
+			int symbol = symbols.find(var);
+			if (symbol >= 0)
+				labelAddresses[symbol] = -1;
+		}
+		return labelAddresses;
+	}
+
+	public void setEliminateDeadCode(boolean eliminateDeadCode) {
+		this.eliminateDeadCode = eliminateDeadCode;
+	}
+
+	public DeadCodeEliminator.Report getDeadCodeReport() {
+		return deadCodeReport;
+	}
+
+	/**
+	 * This method makes an object module of the program, to be joined to other modules by the Linker.
+	 * The symbols used and not declared are imported from the other modules, instead of being errors.
+	 * The optimizer runs if it is set; the dead code is never removed, as the module code can be
+	 * reached from the other modules
+	 * 
+	 * @param name the module name
+	 * @return
+	 */
+	public ObjectModule makeObjectModule(String name) {
+		if (!parsed)
+			parse();
+		if (optimize && (optimizationReport == null))
+			optimize();
+		ObjectModule module = new ObjectModule(name);
+		int variableIndexes[] = newAddressesTable(); // the first declaration of each variable
+		for (int i = variables.size() - 1; i >= 0; i--) {
+			int symbol = symbols.find(variables.get(i));
+			if (symbol >= 0)
+				variableIndexes[symbol] = i;
+		}
+		int labelAddresses[] = newLabelAddressesTable();
+		for (int i = 0; i < objectProgram.size(); i++) {
+			int value = objectProgram.getValue(i);
+			if (objectProgram.getKind(i) != ObjectProgram.SYMBOL) {
+				module.addWord(value);
+			} else if (variableIndexes[value] >= 0) {
+				module.addWord(variableIndexes[value]);
+				module.addRelocation(i, ObjectModule.DATA);
+			} else if (labelAddresses[value] >= 0) {
+				module.addWord(labelAddresses[value]);
+				module.addRelocation(i, ObjectModule.CODE);
+			} else {
+				module.addWord(module.importSymbol(symbols.getName(value)));
+				module.addRelocation(i, ObjectModule.IMPORT);
+			}
+		}
+		module.setVariablesCount(variables.size());
+		for (int s = 0; s < symbols.size(); s++) {
+			if (variableIndexes[s] >= 0)
+				module.addExport(symbols.getName(s), ObjectModule.DATA, variableIndexes[s]);
+			else if (labelAddresses[s] >= 0)
+				module.addExport(symbols.getName(s), ObjectModule.CODE, labelAddresses[s]);
+		}
+		return module;
+	}
+
+	public void setOptimize(boolean optimize) {
+		this.optimize = optimize;
+	}
+
+	public PeepholeOptimizer.Report getOptimizationReport() {
+		return optimizationReport;
+	}
+
+	public StrengthReducer.Report getReductionReport() {
+		return reductionReport;
+	}
+
+	public void setCache(AssemblerCache cache) {
+		this.cache = cache;
+	}
+
+	public AssemblerCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * This method returns the architecture tables used by the assembler, in a text form.
+	 * If they change, the executables in the cache are not valid anymore
+	 * 
+	 * @return
+	 */
+	private String getTablesVersion() {
+		return commands + " " + registerNames + " " + arch.getMemorySize() + (optimize ? " optimized" : "")
+				+ (eliminateDeadCode ? " without dead code" : "");
+	}
+
+	/**
+	 * This method sets the executable program (with the -1 end flag) as it is
+	 * 
+	 * @param executable
+	 */
+	private void setExecutable(int executable[]) {
+		execObjectProgram.clear();
+		for (int i = 0; i < executable.length - 1; i++) {
+			execObjectProgram.add(ObjectProgram.IMMEDIATE, executable[i]);
+		}
+		execProgram = null;
+	}
+
+	/**
+	 * This method performs the steps 1 to 4 of makeExecutable, without saving
+	 * the executable into a file
+	 * 
+	 * @return false if some variable or label is not declared
+	 */
+	public boolean buildExecutable() {
+		if (!checkLabels())
+			return false;
+		execObjectProgram = objectProgram.copy();
+		execProgram = null;
 		replaceAllVariables();
 		replaceLabels(); // replacing all labels by the address they refer to
 		replaceRegisters(); // replacing all registers by the register id they refer to
-		saveExecFile(filename);
-		System.out.println("Finished");
+		return true;
+	}
+
+	/**
+	 * This method returns the executable program (built by makeExecutable or buildExecutable)
+	 * as machine code, including the -1 end flag, ready to be loaded into the memory
+	 * 
+	 * @return
+	 */
+	public int[] getExecutable() {
+		syncExecProgram();
+		return execObjectProgram.toExecutable();
 	}
 
 	/**
@@ -417,17 +741,8 @@ public class Assembler {
 	 * registers names must be prefixed by %
 	 */
 	protected void replaceRegisters() {
-		int p = 0;
-		for (String line : execProgram) {
-			if (line.startsWith("%")) { // this line is a register
-				line = line.substring(1, line.length());
-				int regId = searchRegisterId(line, arch.getRegistersList());
-				String newLine = Integer.toString(regId);
-				execProgram.set(p, newLine);
-			}
-			p++;
-		}
-
+		syncExecProgram();
+		execObjectProgram.resolveRegisters();
 	}
 
 	/**
@@ -436,11 +751,10 @@ public class Assembler {
 	 * and decreases (creating a stack)
 	 */
 	protected void replaceAllVariables() {
-		int position = arch.getMemorySize() - 1; // starting from the end of the memory
-		for (String var : this.variables) { // scanning all variables
-			replaceVariable(var, position);
-			position--;
-		}
+		syncExecProgram();
+		int addresses[] = newAddressesTable();
+		addVariablesAddresses(addresses);
+		execObjectProgram.resolveSymbols(addresses);
 	}
 
 	/**
@@ -452,8 +766,9 @@ public class Assembler {
 	private void saveExecFile(String filename) throws IOException {
 		File file = new File(filename + ".dxf");
 		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-		for (String l : execProgram)
-			writer.write(l + "\n");
+		int executable[] = getExecutable();
+		for (int i = 0; i < executable.length - 1; i++)
+			writer.write(executable[i] + "\n");
 		writer.write("-1"); // -1 is a flag indicating that the program is finished
 		writer.close();
 
@@ -464,21 +779,10 @@ public class Assembler {
 	 * address they refer to
 	 */
 	protected void replaceLabels() {
-		int i = 0;
-		for (String label : labels) { // searching all labels
-			label = "&" + label;
-			int labelPointTo = labelsAdresses.get(i);
-			int lineNumber = 0;
-			for (String l : execProgram) {
-				if (l.equals(label)) {// this label must be replaced by the address
-					String newLine = Integer.toString(labelPointTo); // the address
-					execProgram.set(lineNumber, newLine);
-				}
-				lineNumber++;
-			}
-			i++;
-		}
-
+		syncExecProgram();
+		int addresses[] = newAddressesTable();
+		addLabelsAddresses(addresses);
+		execObjectProgram.resolveSymbols(addresses);
 	}
 
 	/**
@@ -490,15 +794,10 @@ public class Assembler {
 	 * @param position
 	 */
 	protected void replaceVariable(String var, int position) {
-		var = "&" + var;
-		int i = 0;
-		for (String s : execProgram) {
-			if (s.equals(var)) {
-				s = Integer.toString(position);
-				execProgram.set(i, s);
-			}
-			i++;
-		}
+		syncExecProgram();
+		int symbol = symbols.find(var);
+		if (symbol >= 0)
+			execObjectProgram.resolve(symbol, position);
 	}
 
 	/**
@@ -508,52 +807,190 @@ public class Assembler {
 	 * The labels and the variables collection are used for this
 	 */
 	protected boolean checkLabels() {
-		System.out.println("Checking labels and variables");
-		for (String line : objProgram) {
-			boolean found = false;
-			if (line.startsWith("&")) { // if starts with "&", it is a label or a variable
-				line = line.substring(1, line.length());
-				if (labels.contains(line))
-					found = true;
-				if (variables.contains(line))
-					found = true;
-				if (!found) {
-					System.out.println("FATAL ERROR! Variable or label " + line + " not declared!");
-					return false;
-				}
+		syncObjProgram();
+		boolean declared[] = new boolean[symbols.size()];
+		markDeclared(declared, variables);
+		markDeclared(declared, labels);
+		for (int i = 0; i < objectProgram.size(); i++) {
+			if ((objectProgram.getKind(i) == ObjectProgram.SYMBOL) && !declared[objectProgram.getValue(i)]) {
+				String name = symbols.getName(objectProgram.getValue(i));
+				System.out.println("FATAL ERROR! Variable or label " + name + " not declared!");
+				return false;
 			}
 		}
 		return true;
 	}
 
+	private void markDeclared(boolean declared[], ArrayList<String> names) {
+		for (String name : names) {
+			int symbol = symbols.find(name);
+			if (symbol >= 0)
+				declared[symbol] = true;
+		}
+	}
+
 	/**
-	 * This method searches for a register in the architecture register list
-	 * by the register name
+	 * This method creates a table with the address of each symbol, by the symbol id.
+	 * All addresses start as -1 (unknown)
 	 * 
-	 * @param line
-	 * @param registersList
 	 * @return
 	 */
-	private int searchRegisterId(String line, ArrayList<Register> registersList) {
+	private int[] newAddressesTable() {
+		int addresses[] = new int[symbols.size()];
+		Arrays.fill(addresses, -1);
+		return addresses;
+	}
+
+	/**
+	 * This method puts the variables addresses into the table.
+	 * The addresses of the variables start in the end of the memory and decrease
+	 * 
+	 * @param addresses
+	 */
+	private void addVariablesAddresses(int addresses[]) {
+		int position = arch.getMemorySize() - 1; // starting from the end of the memory
+		for (String var : variables) {
+			setAddress(addresses, var, position);
+			position--;
+		}
+	}
+
+	private void addLabelsAddresses(int addresses[]) {
 		int i = 0;
-		for (Register r : registersList) {
-			if (line.equals(r.getRegisterName())) {
-				return i;
-			}
+		for (String label : labels) {
+			setAddress(addresses, label, labelsAdresses.get(i));
 			i++;
 		}
-		return -1;
 	}
 
+	/**
+	 * This method sets the address of a symbol, if it is used and has no address yet
+	 * 
+	 * @param addresses
+	 * @param name
+	 * @param address
+	 */
+	private void setAddress(int addresses[], String name, int address) {
+		int symbol = symbols.find(name);
+		if ((symbol >= 0) && (addresses[symbol] < 0))
+			addresses[symbol] = address;
+	}
+
+	/**
+	 * This method converts a program into its text form:
+	 * numbers, %registers and &symbols
+	 * 
+	 * @param program
+	 * @return
+	 */
+	private ArrayList<String> toText(ObjectProgram program) {
+		ArrayList<String> text = new ArrayList<>(program.size());
+		for (int i = 0; i < program.size(); i++) {
+			int value = program.getValue(i);
+			switch (program.getKind(i)) {
+				case ObjectProgram.REGISTER:
+					if ((value >= 0) && (value < registerNames.size()))
+						text.add("%" + registerNames.get(value));
+					else
+						text.add(Integer.toString(value)); // unknown register
+					break;
+				case ObjectProgram.SYMBOL:
+					text.add("&" + symbols.getName(value));
+					break;
+				default:
+					text.add(Integer.toString(value));
+					break;
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * This method converts the text form of a program back into the program.
+	 * Each word is read by the lexer; numbers starting an instruction are opcodes
+	 * 
+	 * @param text
+	 * @param program
+	 */
+	private void fromText(ArrayList<String> text, ObjectProgram program) {
+		program.clear();
+		int remaining = 0; // operands left in the current instruction
+		for (String word : text) {
+			lexer.reset(word);
+			scanTokens();
+			if ((tokenKinds[0] == Lexer.REGISTER) && (tokenValues[0] >= 0)) {
+				program.add(ObjectProgram.REGISTER, tokenValues[0]);
+			} else if ((tokenKinds[0] == Lexer.IMMEDIATE) && !tokenMemory[0]) {
+				int value = tokenValues[0];
+				if ((remaining == 0) && ObjectProgram.isOpcode(value)) {
+					program.add(ObjectProgram.OPCODE, value);
+					remaining = ObjectProgram.operandsCount(value) + 1;
+				} else
+					program.add(ObjectProgram.IMMEDIATE, value);
+			} else {
+				program.add(ObjectProgram.SYMBOL, internToken(0));
+			}
+			if (remaining > 0)
+				remaining--;
+		}
+	}
+
+	/**
+	 * These methods take back the changes made in the text forms
+	 * (given by getObjProgram, getExecProgram or setExecProgram)
+	 */
+	private void syncObjProgram() {
+		if (objProgram != null) {
+			fromText(objProgram, objectProgram);
+			objProgram = null;
+		}
+	}
+
+	private void syncExecProgram() {
+		if (execProgram != null) {
+			fromText(execProgram, execObjectProgram);
+			execProgram = null;
+		}
+	}
+
+	/**
+	 * Usage: Assembler [-O] [-D] [-c] [filename [cacheDirectory]]
+	 * The default filename is program. -O runs the strength reduction and the peephole optimizer,
+	 * -D removes the unreachable code and the unused variables,
+	 * -c makes the object module filename.dof (for the Linker) instead of the executable
+	 */
 	public static void main(String[] args) throws IOException {
-		// String filename = args[0];
+		if (args == null) // as called by Architecture.main
+			args = new String[0];
 		Assembler assembler = new Assembler();
+		ArrayList<String> parameters = new ArrayList<>();
+		boolean module = false;
+		for (String arg : args) {
+			if ("-O".equals(arg))
+				assembler.setOptimize(true);
+			else if ("-D".equals(arg))
+				assembler.setEliminateDeadCode(true);
+			else if ("-c".equals(arg))
+				module = true;
+			else
+				parameters.add(arg);
+		}
+		String filename = (parameters.size() > 0) ? parameters.get(0) : "program";
+		if (parameters.size() > 1)
+			assembler.setCache(new AssemblerCache(new File(parameters.get(1))));
 		// System.out.println("Reading source assembler file: "+filename+".dsf");
-		assembler.read("program");
-		// System.out.println("Generating the object program");
-		assembler.parse();
-		System.out.println("Generating executable: program.dxf");
-		assembler.makeExecutable("program");
+		assembler.read(filename);
+		if (module) {
+			System.out.println("Generating object module: " + filename + ObjectModule.EXTENSION);
+			assembler.makeObjectModule(new File(filename).getName()).save(filename);
+			System.out.println("Finished");
+			return;
+		}
+		// the object program is generated by makeExecutable, only if it is not in the cache
+		System.out.println("Generating executable: " + filename + ".dxf");
+		assembler.makeExecutable(filename);
+		if (assembler.getCache() != null)
+			System.out.println("Cache " + assembler.getCache());
 	}
 
 }
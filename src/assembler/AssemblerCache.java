@@ -0,0 +1,275 @@
+package assembler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class keeps assembled executables in a directory, so the same source is
+ * assembled only once.
+ * Each executable is kept in a file named by the hash (SHA-256) of the source and of the
+ * architecture tables used by the assembler (commands, registers and memory size), so a change
+ * in the architecture never gives an old executable. The files have the .dxf format.
+ *
+ * The cache is limited in size and in number of files; when a limit is passed, the
+ * least recently used files are removed (the file modification time is the last use).
+ * The hits and misses are counted in a statistics file, kept between executions.
+ */
+public class AssemblerCache {
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private static final String EXTENSION = ".dxf";
+	private static final String STATISTICS_FILE = "statistics";
+
+	private File directory;
+	private long maxBytes;
+	private int maxEntries;
+	private long lastUse; // the last time set into a file, so two uses never have the same time
+
+	// statistics
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public AssemblerCache(File directory) throws IOException {
+		this(directory, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+	}
+
+	public AssemblerCache(File directory, long maxBytes, int maxEntries) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.maxEntries = maxEntries;
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create the cache directory " + directory);
+		readStatistics();
+	}
+
+	/**
+	 * This method computes the key of a source
+	 *
+	 * @param lines the source lines
+	 * @param version the architecture tables used by the assembler, in a text form
+	 * @return
+	 */
+	public static String key(List<String> lines, String version) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+		digest.update(version.getBytes(StandardCharsets.UTF_8));
+		for (String line : lines) {
+			digest.update((byte) '\n');
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(Character.forDigit((b >> 4) & 0xf, 16));
+			key.append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * This method returns the executable kept for the key, or null if there is none
+	 *
+	 * @param key
+	 * @return
+	 */
+	public int[] get(String key) {
+		File file = new File(directory, key + EXTENSION);
+		int executable[] = null;
+		if (file.isFile()) {
+			try {
+				executable = readExecutable(file);
+				touch(file);
+			} catch (IOException | NumberFormatException e) {
+				file.delete(); // a damaged file is only a miss
+			}
+		}
+		if (executable != null)
+			hits++;
+		else
+			misses++;
+		saveStatistics();
+		return executable;
+	}
+
+	/**
+	 * This method keeps an executable (with the -1 end flag) in the cache
+	 *
+	 * @param key
+	 * @param executable
+	 * @throws IOException
+	 */
+	public void put(String key, int executable[]) throws IOException {
+		File file = new File(directory, key + EXTENSION);
+		File temp = new File(directory, key + ".tmp");
+		BufferedWriter writer = new BufferedWriter(new FileWriter(temp));
+		try {
+			for (int i = 0; i < executable.length; i++) {
+				writer.write(Integer.toString(executable[i]));
+				if (i < executable.length - 1)
+					writer.write("\n");
+			}
+		} finally {
+			writer.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		touch(file);
+		evict();
+		saveStatistics();
+	}
+
+	private static int[] readExecutable(File file) throws IOException {
+		ArrayList<Integer> words = new ArrayList<>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				words.add(Integer.parseInt(line.trim()));
+			}
+		} finally {
+			br.close();
+		}
+		if (words.isEmpty() || (words.get(words.size() - 1) != -1))
+			throw new IOException("Incomplete executable " + file);
+		int executable[] = new int[words.size()];
+		for (int i = 0; i < executable.length; i++) {
+			executable[i] = words.get(i);
+		}
+		return executable;
+	}
+
+	/**
+	 * This method marks the file as the most recently used
+	 *
+	 * @param file
+	 */
+	private void touch(File file) {
+		lastUse = Math.max(System.currentTimeMillis(), lastUse + 1);
+		file.setLastModified(lastUse);
+	}
+
+	/**
+	 * This method removes the least recently used files until the cache is in its limits
+	 */
+	private void evict() {
+		File files[] = entries();
+		long bytes = 0;
+		for (File f : files) {
+			bytes += f.length();
+		}
+		Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+		int count = files.length;
+		for (int i = 0; (i < files.length - 1) && ((bytes > maxBytes) || (count > maxEntries)); i++) {
+			long length = files[i].length();
+			if (files[i].delete()) {
+				bytes -= length;
+				count--;
+				evictions++;
+			}
+		}
+	}
+
+	private File[] entries() {
+		File files[] = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		return (files == null) ? new File[0] : files;
+	}
+
+	public int size() {
+		return entries().length;
+	}
+
+	/**
+	 * This method removes all executables from the cache and resets the statistics
+	 */
+	public void clear() {
+		for (File f : entries()) {
+			f.delete();
+		}
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		saveStatistics();
+	}
+
+	// statistics
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public double getHitRate() {
+		long lookups = hits + misses;
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits: %d, misses: %d, hit rate: %.1f%%, evictions: %d, entries: %d", hits, misses,
+				getHitRate() * 100, evictions, size());
+	}
+
+	private void readStatistics() {
+		File file = new File(directory, STATISTICS_FILE);
+		if (!file.isFile())
+			return;
+		try {
+			BufferedReader br = new BufferedReader(new FileReader(file));
+			try {
+				String fields[] = br.readLine().trim().split(" ");
+				hits = Long.parseLong(fields[0]);
+				misses = Long.parseLong(fields[1]);
+				evictions = Long.parseLong(fields[2]);
+			} finally {
+				br.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			hits = 0; // damaged statistics are started again
+			misses = 0;
+			evictions = 0;
+		}
+	}
+
+	private void saveStatistics() {
+		File file = new File(directory, STATISTICS_FILE);
+		File temp = new File(directory, STATISTICS_FILE + ".tmp");
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(temp));
+			try {
+				writer.write(hits + " " + misses + " " + evictions + "\n");
+			} finally {
+				writer.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Cache statistics not saved: " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import architecture.Architecture;
+import architecture.ExecutionStatus;
+import components.Register;
+
+/**
+ * The fixture shared by the tests of the assembler passes: parses the sources and runs
+ * the executables in the architecture
+ */
+final class AssemblerFixture {
+
+	static final int BUDGET = 1000000;
+
+	private AssemblerFixture() {
+	}
+
+	static Assembler parse(String... lines) {
+		return parse(Arrays.asList(lines));
+	}
+
+	static Assembler parse(List<String> lines) {
+		Assembler ass = new Assembler();
+		ass.setLines(new ArrayList<>(lines));
+		ass.parse();
+		return ass;
+	}
+
+	/**
+	 * parses the lines and builds their executable
+	 */
+	static Assembler assemble(List<String> lines) {
+		Assembler ass = parse(lines);
+		assertTrue(ass.buildExecutable());
+		return ass;
+	}
+
+	/**
+	 * runs the executable until it halts, in the budget
+	 */
+	static Architecture run(int executable[]) {
+		Architecture arch = new Architecture();
+		arch.setBudget(BUDGET, 0);
+		arch.loadProgram(executable);
+		arch.controlUnitEexec();
+		assertEquals(ExecutionStatus.HALTED, arch.getExecutionStatus());
+		return arch;
+	}
+
+	/**
+	 * builds the executable of the assembler and runs it
+	 */
+	static Architecture run(Assembler ass) {
+		assertTrue(ass.buildExecutable());
+		return run(ass.getExecutable());
+	}
+
+	/**
+	 * the general registers and the flags must be the same. The memory, the PC and the
+	 * instruction count are not compared: a pass changes the program and its addresses
+	 */
+	static void assertSameResult(String message, Architecture expected, Architecture actual) {
+		for (int r = 0; r < 4; r++) {
+			assertEquals(message + " register " + r, expected.getRegistersList().get(r).getData(),
+					actual.getRegistersList().get(r).getData());
+		}
+		Register flags = expected.getRegistersList().get(6);
+		for (int b = 0; b < flags.getNumFlags(); b++) {
+			assertEquals(message + " flag " + b, flags.getBit(b), actual.getRegistersList().get(6).getBit(b));
+		}
+	}
+
+}
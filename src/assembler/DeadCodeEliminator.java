@@ -0,0 +1,203 @@
+package assembler;
+
+import java.util.ArrayList;
+
+/**
+ * This class removes the code that can't be run and the variables that aren't used.
+ * The instructions reached from the address 0 are found following the program order and
+ * the jumps to labels (jmp only jumps, the conditional jumps can also go to the next instruction).
+ * The other instructions are removed, and the labels pointing to them are moved to the
+ * next instruction left.
+ *
+ * The code is kept as it is if some jump has a target that is not a label, or some
+ * instruction uses an address of the program as a number: they would point to other
+ * instructions after the removal.
+ *
+ * The variables not used by the instructions left are removed from the declarations, so the
+ * other variables get new addresses (they start in the end of the memory). This is not done if some
+ * instruction uses an address of the variables area as a number.
+ */
+public class DeadCodeEliminator extends ProgramPass {
+
+	private static final int JMP = 15;
+	private static final int JLW = 21;
+	private static final int COPY = 25;
+	private static final int SUB_IDX_REG = 30;
+	private static final int LOOP = 34;
+
+	/**
+	 * The instructions, words and variables removed
+	 */
+	public static class Report extends PassReport {
+		private final int instructionsRemoved;
+		private final int variablesBefore;
+		private final int variablesAfter;
+
+		Report(int instructionsRemoved, int wordsBefore, int wordsAfter, int variablesBefore, int variablesAfter) {
+			super(wordsBefore, wordsAfter);
+			this.instructionsRemoved = instructionsRemoved;
+			this.variablesBefore = variablesBefore;
+			this.variablesAfter = variablesAfter;
+		}
+
+		public int getInstructionsRemoved() {
+			return instructionsRemoved;
+		}
+
+		public int getVariablesRemoved() {
+			return variablesBefore - variablesAfter;
+		}
+
+		/**
+		 * This method returns the memory words saved: the code and the variables removed
+		 * @return
+		 */
+		public int getMemorySaved() {
+			return getWordsSaved() + getVariablesRemoved();
+		}
+
+		@Override
+		public String toString() {
+			return "unreachable instructions: " + instructionsRemoved + ", " + words() + ", variables: " + variablesBefore + " -> " + variablesAfter + " (" + getMemorySaved()
+					+ " memory words saved)";
+		}
+	}
+
+	public DeadCodeEliminator(ObjectProgram program, int labelAddresses[]) {
+		super(program, labelAddresses);
+	}
+
+	/**
+	 * This method removes the unreachable code and the unused variables
+	 * @param variables the declared variables, in the declaration order. The unused ones are removed
+	 * @param symbols the symbols table of the program
+	 * @param memorySize the variables are kept from the end of the memory
+	 * @return
+	 */
+	public Report eliminate(ArrayList<String> variables, SymbolTable symbols, int memorySize) {
+		int wordsBefore = program.size();
+		int variablesBefore = variables.size();
+		int removed = 0;
+		boolean reached[] = reachable();
+		if (reached != null) {
+			for (int i = 0; i < program.size(); i = program.nextInstruction(i)) {
+				if (!reached[i])
+					removed++;
+			}
+			if (removed > 0)
+				rewrite(reached, null);
+		}
+		if (!usesAddresses(memorySize - variables.size(), memorySize))
+			removeUnusedVariables(variables, symbols);
+		return new Report(removed, wordsBefore, program.size(), variablesBefore, variables.size());
+	}
+
+	/**
+	 * This method marks the instructions reached from the address 0
+	 * @return the marks, by the first word of each instruction, or null if the
+	 *         targets of the jumps aren't all known
+	 */
+	private boolean[] reachable() {
+		int size = program.size();
+		boolean start[] = new boolean[size + 1]; // the first words of the instructions
+		for (int i = 0; i < size; i = program.nextInstruction(i)) {
+			start[i] = true;
+		}
+		start[size] = true;
+		if (usesAddresses(0, size))
+			return null;
+		boolean reached[] = new boolean[size + 1];
+		int pending[] = new int[size + 1];
+		int count = 0;
+		pending[count++] = 0;
+		reached[0] = true;
+		while (count > 0) {
+			int i = pending[--count];
+			if (i >= size)
+				continue;
+			int next = program.nextInstruction(i);
+			int targets[] = { next, -1 };
+			if (isJump(i)) {
+				int opcode = program.getValue(i);
+				int last = next - 1; // the target is the last operand
+				if ((last >= size) || (program.getKind(last) != ObjectProgram.SYMBOL))
+					return null;
+				int symbol = program.getValue(last);
+				int target = (symbol < labelAddresses.length) ? labelAddresses[symbol] : -1;
+				if (target > size)
+					return null;
+				// a jump to a variable goes out of the program: only the conditional jumps go on
+				targets[0] = (opcode == JMP) ? -1 : next;
+				targets[1] = target;
+			}
+			for (int t : targets) {
+				if ((t < 0) || (t > size))
+					continue;
+				if (!start[t])
+					return null; // a jump into the middle of an instruction
+				if (!reached[t]) {
+					reached[t] = true;
+					pending[count++] = t;
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * This method checks if some instruction uses a memory address in the range as a number.
+	 * The positions of copy, fill and the indexed commands come from registers, so any number
+	 * may be an address in programs using them
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private boolean usesAddresses(int from, int to) {
+		for (int i = 0; i < program.size(); i = program.nextInstruction(i)) {
+			if ((program.getKind(i) != ObjectProgram.OPCODE) || !ObjectProgram.isOpcode(program.getValue(i)))
+				continue;
+			int opcode = program.getValue(i);
+			if ((opcode >= COPY) && (opcode <= SUB_IDX_REG))
+				return true;
+			for (int o = 0; (o < ObjectProgram.operandsCount(opcode)) && (i + 1 + o < program.size()); o++) {
+				int position = i + 1 + o;
+				if ((ObjectProgram.operandKind(opcode, o) == ObjectProgram.SYMBOL)
+						&& (program.getKind(position) == ObjectProgram.IMMEDIATE)
+						&& (program.getValue(position) >= from) && (program.getValue(position) < to))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method keeps only the first declaration of each variable used by the program
+	 * @param variables
+	 * @param symbols
+	 */
+	private void removeUnusedVariables(ArrayList<String> variables, SymbolTable symbols) {
+		boolean used[] = new boolean[symbols.size()];
+		for (int i = 0; i < program.size(); i++) {
+			if (program.getKind(i) == ObjectProgram.SYMBOL)
+				used[program.getValue(i)] = true;
+		}
+		ArrayList<String> kept = new ArrayList<>();
+		for (String var : variables) {
+			int symbol = symbols.find(var);
+			if ((symbol >= 0) && used[symbol]) {
+				kept.add(var);
+				used[symbol] = false; // the other declarations of the same name are never used
+			}
+		}
+		variables.clear();
+		variables.addAll(kept);
+	}
+
+	private boolean isJump(int position) {
+		if (program.getKind(position) != ObjectProgram.OPCODE)
+			return false;
+		int opcode = program.getValue(position);
+		return ((opcode >= JMP) && (opcode <= JLW)) || (opcode == LOOP);
+	}
+
+}
@@ -0,0 +1,324 @@
+package assembler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class assembles a source again and again, while it is edited.
+ * Each line is parsed only once: the parse results are kept in a cache, by the line content.
+ * When the source changes, only the lines between the first and the last changed lines are
+ * taken from the cache (or parsed); the machine code before them is kept and the machine code
+ * after them is only moved. The addresses are replaced again only where they changed.
+ *
+ * The result is the same of the Assembler (parse and buildExecutable) for the whole source.
+ *
+ * Usage:
+ * IncrementalAssembler assembler = new IncrementalAssembler();
+ * assembler.assemble(lines); // the first time, the whole source is parsed
+ * lines.set(10, "inc %RPG1");
+ * assembler.assemble(lines); // only the line 10 is parsed
+ * assembler.getExecutable();
+ */
+public class IncrementalAssembler {
+
+	/**
+	 * The parse result of a line
+	 */
+	private static class ParsedLine {
+		final int kind; // Assembler.EMPTY_LINE, COMMAND_LINE, LABEL_LINE or VARIABLE_LINE
+		final int symbol; // the declared label or variable
+		final byte kinds[];
+		final int values[];
+
+		ParsedLine(int kind, int symbol, ObjectProgram words) {
+			this.kind = kind;
+			this.symbol = symbol;
+			kinds = new byte[words.size()];
+			values = new int[words.size()];
+			for (int i = 0; i < words.size(); i++) {
+				kinds[i] = words.getKind(i);
+				values[i] = words.getValue(i);
+			}
+		}
+	}
+
+	private Assembler parser = new Assembler(); // parses the lines and keeps the symbols table
+	private ObjectProgram lineWords = new ObjectProgram();
+	private HashMap<String, ParsedLine> cache = new HashMap<>();
+
+	// the source lines, by the line number
+	private String lines[] = new String[0];
+	private ParsedLine parsed[] = new ParsedLine[0];
+	private int lineKinds[] = new int[0]; // the kind of each line (Assembler.EMPTY_LINE, ...)
+	private int lineSymbols[] = new int[0]; // the symbol declared by each line
+	private int lineStarts[] = new int[1]; // the position of the first word of each line (and the size in the end)
+	private int linesCount;
+
+	// the words of the program: object program and the executable
+	private byte kinds[] = new byte[0];
+	private int values[] = new int[0];
+	private int executable[] = new int[0];
+	private int size;
+
+	private int addresses[] = new int[0]; // the address of each symbol, by the symbol id
+	private boolean valid; // the last assembly had no errors
+
+	// statistics of the last assembly
+	private int firstChangedLine;
+	private int changedLines;
+	private int parsedLines;
+
+	public SymbolTable getSymbols() {
+		return parser.getSymbols();
+	}
+
+	/**
+	 * This method assembles the source, reusing the previous assembly
+	 *
+	 * @param source
+	 * @return false if some variable or label is not declared
+	 */
+	public boolean assemble(List<String> source) {
+		int oldCount = linesCount;
+		int newCount = source.size();
+
+		// the unchanged lines in the begin and in the end
+		int prefix = unchangedPrefix(source);
+		int suffix = unchangedSuffix(source, prefix);
+		firstChangedLine = prefix;
+		changedLines = newCount - prefix - suffix;
+		parsedLines = 0;
+
+		// the changed lines
+		ParsedLine middle[] = new ParsedLine[changedLines];
+		int middleWords = 0;
+		boolean declarations = false; // some label or variable declaration was changed
+		for (int i = 0; i < changedLines; i++) {
+			middle[i] = parse(source.get(prefix + i));
+			middleWords += middle[i].values.length;
+			declarations |= middle[i].kind >= Assembler.LABEL_LINE;
+		}
+		for (int i = prefix; i < oldCount - suffix; i++) {
+			declarations |= lineKinds[i] >= Assembler.LABEL_LINE;
+		}
+
+		// moving the unchanged lines in the end, and their words
+		int start = lineStarts[prefix];
+		int oldEnd = lineStarts[oldCount - suffix];
+		int delta = middleWords - (oldEnd - start);
+		ensureLines(newCount);
+		ensureWords(size + delta);
+		if (newCount != oldCount) {
+			moveLines(oldCount - suffix, newCount - suffix, suffix);
+		}
+		if (delta != 0) {
+			for (int i = newCount - suffix; i <= newCount; i++)
+				lineStarts[i] += delta;
+			System.arraycopy(kinds, oldEnd, kinds, oldEnd + delta, size - oldEnd);
+			System.arraycopy(values, oldEnd, values, oldEnd + delta, size - oldEnd);
+			System.arraycopy(executable, oldEnd, executable, oldEnd + delta, size - oldEnd);
+			size += delta;
+		}
+		linesCount = newCount;
+
+		// the words of the changed lines
+		int position = start;
+		for (int i = 0; i < changedLines; i++) {
+			int line = prefix + i;
+			lines[line] = source.get(line);
+			parsed[line] = middle[i];
+			lineKinds[line] = middle[i].kind;
+			lineSymbols[line] = middle[i].symbol;
+			lineStarts[line] = position;
+			System.arraycopy(middle[i].kinds, 0, kinds, position, middle[i].kinds.length);
+			System.arraycopy(middle[i].values, 0, values, position, middle[i].values.length);
+			position += middle[i].values.length;
+		}
+
+		// the addresses change only if some declaration changed or the labels moved.
+		// Out of the changed lines, only the symbols whose address changed are replaced again
+		boolean changed = (declarations || (delta != 0)) && updateAddresses();
+		boolean ok = resolve(start, position);
+		if (changed || !valid) {
+			ok = resolve(0, start) && ok;
+			ok = resolve(position, size) && ok;
+		}
+		valid = ok;
+		trimCache();
+		return ok;
+	}
+
+	private void moveLines(int from, int to, int count) {
+		System.arraycopy(lines, from, lines, to, count);
+		System.arraycopy(parsed, from, parsed, to, count);
+		System.arraycopy(lineKinds, from, lineKinds, to, count);
+		System.arraycopy(lineSymbols, from, lineSymbols, to, count);
+		System.arraycopy(lineStarts, from, lineStarts, to, count + 1);
+	}
+
+	private int unchangedPrefix(List<String> source) {
+		int count = Math.min(linesCount, source.size());
+		int prefix = 0;
+		while ((prefix < count) && sameLine(lines[prefix], source.get(prefix)))
+			prefix++;
+		return prefix;
+	}
+
+	private int unchangedSuffix(List<String> source, int prefix) {
+		int count = Math.min(linesCount, source.size()) - prefix;
+		int oldLast = linesCount - 1;
+		int newLast = source.size() - 1;
+		int suffix = 0;
+		while ((suffix < count) && sameLine(lines[oldLast - suffix], source.get(newLast - suffix)))
+			suffix++;
+		return suffix;
+	}
+
+	private static boolean sameLine(String a, String b) {
+		return (a == b) || a.equals(b);
+	}
+
+	/**
+	 * This method returns the parse result of a line, parsing it only if it isn't in the cache
+	 *
+	 * @param line
+	 * @return
+	 */
+	private ParsedLine parse(String line) {
+		ParsedLine p = cache.get(line);
+		if (p == null) {
+			lineWords.clear();
+			int kind = parser.parseLine(line, lineWords);
+			p = new ParsedLine(kind, parser.getDeclaredSymbol(), lineWords);
+			cache.put(line, p);
+			parsedLines++;
+		}
+		return p;
+	}
+
+	/**
+	 * This method computes the addresses of all symbols, as the Assembler does:
+	 * the variables from the end of the memory downwards, then the labels
+	 * (the first declaration of a name is the one used)
+	 *
+	 * @return true if some address is different from the previous assembly
+	 */
+	private boolean updateAddresses() {
+		int newAddresses[] = new int[getSymbols().size()];
+		Arrays.fill(newAddresses, -1);
+		int variable = parser.getMemorySize() - 1;
+		for (int i = 0; i < linesCount; i++) {
+			if (lineKinds[i] == Assembler.VARIABLE_LINE) {
+				if (newAddresses[lineSymbols[i]] < 0)
+					newAddresses[lineSymbols[i]] = variable;
+				variable--;
+			}
+		}
+		for (int i = 0; i < linesCount; i++) {
+			if ((lineKinds[i] == Assembler.LABEL_LINE) && (newAddresses[lineSymbols[i]] < 0))
+				newAddresses[lineSymbols[i]] = lineStarts[i];
+		}
+		boolean changed = addresses.length != newAddresses.length;
+		for (int s = 0; (s < addresses.length) && !changed; s++) {
+			changed = addresses[s] != newAddresses[s];
+		}
+		addresses = newAddresses;
+		return changed;
+	}
+
+	/**
+	 * This method makes the executable words in a range of the program
+	 *
+	 * @param from
+	 * @param to
+	 * @return false if some variable or label is not declared
+	 */
+	private boolean resolve(int from, int to) {
+		boolean ok = true;
+		for (int i = from; i < to; i++) {
+			if (kinds[i] == ObjectProgram.SYMBOL) {
+				// symbols added by the changed lines have no address yet: they are not declared
+				executable[i] = (values[i] < addresses.length) ? addresses[values[i]] : -1;
+				if ((executable[i] < 0) && ok) {
+					System.out.println("FATAL ERROR! Variable or label " + getSymbols().getName(values[i]) + " not declared!");
+					ok = false;
+				}
+			} else
+				executable[i] = values[i];
+		}
+		return ok;
+	}
+
+	private void ensureLines(int count) {
+		if (count > lines.length) {
+			int capacity = Math.max(count, lines.length * 2);
+			lines = Arrays.copyOf(lines, capacity);
+			parsed = Arrays.copyOf(parsed, capacity);
+			lineKinds = Arrays.copyOf(lineKinds, capacity);
+			lineSymbols = Arrays.copyOf(lineSymbols, capacity);
+			lineStarts = Arrays.copyOf(lineStarts, capacity + 1);
+		}
+	}
+
+	private void ensureWords(int count) {
+		if (count > kinds.length) {
+			int capacity = Math.max(count, kinds.length * 2);
+			kinds = Arrays.copyOf(kinds, capacity);
+			values = Arrays.copyOf(values, capacity);
+			executable = Arrays.copyOf(executable, capacity);
+		}
+	}
+
+	/**
+	 * This method removes from the cache the lines not in the source anymore,
+	 * when the cache gets too big
+	 */
+	private void trimCache() {
+		if (cache.size() <= 2 * linesCount + 1024)
+			return;
+		cache.clear();
+		for (int i = 0; i < linesCount; i++) {
+			cache.put(lines[i], parsed[i]);
+		}
+	}
+
+	/**
+	 * This method returns the machine code of the last assembly, including the -1 end flag
+	 *
+	 * @return
+	 */
+	public int[] getExecutable() {
+		int result[] = Arrays.copyOf(executable, size + 1);
+		result[size] = -1; // -1 is a flag indicating that the program is finished
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getFirstChangedLine() {
+		return firstChangedLine;
+	}
+
+	/**
+	 * This method returns how many lines were taken again in the last assembly
+	 * (between the first and the last changed lines)
+	 *
+	 * @return
+	 */
+	public int getChangedLines() {
+		return changedLines;
+	}
+
+	/**
+	 * This method returns how many lines were really parsed (not found in the cache) in the last assembly
+	 *
+	 * @return
+	 */
+	public int getParsedLines() {
+		return parsedLines;
+	}
+
+}
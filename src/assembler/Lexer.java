@@ -0,0 +1,243 @@
+package assembler;
+
+import java.util.List;
+
+/**
+ * This class splits the assembly source into typed tokens, scanning a char buffer.
+ * No String is created while scanning: mnemonics and registers are identified by
+ * their ids, immediates are converted to int and the other names (variables and labels)
+ * are interned in a symbol table, by id.
+ *
+ * Spaces, tabs and commas separate the tokens; "//" or ";" starts a comment that
+ * goes until the end of the line. An indexed operand, offset(%name), is a single token:
+ * the offset is a number, a name or nothing (zero).
+ *
+ * Usage:
+ * lexer.reset(buffer, 0, length);
+ * while (lexer.next() != Lexer.EOF) { ... lexer.kind, lexer.value ... }
+ */
+public class Lexer {
+
+	// token kinds
+	public static final int EOF = 0; // end of the buffer
+	public static final int EOL = 1; // end of a line
+	public static final int MNEMONIC = 2; // value is the mnemonic id
+	public static final int REGISTER = 3; // %name. value is the register id (-1 if unknown)
+	public static final int IMMEDIATE = 4; // a number. value is the number
+	public static final int SYMBOL = 5; // a name. value is the symbol id
+	public static final int LABEL = 6; // name: value is the symbol id
+	public static final int INDEXED = 7; // offset(%name). value is the register id (-1 if unknown)
+
+	private SymbolTable mnemonics = new SymbolTable();
+	private SymbolTable registers = new SymbolTable();
+	private SymbolTable symbols;
+
+	private char buf[];
+	private int pos;
+	private int end;
+	private char lineBuffer[] = new char[128]; // used when scanning a single line
+
+	// the current token
+	public int kind;
+	public int value;
+	public boolean memory; // the token was prefixed by & (memory reference)
+	public int offset; // INDEXED: the offset number, or the symbol id of the offset name
+	public boolean offsetSymbol; // INDEXED: the offset is a name
+	public int start; // position of the token text (including & % and :) in the buffer
+	public int length;
+
+	/**
+	 * @param mnemonicNames the id of each mnemonic is its position in this list
+	 * @param registerNames the id of each register is its position in this list
+	 * @param symbols the table where the variables and labels are interned
+	 */
+	public Lexer(List<String> mnemonicNames, List<String> registerNames, SymbolTable symbols) {
+		for (String m : mnemonicNames) {
+			mnemonics.intern(m);
+		}
+		for (String r : registerNames) {
+			registers.intern(r);
+		}
+		this.symbols = symbols;
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	public char[] getBuffer() {
+		return buf;
+	}
+
+	/**
+	 * This method starts the scanning of a part of a buffer
+	 * @param buf
+	 * @param off
+	 * @param len
+	 */
+	public void reset(char buf[], int off, int len) {
+		this.buf = buf;
+		this.pos = off;
+		this.end = off + len;
+	}
+
+	/**
+	 * This method starts the scanning of a single line.
+	 * The line is copied into an internal buffer, reused between lines
+	 * @param line
+	 */
+	public void reset(String line) {
+		int len = line.length();
+		if (len > lineBuffer.length)
+			lineBuffer = new char[Math.max(len, lineBuffer.length * 2)];
+		line.getChars(0, len, lineBuffer, 0);
+		reset(lineBuffer, 0, len);
+	}
+
+	/**
+	 * This method scans the next token
+	 * @return the token kind
+	 */
+	public int next() {
+		memory = false;
+		value = 0;
+		offset = 0;
+		offsetSymbol = false;
+		// skipping separators and comments
+		while (pos < end) {
+			char c = buf[pos];
+			if ((c == ' ') || (c == '\t') || (c == ',') || (c == '\r')) {
+				pos++;
+			} else if ((c == ';') || ((c == '/') && (pos + 1 < end) && (buf[pos + 1] == '/'))) {
+				while ((pos < end) && (buf[pos] != '\n')) {
+					pos++;
+				}
+			} else
+				break;
+		}
+		start = pos;
+		if (pos >= end) {
+			length = 0;
+			return kind = EOF;
+		}
+		if (buf[pos] == '\n') {
+			pos++;
+			length = 1;
+			return kind = EOL;
+		}
+		while ((pos < end) && !isSeparator(buf[pos])) {
+			pos++;
+		}
+		length = pos - start;
+		return kind = classify();
+	}
+
+	private static boolean isSeparator(char c) {
+		return (c == ' ') || (c == '\t') || (c == ',') || (c == '\r') || (c == '\n') || (c == ';');
+	}
+
+	private int classify() {
+		int off = start;
+		int len = length;
+		if (buf[off] == '%') {
+			value = registers.find(buf, off + 1, len - 1);
+			return REGISTER;
+		}
+		if (isIndexed(off, len))
+			return INDEXED;
+		if ((buf[off] == '&') && (len > 1)) {
+			memory = true;
+			off++;
+			len--;
+		}
+		if (isNumber(off, len)) {
+			value = parseNumber(off, len);
+			return IMMEDIATE;
+		}
+		if (!memory && (len > 1) && (buf[off + len - 1] == ':')) {
+			value = symbols.intern(buf, off, len - 1);
+			return LABEL;
+		}
+		if (!memory) {
+			int m = mnemonics.find(buf, off, len);
+			if (m >= 0) {
+				value = m;
+				return MNEMONIC;
+			}
+		}
+		value = symbols.intern(buf, off, len);
+		return SYMBOL;
+	}
+
+	/**
+	 * This method checks if the token is offset(%name), setting value, offset and offsetSymbol
+	 */
+	private boolean isIndexed(int off, int len) {
+		int close = off + len - 1;
+		if (buf[close] != ')')
+			return false;
+		int open = off;
+		while ((open < close) && (buf[open] != '(')) {
+			open++;
+		}
+		if ((open == close) || (open + 1 == close) || (buf[open + 1] != '%'))
+			return false;
+		value = registers.find(buf, open + 2, close - open - 2);
+		int offsetLength = open - off;
+		if (offsetLength == 0) {
+			offset = 0;
+		} else if (isNumber(off, offsetLength)) {
+			offset = parseNumber(off, offsetLength);
+		} else {
+			offset = symbols.intern(buf, off, offsetLength);
+			offsetSymbol = true;
+		}
+		return true;
+	}
+
+	private boolean isNumber(int off, int len) {
+		int i = off;
+		if ((buf[i] == '-') || (buf[i] == '+'))
+			i++;
+		if (i == off + len)
+			return false;
+		for (; i < off + len; i++) {
+			if ((buf[i] < '0') || (buf[i] > '9'))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method converts the number as Integer.parseInt would, accumulating it as
+	 * a negative value so that Integer.MIN_VALUE is accepted
+	 * @throws IllegalArgumentException if the number does not fit in an int
+	 */
+	private int parseNumber(int off, int len) {
+		int i = off;
+		boolean negative = false;
+		if ((buf[i] == '-') || (buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int n = 0;
+		for (; i < off + len; i++) {
+			int digit = buf[i] - '0';
+			if ((n < limit / 10) || (n * 10 < limit + digit))
+				throw new IllegalArgumentException("Number out of range: " + new String(buf, off, len));
+			n = n * 10 - digit;
+		}
+		return negative ? n : -n;
+	}
+
+	/**
+	 * This method returns the text of the current token (as written in the source).
+	 * It creates a String, so it must not be used in the hot paths
+	 * @return
+	 */
+	public String text() {
+		return new String(buf, start, length);
+	}
+
+}
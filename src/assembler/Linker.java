@@ -0,0 +1,178 @@
+package assembler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import architecture.Architecture;
+
+/**
+ * This class joins object modules into a single executable.
+ * The code of the modules is put in the order they were added, starting in the address 0
+ * (so the first module is the one that runs first). The variables of all modules are put from
+ * the end of the memory downwards, in the same order.
+ *
+ * The modules are read in a single pass: each module start and variables start are known when
+ * the module is reached, so its code and variables words are relocated as they are copied.
+ * The imported words are kept in a list and changed in the end, when all exports are known.
+ *
+ * The program stops when it reaches the end of the code of the last module, so the linker
+ * exports the symbol _end, the address after the code: the other modules jump to it to stop.
+ *
+ * Usage:
+ * Linker linker = new Linker();
+ * linker.add(ObjectModule.read("main"));
+ * linker.add(ObjectModule.read("library"));
+ * if (linker.link())
+ *     linker.getExecutable();
+ */
+public class Linker {
+
+	public static final String END_SYMBOL = "_end"; // the address after the code of all modules
+	private static final int AMBIGUOUS = -2; // a symbol exported by more than one module
+
+	private ArrayList<ObjectModule> modules = new ArrayList<>();
+	private int memorySize;
+	private int executable[];
+
+	public Linker() {
+		this(new Architecture().getMemorySize());
+	}
+
+	public Linker(int memorySize) {
+		this.memorySize = memorySize;
+	}
+
+	public void add(ObjectModule module) {
+		modules.add(module);
+	}
+
+	/**
+	 * This method makes the executable from the modules
+	 *
+	 * @return false if some imported symbol is not exported by a single module or the
+	 *         program doesn't fit into the memory
+	 */
+	public boolean link() {
+		executable = null;
+		int codeSize = 0;
+		int variablesCount = 0;
+		for (ObjectModule module : modules) {
+			codeSize += module.size();
+			variablesCount += module.getVariablesCount();
+		}
+		if (codeSize + variablesCount > memorySize) {
+			System.out.println("FATAL ERROR! The program (" + codeSize + " words) and the variables ("
+					+ variablesCount + ") don't fit into the memory!");
+			return false;
+		}
+		int words[] = new int[codeSize + 1];
+		HashMap<String, Integer> addresses = new HashMap<>(); // the exported symbols
+		ArrayList<Integer> importPositions = new ArrayList<>(); // the imported words, changed in the end
+		ArrayList<String> importNames = new ArrayList<>();
+		ArrayList<String> importModules = new ArrayList<>();
+		int codeStart = 0;
+		int variablesStart = 0;
+		for (ObjectModule module : modules) {
+			for (int i = 0; i < module.size(); i++) {
+				words[codeStart + i] = module.getWord(i);
+			}
+			for (int r = 0; r < module.getRelocationsCount(); r++) {
+				int position = codeStart + module.getRelocationPosition(r);
+				switch (module.getRelocationKind(r)) {
+					case ObjectModule.CODE:
+						words[position] += codeStart;
+						break;
+					case ObjectModule.DATA:
+						words[position] = variableAddress(variablesStart + words[position]);
+						break;
+					default:
+						importPositions.add(position);
+						importNames.add(module.getImportName(words[position]));
+						importModules.add(module.getName());
+						break;
+				}
+			}
+			for (int e = 0; e < module.getExportsCount(); e++) {
+				int value = module.getExportValue(e);
+				int address = (module.getExportKind(e) == ObjectModule.CODE) ? codeStart + value
+						: variableAddress(variablesStart + value);
+				String name = module.getExportName(e);
+				addresses.put(name, addresses.containsKey(name) ? AMBIGUOUS : address);
+			}
+			codeStart += module.size();
+			variablesStart += module.getVariablesCount();
+		}
+		addresses.put(END_SYMBOL, addresses.containsKey(END_SYMBOL) ? AMBIGUOUS : codeSize);
+		boolean ok = true;
+		for (int i = 0; i < importPositions.size(); i++) {
+			String name = importNames.get(i);
+			Integer address = addresses.get(name);
+			if ((address == null) || (address == AMBIGUOUS)) {
+				System.out.println("FATAL ERROR! Symbol " + name + " used by " + importModules.get(i)
+						+ ((address == null) ? " is not exported by any module!" : " is exported by more than one module!"));
+				ok = false;
+			} else
+				words[importPositions.get(i)] = address;
+		}
+		words[codeSize] = -1; // -1 is a flag indicating that the program is finished
+		if (ok)
+			executable = words;
+		return ok;
+	}
+
+	private int variableAddress(int index) {
+		return memorySize - 1 - index;
+	}
+
+	/**
+	 * This method returns the machine code made by link, including the -1 end flag
+	 *
+	 * @return
+	 */
+	public int[] getExecutable() {
+		return executable;
+	}
+
+	/**
+	 * This method saves the executable into filename.dxf
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void saveExecFile(String filename) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(new File(filename + ".dxf")));
+		try {
+			for (int i = 0; i < executable.length - 1; i++)
+				writer.write(executable[i] + "\n");
+			writer.write("-1"); // -1 is a flag indicating that the program is finished
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Usage: Linker executable module1 [module2 ...]
+	 * The modules (.dof files, made by Assembler -c) are joined into executable.dxf
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: Linker executable module1 [module2 ...]");
+			return;
+		}
+		Linker linker = new Linker();
+		for (int i = 1; i < args.length; i++) {
+			System.out.println("Reading module: " + args[i] + ObjectModule.EXTENSION);
+			linker.add(ObjectModule.read(args[i]));
+		}
+		System.out.println("Linking executable: " + args[0] + ".dxf");
+		if (linker.link()) {
+			linker.saveExecFile(args[0]);
+			System.out.println("Finished");
+		}
+	}
+
+}
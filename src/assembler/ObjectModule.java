@@ -0,0 +1,239 @@
+package assembler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class keeps a separately assembled part of a program (an object module),
+ * made by the Assembler and joined to other modules by the Linker.
+ *
+ * The code is assembled as if the module started in the address 0 and had the only variables
+ * of the memory. The relocation entries tell the linker which words must be changed:
+ * - CODE: the word is an address in the module code (a label), the module start is added to it
+ * - DATA: the word is the index of a module variable, changed into the variable address
+ * - IMPORT: the word is the index of an imported symbol, changed into the symbol address
+ * All labels and variables of the module are exported; the symbols used and not declared
+ * in the module are imported from the other modules.
+ *
+ * The modules are kept in text files (.dof):
+ * module name
+ * words n variables m
+ * the n words, one by line
+ * export name code|data value
+ * import name
+ * relocate position code|data|import
+ */
+public class ObjectModule {
+
+	public static final String EXTENSION = ".dof";
+
+	// relocation kinds
+	public static final byte CODE = 0;
+	public static final byte DATA = 1;
+	public static final byte IMPORT = 2;
+	private static final String KIND_NAMES[] = { "code", "data", "import" };
+
+	private String name;
+	private int words[] = new int[16];
+	private int size;
+	private int variablesCount;
+
+	private ArrayList<String> exportNames = new ArrayList<>();
+	private ArrayList<Byte> exportKinds = new ArrayList<>();
+	private ArrayList<Integer> exportValues = new ArrayList<>();
+	private ArrayList<String> importNames = new ArrayList<>();
+	private ArrayList<Integer> relocationPositions = new ArrayList<>();
+	private ArrayList<Byte> relocationKinds = new ArrayList<>();
+
+	public ObjectModule(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getWord(int position) {
+		return words[position];
+	}
+
+	public void addWord(int word) {
+		if (size == words.length)
+			words = Arrays.copyOf(words, size * 2);
+		words[size++] = word;
+	}
+
+	public int getVariablesCount() {
+		return variablesCount;
+	}
+
+	public void setVariablesCount(int variablesCount) {
+		this.variablesCount = variablesCount;
+	}
+
+	/**
+	 * This method exports a symbol of the module
+	 * @param name
+	 * @param kind CODE for a label (value is its address in the module) or DATA for a variable
+	 *             (value is its index)
+	 * @param value
+	 */
+	public void addExport(String name, byte kind, int value) {
+		exportNames.add(name);
+		exportKinds.add(kind);
+		exportValues.add(value);
+	}
+
+	public int getExportsCount() {
+		return exportNames.size();
+	}
+
+	public String getExportName(int export) {
+		return exportNames.get(export);
+	}
+
+	public byte getExportKind(int export) {
+		return exportKinds.get(export);
+	}
+
+	public int getExportValue(int export) {
+		return exportValues.get(export);
+	}
+
+	/**
+	 * This method returns the index of an imported symbol, importing it if needed
+	 * @param name
+	 * @return
+	 */
+	public int importSymbol(String name) {
+		int index = importNames.indexOf(name);
+		if (index < 0) {
+			importNames.add(name);
+			index = importNames.size() - 1;
+		}
+		return index;
+	}
+
+	public int getImportsCount() {
+		return importNames.size();
+	}
+
+	public String getImportName(int index) {
+		return importNames.get(index);
+	}
+
+	/**
+	 * This method adds a relocation entry
+	 * @param position the word to be changed
+	 * @param kind CODE, DATA or IMPORT
+	 */
+	public void addRelocation(int position, byte kind) {
+		relocationPositions.add(position);
+		relocationKinds.add(kind);
+	}
+
+	public int getRelocationsCount() {
+		return relocationPositions.size();
+	}
+
+	public int getRelocationPosition(int relocation) {
+		return relocationPositions.get(relocation);
+	}
+
+	public byte getRelocationKind(int relocation) {
+		return relocationKinds.get(relocation);
+	}
+
+	/**
+	 * This method saves the module into filename.dof
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void save(String filename) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(filename + EXTENSION));
+		try {
+			writer.write("module " + name + "\n");
+			writer.write("words " + size + " variables " + variablesCount + "\n");
+			for (int i = 0; i < size; i++) {
+				writer.write(words[i] + "\n");
+			}
+			for (int e = 0; e < exportNames.size(); e++) {
+				writer.write("export " + exportNames.get(e) + " " + KIND_NAMES[exportKinds.get(e)] + " "
+						+ exportValues.get(e) + "\n");
+			}
+			for (String imported : importNames) {
+				writer.write("import " + imported + "\n");
+			}
+			for (int r = 0; r < relocationPositions.size(); r++) {
+				writer.write("relocate " + relocationPositions.get(r) + " " + KIND_NAMES[relocationKinds.get(r)] + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * This method reads a module from filename.dof
+	 * @param filename
+	 * @return
+	 * @throws IOException if the file is not a valid module
+	 */
+	public static ObjectModule read(String filename) throws IOException {
+		File file = new File(filename + EXTENSION);
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String header[] = fields(br.readLine(), 2, file);
+			ObjectModule module = new ObjectModule(header[1]);
+			String sizes[] = fields(br.readLine(), 4, file);
+			int words = Integer.parseInt(sizes[1]);
+			module.setVariablesCount(Integer.parseInt(sizes[3]));
+			for (int i = 0; i < words; i++) {
+				module.addWord(Integer.parseInt(fields(br.readLine(), 1, file)[0]));
+			}
+			String line;
+			while ((line = br.readLine()) != null) {
+				String f[] = line.trim().split(" ");
+				if ("export".equals(f[0]) && (f.length == 4))
+					module.addExport(f[1], kind(f[2], file), Integer.parseInt(f[3]));
+				else if ("import".equals(f[0]) && (f.length == 2))
+					module.importSymbol(f[1]);
+				else if ("relocate".equals(f[0]) && (f.length == 3))
+					module.addRelocation(Integer.parseInt(f[1]), kind(f[2], file));
+				else if (!line.trim().isEmpty())
+					throw new IOException("Invalid line in " + file + ": " + line);
+			}
+			return module;
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid number in " + file, e);
+		} finally {
+			br.close();
+		}
+	}
+
+	private static String[] fields(String line, int count, File file) throws IOException {
+		if (line == null)
+			throw new IOException("Incomplete module " + file);
+		String f[] = line.trim().split(" ");
+		if (f.length != count)
+			throw new IOException("Invalid line in " + file + ": " + line);
+		return f;
+	}
+
+	private static byte kind(String name, File file) throws IOException {
+		int kind = Arrays.asList(KIND_NAMES).indexOf(name);
+		if (kind < 0)
+			throw new IOException("Invalid relocation kind in " + file + ": " + name);
+		return (byte) kind;
+	}
+
+}
@@ -0,0 +1,302 @@
+package assembler;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps the object program in a typed form: each word has a kind
+ * (opcode, immediate, register or symbol) and an int value, stored in primitive arrays.
+ * The symbols (variables and labels) are kept by their ids in the assembler symbol table,
+ * until they are replaced by their addresses.
+ *
+ * The instructions are an opcode followed by its operands. The kind of each operand
+ * is given by the operands table below, indexed by the opcode (the same ids of the
+ * architecture commands list). An indexed operand, offset(%Reg), is two words: the offset
+ * (a number, or a symbol for its address) and the register.
+ */
+public class ObjectProgram {
+
+	// word kinds
+	public static final byte OPCODE = 0;
+	public static final byte IMMEDIATE = 1; // a number
+	public static final byte REGISTER = 2; // value is the register id
+	public static final byte SYMBOL = 3; // a memory address (variable or label). value is the symbol id
+
+	private static final byte R = REGISTER;
+	private static final byte M = SYMBOL;
+	private static final byte I = IMMEDIATE;
+
+	// the operand kinds of each opcode
+	private static final byte OPERANDS[][] = {
+			{ R, R }, // 0 addRegReg
+			{ M, R }, // 1 addMemReg
+			{ R, M }, // 2 addRegMem
+			{ R, R }, // 3 subRegReg
+			{ M, R }, // 4 subMemReg
+			{ R, M }, // 5 subRegMem
+			{ M, R }, // 6 imulMemReg
+			{ R, M }, // 7 imulRegMem
+			{ R, R }, // 8 imulRegReg
+			{ M, R }, // 9 moveMemReg
+			{ R, M }, // 10 moveRegMem
+			{ R, R }, // 11 moveRegReg
+			{ I, R }, // 12 moveImmReg
+			{ R }, // 13 incReg
+			{ M }, // 14 incMem
+			{ M }, // 15 jmp
+			{ M }, // 16 jn
+			{ M }, // 17 jz
+			{ M }, // 18 jnz
+			{ R, R, M }, // 19 jeq
+			{ R, R, M }, // 20 jgt
+			{ R, R, M }, // 21 jlw
+			{ R, I }, // 22 ldi
+			{ M, R }, // 23 read
+			{ R, M }, // 24 store
+			{ R, R, R }, // 25 copy
+			{ R, R, R }, // 26 fill
+			{ I, R, R }, // 27 moveIdxReg (offset, base register, destination)
+			{ R, I, R }, // 28 moveRegIdx (source, offset, base register)
+			{ I, R, R }, // 29 addIdxReg
+			{ I, R, R }, // 30 subIdxReg
+			{ I, R }, // 31 addImmReg
+			{ I, R }, // 32 subImmReg
+			{ I, R }, // 33 cmpImmReg
+			{ R, M }, // 34 loop
+			{ R }, // 35 shl
+			{ R }, // 36 shr
+			{ R }, // 37 rol
+			{ R, R }, // 38 and
+			{ R, R }, // 39 or
+			{ R, R }, // 40 xor
+			{ M, R }, // 41 idivMemReg
+			{ R, M }, // 42 idivRegMem
+			{ R, R }, // 43 idivRegReg
+			{ M, R }, // 44 imodMemReg
+			{ R, M }, // 45 imodRegMem
+			{ R, R }, // 46 imodRegReg
+			{ R } // 47 ror
+	};
+
+	private byte kinds[];
+	private int values[];
+	private int size;
+
+	public ObjectProgram() {
+		kinds = new byte[256];
+		values = new int[256];
+	}
+
+	private ObjectProgram(ObjectProgram other) {
+		kinds = Arrays.copyOf(other.kinds, Math.max(other.size, 16));
+		values = Arrays.copyOf(other.values, Math.max(other.size, 16));
+		size = other.size;
+	}
+
+	/**
+	 * This method checks if a number is a known opcode
+	 * @param opcode
+	 * @return
+	 */
+	public static boolean isOpcode(int opcode) {
+		return (opcode >= 0) && (opcode < OPERANDS.length);
+	}
+
+	public static int operandsCount(int opcode) {
+		return OPERANDS[opcode].length;
+	}
+
+	/**
+	 * This method returns the kind (REGISTER, SYMBOL or IMMEDIATE) of an operand of an opcode
+	 * @param opcode
+	 * @param operand the operand position, starting from 0
+	 * @return
+	 */
+	public static byte operandKind(int opcode, int operand) {
+		return OPERANDS[opcode][operand];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte getKind(int position) {
+		return kinds[position];
+	}
+
+	public int getValue(int position) {
+		return values[position];
+	}
+
+	public void set(int position, byte kind, int value) {
+		kinds[position] = kind;
+		values[position] = value;
+	}
+
+	public void add(byte kind, int value) {
+		if (size == kinds.length) {
+			kinds = Arrays.copyOf(kinds, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		kinds[size] = kind;
+		values[size] = value;
+		size++;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * This method removes the words after the size
+	 * @param size
+	 */
+	public void truncate(int size) {
+		if (size < this.size)
+			this.size = size;
+	}
+
+	public ObjectProgram copy() {
+		return new ObjectProgram(this);
+	}
+
+	/**
+	 * This method returns the position of the instruction after the one in the position.
+	 * Words that are not opcodes are skipped one by one
+	 * @param position
+	 * @return
+	 */
+	public int nextInstruction(int position) {
+		if ((kinds[position] == OPCODE) && isOpcode(values[position]))
+			return position + 1 + operandsCount(values[position]);
+		return position + 1;
+	}
+
+	/**
+	 * This method marks the positions where the labels point
+	 * @param labelAddresses the address of each label, by the symbol id (-1 for the symbols that aren't labels)
+	 * @return the marks, from 0 to the size (the end of the program)
+	 */
+	public boolean[] labelPositions(int labelAddresses[]) {
+		boolean labelAt[] = new boolean[size + 1];
+		for (int address : labelAddresses) {
+			if ((address >= 0) && (address <= size))
+				labelAt[address] = true;
+		}
+		return labelAt;
+	}
+
+	/**
+	 * This method removes the instructions not kept, moving the labels
+	 * @see #compact(boolean[], ObjectProgram[], int[])
+	 */
+	public int[] compact(boolean keep[], int labelAddresses[]) {
+		return compact(keep, null, labelAddresses);
+	}
+
+	/**
+	 * This method rewrites the program instruction by instruction: each one is kept, removed or
+	 * replaced by other words. The labels pointing to a removed instruction are moved to the
+	 * next instruction left
+	 * @param keep marks the first word of the instructions kept
+	 * @param replacements the words put in the place of the instruction in each position
+	 *                     (null for the instructions not replaced, or no array at all)
+	 * @param labelAddresses the address of each label, by the symbol id (-1 for the symbols that
+	 *                       aren't labels). The addresses are updated
+	 * @return the new position of each word of the old program, and of its end
+	 */
+	public int[] compact(boolean keep[], ObjectProgram replacements[], int labelAddresses[]) {
+		ObjectProgram old = copy();
+		int oldSize = size;
+		int positions[] = new int[oldSize + 1];
+		size = 0;
+		int i = 0;
+		while (i < oldSize) {
+			int next = Math.min(old.nextInstruction(i), oldSize);
+			for (int w = i; w < next; w++) {
+				positions[w] = size;
+			}
+			ObjectProgram replacement = (replacements == null) ? null : replacements[i];
+			if (replacement != null) {
+				for (int w = 0; w < replacement.size; w++) {
+					add(replacement.kinds[w], replacement.values[w]);
+				}
+			} else if (keep[i]) {
+				for (int w = i; w < next; w++) {
+					add(old.kinds[w], old.values[w]);
+				}
+			}
+			i = next;
+		}
+		positions[oldSize] = size;
+		for (int s = 0; s < labelAddresses.length; s++) {
+			if ((labelAddresses[s] >= 0) && (labelAddresses[s] <= oldSize))
+				labelAddresses[s] = positions[labelAddresses[s]];
+		}
+		return positions;
+	}
+
+	/**
+	 * This method replaces all occurrences of a symbol by an address
+	 * @param symbol
+	 * @param address
+	 */
+	public void resolve(int symbol, int address) {
+		for (int i = 0; i < size; i++) {
+			if ((kinds[i] == SYMBOL) && (values[i] == symbol)) {
+				kinds[i] = IMMEDIATE;
+				values[i] = address;
+			}
+		}
+	}
+
+	/**
+	 * This method replaces, in a single pass, all symbols by their addresses.
+	 * The symbols with negative addresses (unknown) are kept
+	 * @param addresses the address of each symbol, by the symbol id
+	 */
+	public void resolveSymbols(int addresses[]) {
+		for (int i = 0; i < size; i++) {
+			if ((kinds[i] == SYMBOL) && (values[i] < addresses.length) && (addresses[values[i]] >= 0)) {
+				kinds[i] = IMMEDIATE;
+				values[i] = addresses[values[i]];
+			}
+		}
+	}
+
+	/**
+	 * This method replaces all registers by their ids
+	 */
+	public void resolveRegisters() {
+		for (int i = 0; i < size; i++) {
+			if (kinds[i] == REGISTER)
+				kinds[i] = IMMEDIATE;
+		}
+	}
+
+	/**
+	 * This method returns the position of the first symbol not replaced by an address, or -1
+	 * @return
+	 */
+	public int firstUnresolved() {
+		for (int i = 0; i < size; i++) {
+			if (kinds[i] == SYMBOL)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * This method returns the machine code, including the -1 end flag.
+	 * All symbols must be already replaced by their addresses
+	 * @return
+	 */
+	public int[] toExecutable() {
+		int unresolved = firstUnresolved();
+		if (unresolved >= 0)
+			throw new IllegalStateException("Symbol not replaced by an address in the position " + unresolved);
+		int executable[] = Arrays.copyOf(values, size + 1);
+		executable[size] = -1; // -1 is a flag indicating that the program is finished
+		return executable;
+	}
+
+}
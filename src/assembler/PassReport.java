@@ -0,0 +1,37 @@
+package assembler;
+
+/**
+ * The words of a program before and after a pass (see ProgramPass).
+ * Each pass extends it with what its rules changed
+ */
+public abstract class PassReport {
+
+	private final int wordsBefore;
+	private final int wordsAfter;
+
+	protected PassReport(int wordsBefore, int wordsAfter) {
+		this.wordsBefore = wordsBefore;
+		this.wordsAfter = wordsAfter;
+	}
+
+	public int getWordsBefore() {
+		return wordsBefore;
+	}
+
+	public int getWordsAfter() {
+		return wordsAfter;
+	}
+
+	public int getWordsSaved() {
+		return wordsBefore - wordsAfter;
+	}
+
+	/**
+	 * This method returns the words part of the report text
+	 * @return
+	 */
+	protected String words() {
+		return "words: " + wordsBefore + " -> " + wordsAfter;
+	}
+
+}
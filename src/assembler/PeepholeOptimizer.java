@@ -0,0 +1,236 @@
+package assembler;
+
+import java.util.Arrays;
+
+import architecture.CycleModel;
+
+/**
+ * This class removes useless instructions from the object program, looking at each
+ * instruction and its neighbour (peephole):
+ * - self moves: move %A %A
+ * - jumps to the next instruction: jmp label, where label is the next instruction
+ * - overwritten moves: a move into a register followed by another move into the same register
+ * (not reading it), as in move 1 %A / move 2 %A
+ * - moves back: move %A %B followed by move %B %A (if no jump can land between them)
+ * - increment runs: n (two or more) inc %A in a row, with no label after the first, replaced by add n %A
+ * None of the removed instructions changes the flags, and add n %A leaves the register and the flags as
+ * the last inc would, so the conditional jumps are never changed.
+ *
+ * The labels pointing to removed instructions are moved to the next instruction left.
+ * The passes are repeated until nothing else can be removed.
+ */
+public class PeepholeOptimizer extends ProgramPass {
+
+	// the rules
+	public static final int SELF_MOVE = 0;
+	public static final int JUMP_TO_NEXT = 1;
+	public static final int OVERWRITTEN_MOVE = 2;
+	public static final int MOVE_BACK = 3;
+	public static final int INC_RUN = 4;
+	private static final String RULE_NAMES[] = { "self moves", "jumps to next", "overwritten moves", "moves back",
+			"merged increments" };
+
+	// opcodes used by the rules
+	private static final int MOVE_MEM_REG = 9;
+	private static final int MOVE_REG_REG = 11;
+	private static final int MOVE_IMM_REG = 12;
+	private static final int INC_REG = 13;
+	private static final int JMP = 15;
+	private static final int ADD_IMM_REG = 31;
+
+	/**
+	 * The words and the modeled cycles of a program before and after the optimization
+	 */
+	public static class Report extends PassReport {
+		private final long cyclesBefore;
+		private final long cyclesAfter;
+		private final int removed[];
+
+		Report(int wordsBefore, int wordsAfter, long cyclesBefore, long cyclesAfter, int removed[]) {
+			super(wordsBefore, wordsAfter);
+			this.cyclesBefore = cyclesBefore;
+			this.cyclesAfter = cyclesAfter;
+			this.removed = removed;
+		}
+
+		public long getCyclesBefore() {
+			return cyclesBefore;
+		}
+
+		public long getCyclesAfter() {
+			return cyclesAfter;
+		}
+
+		public long getCyclesSaved() {
+			return cyclesBefore - cyclesAfter;
+		}
+
+		/**
+		 * This method returns how many instructions were removed by a rule
+		 * @param rule
+		 * @return
+		 */
+		public int getRemoved(int rule) {
+			return removed[rule];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			s.append(words());
+			s.append(" (").append(getWordsSaved()).append(" saved), modeled cycles: ");
+			s.append(cyclesBefore).append(" -> ").append(cyclesAfter);
+			s.append(" (").append(getCyclesSaved()).append(" saved)");
+			for (int r = 0; r < removed.length; r++) {
+				s.append(", ").append(RULE_NAMES[r]).append(": ").append(removed[r]);
+			}
+			return s.toString();
+		}
+	}
+
+	private int removed[] = new int[RULE_NAMES.length];
+
+	public PeepholeOptimizer(ObjectProgram program, int labelAddresses[]) {
+		super(program, labelAddresses);
+	}
+
+	/**
+	 * This method optimizes the program
+	 * @return
+	 */
+	public Report optimize() {
+		int wordsBefore = program.size();
+		long cyclesBefore = cycles(program);
+		while (pass())
+			;
+		return new Report(wordsBefore, program.size(), cyclesBefore, cycles(program), removed.clone());
+	}
+
+	/**
+	 * This method returns the modeled cycles of a program, running each instruction once
+	 * @param program
+	 * @return
+	 */
+	public static long cycles(ObjectProgram program) {
+		long cycles = 0;
+		for (int i = 0; i < program.size(); i = program.nextInstruction(i)) {
+			if ((program.getKind(i) == ObjectProgram.OPCODE) && ObjectProgram.isOpcode(program.getValue(i)))
+				cycles += CycleModel.cycles(program.getValue(i));
+		}
+		return cycles;
+	}
+
+	/**
+	 * This method runs all rules once over the program
+	 * @return true if some instruction was removed
+	 */
+	private boolean pass() {
+		int size = program.size();
+		boolean labelAt[] = program.labelPositions(labelAddresses);
+		boolean keep[] = new boolean[size];
+		Arrays.fill(keep, true);
+		ObjectProgram merged[] = new ObjectProgram[size]; // the add n %A replacing each increment run
+		boolean changed = false;
+		int previous = -1;
+		for (int i = 0; i < size; i = program.nextInstruction(i)) {
+			int next = program.nextInstruction(i);
+			if (next > size) // an incomplete instruction in the end
+				break;
+			int run = incRun(i, labelAt);
+			if (run >= 2) {
+				merged[i] = new ObjectProgram();
+				merged[i].add(ObjectProgram.OPCODE, ADD_IMM_REG);
+				merged[i].add(ObjectProgram.IMMEDIATE, run);
+				merged[i].add(ObjectProgram.REGISTER, program.getValue(i + 1));
+				for (int n = 1; n < run; n++) {
+					i = program.nextInstruction(i);
+					keep[i] = false;
+				}
+				removed[INC_RUN] += run - 1;
+				changed = true;
+				previous = i;
+				continue;
+			}
+			int rule = -1;
+			if ((source(i) >= 0) && (destination(i) == source(i)))
+				rule = SELF_MOVE;
+			else if (isOpcode(i, JMP) && (target(i) == next))
+				rule = JUMP_TO_NEXT;
+			if (rule >= 0) {
+				keep[i] = false;
+				removed[rule]++;
+				changed = true;
+			} else if ((previous >= 0) && keep[previous] && isMove(previous) && isMove(i)) {
+				if ((destination(i) >= 0) && (destination(i) == destination(previous)) && (source(i) != destination(i))) {
+					keep[previous] = false;
+					removed[OVERWRITTEN_MOVE]++;
+					changed = true;
+				} else if (isOpcode(previous, MOVE_REG_REG) && isOpcode(i, MOVE_REG_REG) && !labelAt[i]
+						&& (source(i) == destination(previous)) && (destination(i) == source(previous))) {
+					keep[i] = false;
+					removed[MOVE_BACK]++;
+					changed = true;
+				}
+			}
+			previous = i;
+		}
+		if (changed)
+			rewrite(keep, merged);
+		return changed;
+	}
+
+	/**
+	 * This method returns how many inc %A are in a row from a position (0 if there is no inc there).
+	 * A label after the first one ends the run, as a jump can land there
+	 */
+	private int incRun(int position, boolean labelAt[]) {
+		if (!isOpcode(position, INC_REG) || (program.getKind(position + 1) != ObjectProgram.REGISTER))
+			return 0;
+		int register = program.getValue(position + 1);
+		int run = 1;
+		int next = position + 2;
+		while ((next + 2 <= program.size()) && !labelAt[next] && isOpcode(next, INC_REG)
+				&& (program.getKind(next + 1) == ObjectProgram.REGISTER) && (program.getValue(next + 1) == register)) {
+			run++;
+			next += 2;
+		}
+		return run;
+	}
+
+	private boolean isOpcode(int position, int opcode) {
+		return (program.getKind(position) == ObjectProgram.OPCODE) && (program.getValue(position) == opcode);
+	}
+
+	/**
+	 * moves into registers: moveMemReg, moveRegReg and moveImmReg
+	 */
+	private boolean isMove(int position) {
+		return isOpcode(position, MOVE_MEM_REG) || isOpcode(position, MOVE_REG_REG) || isOpcode(position, MOVE_IMM_REG);
+	}
+
+	private int destination(int position) {
+		if (program.getKind(position + 2) != ObjectProgram.REGISTER)
+			return -2; // not a known register
+		return program.getValue(position + 2);
+	}
+
+	/**
+	 * the source register of a move (-1 if the source is not a register)
+	 */
+	private int source(int position) {
+		if (!isOpcode(position, MOVE_REG_REG) || (program.getKind(position + 1) != ObjectProgram.REGISTER))
+			return -1;
+		return program.getValue(position + 1);
+	}
+
+	/**
+	 * the address a jmp goes to, or -1 if it isn't a label
+	 */
+	private int target(int position) {
+		if (program.getKind(position + 1) != ObjectProgram.SYMBOL)
+			return -1;
+		int symbol = program.getValue(position + 1);
+		return (symbol < labelAddresses.length) ? labelAddresses[symbol] : -1;
+	}
+
+}
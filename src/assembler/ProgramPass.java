@@ -0,0 +1,52 @@
+package assembler;
+
+/**
+ * The base of the passes that change the object program while the labels are still symbols
+ * (the strength reducer, the peephole optimizer and the dead code eliminator).
+ * A pass only decides which instructions are kept, removed or replaced: the program is rewritten
+ * by ObjectProgram.compact, which also moves the labels, and the pass keeps the new position
+ * of each word of the original program.
+ */
+public abstract class ProgramPass {
+
+	protected final ObjectProgram program;
+	protected final int labelAddresses[]; // the address of each label, by the symbol id (-1 for other symbols)
+	private int offsets[]; // the new position of each word of the original program (null if nothing moved)
+
+	/**
+	 * @param program the object program, changed by the pass
+	 * @param labelAddresses the address of each label, by the symbol id (-1 for the symbols
+	 *                       that aren't labels). The addresses are updated by the pass
+	 */
+	protected ProgramPass(ObjectProgram program, int labelAddresses[]) {
+		this.program = program;
+		this.labelAddresses = labelAddresses;
+	}
+
+	/**
+	 * This method returns the new position of a word of the original program.
+	 * For a removed instruction, it is the position of the next instruction left
+	 * @param position
+	 * @return
+	 */
+	public int newPosition(int position) {
+		return (offsets == null) ? position : offsets[position];
+	}
+
+	/**
+	 * This method rewrites the program (see ObjectProgram.compact), moving the labels
+	 * @param keep marks the first word of the instructions kept
+	 * @param replacements the words put in the place of the instruction in each position, or null
+	 */
+	protected void rewrite(boolean keep[], ObjectProgram replacements[]) {
+		int positions[] = program.compact(keep, replacements, labelAddresses);
+		if (offsets == null) {
+			offsets = positions;
+		} else {
+			for (int w = 0; w < offsets.length; w++) {
+				offsets[w] = positions[offsets[w]];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,289 @@
+package assembler;
+
+import architecture.CycleModel;
+
+/**
+ * This class replaces the multiplications by a constant with adds.
+ * imul runs a routine that saves and restores the registers and whose loop runs once for each
+ * bit of the multiplier (always RPG0), so an imul whose multiplier is a constant loaded by a move
+ * just before it:
+ *
+ * move 5 %RPG0
+ * move %RPG3 %RPG1 (instructions not using RPG0)
+ * imul %RPG0 %RPG1
+ *
+ * is replaced by a sequence of adds with the same results:
+ * - imul %A %RPG1 (RPG1 <- RPG1 * k): the multiplicand is doubled (add %RPG1 %RPG1) and added
+ * from a copy kept in the memory, or only added k - 1 times, what is cheaper
+ * - imul %A %B, B being RPG2 or RPG3 (B <- B + (k - 1) * RPG1): RPG1 is added k - 1 times
+ * The move into RPG0 is put after the adds, and imul ends with the flags of a zero result,
+ * so a sub %RPG0 %RPG0 is put before it (unless the next instruction sets the flags again).
+ *
+ * The copy of the multiplicand is kept in the same address imul saves RPG1, in the reserved area.
+ * Only the registers, the flags and the memory out of the reserved area are the same of imul.
+ * The labels are moved as the instructions move. The labels can't point between the move
+ * and the imul, as the multiplier could be other there.
+ */
+public class StrengthReducer extends ProgramPass {
+
+	public static final int DEFAULT_MAX_WORDS = 24; // the max words of a sequence replacing a move and an imul
+	private static final int MAX_DISTANCE = 4; // the max instructions between the move and the imul
+
+	// opcodes used by the rewriting
+	private static final int ADD_REG_REG = 0;
+	private static final int ADD_MEM_REG = 1;
+	private static final int SUB_REG_REG = 3;
+	private static final int SUB_REG_MEM = 5;
+	private static final int IMUL_MEM_REG = 6;
+	private static final int IMUL_REG_REG = 8;
+	private static final int MOVE_REG_MEM = 10;
+	private static final int MOVE_IMM_REG = 12;
+	private static final int INC_REG = 13;
+	private static final int INC_MEM = 14;
+	private static final int JMP = 15;
+	private static final int JLW = 21;
+	private static final int ADD_IDX_REG = 29;
+	private static final int CMP_IMM_REG = 33;
+	private static final int LOOP = 34;
+
+	private static final int RPG0 = 0;
+	private static final int RPG1 = 1;
+	private static final int RPG3 = 3;
+
+	/**
+	 * The imuls replaced, the words of the program and the modeled cycles of the replaced
+	 * instructions (each move and imul, with its known multiplier) before and after
+	 */
+	public static class Report extends PassReport {
+		private final int reduced;
+		private final long cyclesBefore;
+		private final long cyclesAfter;
+
+		Report(int reduced, int wordsBefore, int wordsAfter, long cyclesBefore, long cyclesAfter) {
+			super(wordsBefore, wordsAfter);
+			this.reduced = reduced;
+			this.cyclesBefore = cyclesBefore;
+			this.cyclesAfter = cyclesAfter;
+		}
+
+		public int getReduced() {
+			return reduced;
+		}
+
+		public long getCyclesBefore() {
+			return cyclesBefore;
+		}
+
+		public long getCyclesAfter() {
+			return cyclesAfter;
+		}
+
+		public long getCyclesSaved() {
+			return cyclesBefore - cyclesAfter;
+		}
+
+		@Override
+		public String toString() {
+			return "imuls replaced: " + reduced + ", " + words()
+					+ ", modeled cycles of the replaced instructions: " + cyclesBefore + " -> " + cyclesAfter
+					+ " (" + getCyclesSaved() + " saved)";
+		}
+	}
+
+	private int spillAddress; // where the multiplicand is copied
+	private int maxWords = DEFAULT_MAX_WORDS;
+
+	/**
+	 * @param spillAddress the memory address where the multiplicand can be copied
+	 */
+	public StrengthReducer(ObjectProgram program, int labelAddresses[], int spillAddress) {
+		super(program, labelAddresses);
+		this.spillAddress = spillAddress;
+	}
+
+	public void setMaxWords(int maxWords) {
+		this.maxWords = maxWords;
+	}
+
+	/**
+	 * This method replaces the imuls by a constant in the program
+	 * @return
+	 */
+	public Report reduce() {
+		int size = program.size();
+		boolean labelAt[] = program.labelPositions(labelAddresses);
+		int starts[] = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; i = program.nextInstruction(i)) {
+			starts[count++] = i;
+		}
+
+		boolean dropped[] = new boolean[size]; // the moves into RPG0 put after the sequences
+		ObjectProgram sequences[] = new ObjectProgram[size]; // the sequences replacing the imuls
+		int reduced = 0;
+		long cyclesBefore = 0;
+		long cyclesAfter = 0;
+		for (int n = 0; n < count; n++) {
+			int imul = starts[n];
+			if (!isOpcode(imul, IMUL_REG_REG) || (imul + 2 >= size))
+				continue;
+			int move = multiplierMove(starts, n, labelAt, dropped);
+			if (move < 0)
+				continue;
+			int destination = program.getValue(imul + 2);
+			int multiplier = program.getValue(move + 1);
+			int next = imul + 3;
+			boolean flagsUsed = (next >= size) || !setsFlags(next);
+			ObjectProgram sequence = sequence(destination, multiplier, flagsUsed);
+			if (sequence.size() > maxWords)
+				continue;
+			dropped[move] = true;
+			sequences[imul] = sequence;
+			reduced++;
+			cyclesBefore += CycleModel.cycles(MOVE_IMM_REG) + CycleModel.imulCycles(multiplier);
+			cyclesAfter += cycles(sequence);
+		}
+		if (reduced > 0) {
+			boolean keep[] = new boolean[size];
+			for (int i = 0; i < size; i++) {
+				keep[i] = !dropped[i];
+			}
+			rewrite(keep, sequences);
+		}
+		return new Report(reduced, size, program.size(), cyclesBefore, cyclesAfter);
+	}
+
+	/**
+	 * This method finds the move of a constant into RPG0 before an imul.
+	 * The instructions between them can't use RPG0 or jump, and no label can point to them
+	 * @param starts the instructions positions
+	 * @param n the imul index in starts
+	 * @return the move position, or -1
+	 */
+	private int multiplierMove(int starts[], int n, boolean labelAt[], boolean dropped[]) {
+		int imul = starts[n];
+		if ((program.getKind(imul + 1) != ObjectProgram.REGISTER) || (program.getKind(imul + 2) != ObjectProgram.REGISTER))
+			return -1;
+		int destination = program.getValue(imul + 2);
+		if ((destination < RPG1) || (destination > RPG3))
+			return -1;
+		for (int m = n - 1; (m >= 0) && (m >= n - 1 - MAX_DISTANCE); m--) {
+			int position = starts[m];
+			if (labelAt[starts[m + 1]] || dropped[position])
+				return -1;
+			if (isOpcode(position, MOVE_IMM_REG) && (program.getKind(position + 2) == ObjectProgram.REGISTER)
+					&& (program.getValue(position + 2) == RPG0)) {
+				if ((program.getKind(position + 1) != ObjectProgram.IMMEDIATE) || (program.getValue(position + 1) < 1))
+					return -1; // imul doesn't end with a multiplier lower than 1
+				return position;
+			}
+			if (!independent(position))
+				return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * an instruction that doesn't use RPG0, doesn't jump and isn't an imul
+	 */
+	private boolean independent(int position) {
+		if ((program.getKind(position) != ObjectProgram.OPCODE) || !ObjectProgram.isOpcode(program.getValue(position)))
+			return false;
+		int opcode = program.getValue(position);
+		if (((opcode >= JMP) && (opcode <= JLW)) || (opcode == LOOP)
+				|| ((opcode >= IMUL_MEM_REG) && (opcode <= IMUL_REG_REG)))
+			return false;
+		for (int o = 1; o <= ObjectProgram.operandsCount(opcode); o++) {
+			if ((program.getKind(position + o) == ObjectProgram.REGISTER) && (program.getValue(position + o) == RPG0))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * add, sub, inc and cmp set the flags without reading them
+	 */
+	private boolean setsFlags(int position) {
+		if (program.getKind(position) != ObjectProgram.OPCODE)
+			return false;
+		int opcode = program.getValue(position);
+		return ((opcode >= ADD_REG_REG) && (opcode <= SUB_REG_MEM)) || (opcode == INC_REG) || (opcode == INC_MEM)
+				|| ((opcode >= ADD_IDX_REG) && (opcode <= CMP_IMM_REG));
+	}
+
+	/**
+	 * This method makes the adds replacing an imul
+	 * @param destination the imul destination register
+	 * @param multiplier
+	 * @param flagsUsed the flags are read after the imul
+	 * @return
+	 */
+	private ObjectProgram sequence(int destination, int multiplier, boolean flagsUsed) {
+		ObjectProgram sequence = new ObjectProgram();
+		if (destination != RPG1) { // destination + (multiplier - 1) * RPG1
+			for (int i = 1; i < multiplier; i++) {
+				add(sequence, ADD_REG_REG, ObjectProgram.REGISTER, RPG1, ObjectProgram.REGISTER, destination);
+			}
+		} else {
+			ObjectProgram doubling = doubling(multiplier);
+			ObjectProgram adding = adding(multiplier);
+			ObjectProgram best = (cycles(doubling) <= cycles(adding)) ? doubling : adding;
+			for (int i = 0; i < best.size(); i++) {
+				sequence.add(best.getKind(i), best.getValue(i));
+			}
+		}
+		if (flagsUsed) // a zero result, as the imul routine ends
+			add(sequence, SUB_REG_REG, ObjectProgram.REGISTER, RPG0, ObjectProgram.REGISTER, RPG0);
+		add(sequence, MOVE_IMM_REG, ObjectProgram.IMMEDIATE, multiplier, ObjectProgram.REGISTER, RPG0);
+		return sequence;
+	}
+
+	/**
+	 * RPG1 * multiplier by the multiplier bits: RPG1 is doubled for each bit and the
+	 * copy of the multiplicand is added for each 1 bit (the copy is needed only if
+	 * the multiplier isn't a power of 2)
+	 */
+	private ObjectProgram doubling(int multiplier) {
+		ObjectProgram sequence = new ObjectProgram();
+		if (Integer.bitCount(multiplier) > 1)
+			add(sequence, MOVE_REG_MEM, ObjectProgram.REGISTER, RPG1, ObjectProgram.IMMEDIATE, spillAddress);
+		for (int bit = 30 - Integer.numberOfLeadingZeros(multiplier); bit >= 0; bit--) {
+			add(sequence, ADD_REG_REG, ObjectProgram.REGISTER, RPG1, ObjectProgram.REGISTER, RPG1);
+			if ((multiplier & (1 << bit)) != 0)
+				add(sequence, ADD_MEM_REG, ObjectProgram.IMMEDIATE, spillAddress, ObjectProgram.REGISTER, RPG1);
+		}
+		return sequence;
+	}
+
+	/**
+	 * RPG1 * multiplier adding the copy of the multiplicand multiplier - 1 times, as the imul routine does
+	 */
+	private ObjectProgram adding(int multiplier) {
+		ObjectProgram sequence = new ObjectProgram();
+		if (multiplier > 1)
+			add(sequence, MOVE_REG_MEM, ObjectProgram.REGISTER, RPG1, ObjectProgram.IMMEDIATE, spillAddress);
+		for (int i = 1; i < multiplier; i++) {
+			add(sequence, ADD_MEM_REG, ObjectProgram.IMMEDIATE, spillAddress, ObjectProgram.REGISTER, RPG1);
+		}
+		return sequence;
+	}
+
+	private static void add(ObjectProgram sequence, int opcode, byte kind1, int value1, byte kind2, int value2) {
+		sequence.add(ObjectProgram.OPCODE, opcode);
+		sequence.add(kind1, value1);
+		sequence.add(kind2, value2);
+	}
+
+	private static long cycles(ObjectProgram sequence) {
+		long cycles = 0;
+		for (int i = 0; i < sequence.size(); i = sequence.nextInstruction(i)) {
+			cycles += CycleModel.cycles(sequence.getValue(i));
+		}
+		return cycles;
+	}
+
+	private boolean isOpcode(int position, int opcode) {
+		return (program.getKind(position) == ObjectProgram.OPCODE) && (program.getValue(position) == opcode);
+	}
+
+}
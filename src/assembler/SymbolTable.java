@@ -0,0 +1,144 @@
+package assembler;
+
+import java.util.Arrays;
+
+/**
+ * This class gives an integer id to each different name (symbol) found in the source.
+ * The names are looked up directly from the characters of the source buffer, so
+ * finding an already known name never creates a String. The characters of the new
+ * names are copied into a single pool.
+ */
+public class SymbolTable {
+
+	private char pool[] = new char[1024];
+	private int poolSize;
+	private int starts[] = new int[64];
+	private int lengths[] = new int[64];
+	private int hashes[] = new int[64];
+	private String names[] = new String[64]; // created only when asked for
+	private int count;
+	private int slots[] = new int[128]; // open addressing: id + 1, zero means empty
+	private int mask = 127;
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * This method computes the hash of a name in the buffer
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public static int hash(char buf[], int off, int len) {
+		int h = 0;
+		for (int i = off; i < off + len; i++) {
+			h = 31 * h + buf[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * This method returns the id of the name in the buffer, or -1 if the name is unknown
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public int find(char buf[], int off, int len) {
+		int h = hash(buf, off, len);
+		for (int s = h & mask; slots[s] != 0; s = (s + 1) & mask) {
+			int id = slots[s] - 1;
+			if ((hashes[id] == h) && equals(id, buf, off, len))
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * This method returns the id of the name in the buffer, adding it if it is unknown
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public int intern(char buf[], int off, int len) {
+		int id = find(buf, off, len);
+		if (id >= 0)
+			return id;
+		return add(buf, off, len);
+	}
+
+	public int intern(String name) {
+		char buf[] = name.toCharArray();
+		return intern(buf, 0, buf.length);
+	}
+
+	public int find(String name) {
+		char buf[] = name.toCharArray();
+		return find(buf, 0, buf.length);
+	}
+
+	/**
+	 * This method returns the name of a symbol
+	 * @param id
+	 * @return
+	 */
+	public String getName(int id) {
+		if (names[id] == null)
+			names[id] = new String(pool, starts[id], lengths[id]);
+		return names[id];
+	}
+
+	private boolean equals(int id, char buf[], int off, int len) {
+		if (lengths[id] != len)
+			return false;
+		int start = starts[id];
+		for (int i = 0; i < len; i++) {
+			if (pool[start + i] != buf[off + i])
+				return false;
+		}
+		return true;
+	}
+
+	private int add(char buf[], int off, int len) {
+		if (count == starts.length) {
+			int capacity = count * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			names = Arrays.copyOf(names, capacity);
+		}
+		if (poolSize + len > pool.length)
+			pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+		System.arraycopy(buf, off, pool, poolSize, len);
+		int id = count++;
+		starts[id] = poolSize;
+		lengths[id] = len;
+		hashes[id] = hash(buf, off, len);
+		poolSize += len;
+		if (count * 2 > slots.length)
+			rehash();
+		else
+			insert(id);
+		return id;
+	}
+
+	private void insert(int id) {
+		int s = hashes[id] & mask;
+		while (slots[s] != 0) {
+			s = (s + 1) & mask;
+		}
+		slots[s] = id + 1;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		mask = slots.length - 1;
+		for (int id = 0; id < count; id++) {
+			insert(id);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestAssemblerCache {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ArrayList<String> source() {
+		return new ArrayList<>(Arrays.asList("var", "move 3 %RPG0", "move %RPG0 var", "inc var"));
+	}
+
+	@Test
+	public void testMakeExecutable() throws IOException {
+		AssemblerCache cache = new AssemblerCache(folder.newFolder("cache"));
+		String filename = new File(folder.getRoot(), "program").getPath();
+
+		Assembler ass = new Assembler();
+		ass.setCache(cache);
+		ass.setLines(source());
+		ass.makeExecutable(filename); // parsed and built
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+		byte built[] = Files.readAllBytes(new File(filename + ".dxf").toPath());
+
+		Assembler again = new Assembler();
+		again.setCache(cache);
+		again.setLines(source());
+		again.makeExecutable(filename);
+		assertEquals(1, cache.getHits());
+		assertTrue(again.getObjProgram().isEmpty()); // not parsed
+		assertArrayEquals(ass.getExecutable(), again.getExecutable());
+		assertArrayEquals(built, Files.readAllBytes(new File(filename + ".dxf").toPath()));
+		assertEquals(0.5, cache.getHitRate(), 0.001);
+	}
+
+	@Test
+	public void testKey() {
+		String key = AssemblerCache.key(source(), "v1");
+		assertEquals(key, AssemblerCache.key(source(), "v1"));
+		assertNotEquals(key, AssemblerCache.key(source(), "v2")); // other architecture tables
+		ArrayList<String> changed = source();
+		changed.set(1, "move 4 %RPG0");
+		assertNotEquals(key, AssemblerCache.key(changed, "v1"));
+		// the lines boundaries are part of the key
+		assertNotEquals(AssemblerCache.key(Arrays.asList("ab", "c"), "v1"), AssemblerCache.key(Arrays.asList("a", "bc"), "v1"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws IOException {
+		AssemblerCache cache = new AssemblerCache(folder.newFolder("cache"), 1024 * 1024, 2);
+		cache.put("a", new int[] { 1, -1 });
+		cache.put("b", new int[] { 2, -1 });
+		assertNotNull(cache.get("a")); // b is now the least recently used
+		cache.put("c", new int[] { 3, -1 });
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get("b"));
+		assertArrayEquals(new int[] { 1, -1 }, cache.get("a"));
+		assertArrayEquals(new int[] { 3, -1 }, cache.get("c"));
+
+		// size limit
+		AssemblerCache small = new AssemblerCache(folder.newFolder("small"), 10, 100);
+		small.put("x", new int[] { 100, 200, -1 });
+		small.put("y", new int[] { 300, 400, -1 });
+		assertEquals(1, small.size());
+		assertNotNull(small.get("y"));
+	}
+
+	@Test
+	public void testDamagedEntryAndStatistics() throws IOException {
+		File directory = folder.newFolder("cache");
+		AssemblerCache cache = new AssemblerCache(directory);
+		FileWriter writer = new FileWriter(new File(directory, "bad.dxf"));
+		writer.write("12\n3"); // no end flag
+		writer.close();
+		assertNull(cache.get("bad"));
+		assertEquals(0, cache.size());
+		cache.put("good", new int[] { 12, 3, 0, -1 });
+		assertNotNull(cache.get("good"));
+
+		// the statistics are kept between executions
+		AssemblerCache reopened = new AssemblerCache(directory);
+		assertEquals(1, reopened.getHits());
+		assertEquals(1, reopened.getMisses());
+		reopened.clear();
+		assertEquals(0, reopened.size());
+		assertEquals(0, reopened.getHits());
+	}
+
+}
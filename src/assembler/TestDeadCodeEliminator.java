@@ -0,0 +1,106 @@
+package assembler;
+
+import static assembler.AssemblerFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+public class TestDeadCodeEliminator {
+
+	private static final String PROGRAM[] = {
+			"a",
+			"unused",
+			"b",
+			"move 2 %RPG0",
+			"jmp start",
+			"dead:", // never reached
+			"inc %RPG3",
+			"move &unused %RPG2",
+			"start:",
+			"move %RPG0 a",
+			"loop:",
+			"inc %RPG1",
+			"move -1 %RPG2",
+			"add %RPG2 %RPG0",
+			"jnz loop",
+			"move %RPG1 b",
+			"jmp end",
+			"inc %RPG1", // never reached
+			"jmp loop",
+			"end:" };
+
+	@Test
+	public void testUnreachableCode() {
+		Assembler ass = parse(PROGRAM);
+		DeadCodeEliminator.Report report = ass.eliminateDeadCode();
+		assertEquals(4, report.getInstructionsRemoved());
+		assertEquals(9, report.getWordsSaved());
+		assertEquals(Arrays.asList(5, 5, 8, 23), ass.getLabelsAddresses()); // dead: moved to start:
+		assertSameResult("unreachable code", run(parse(PROGRAM)), run(ass));
+	}
+
+	@Test
+	public void testUnusedVariables() {
+		Assembler ass = parse(PROGRAM);
+		DeadCodeEliminator.Report report = ass.eliminateDeadCode();
+		// unused was only used by the dead code
+		assertEquals(1, report.getVariablesRemoved());
+		assertEquals(10, report.getMemorySaved());
+		assertEquals(Arrays.asList("a", "b"), ass.getVariables());
+		assertTrue(ass.buildExecutable());
+		int executable[] = ass.getExecutable();
+		assertEquals(255, executable[7]); // move %RPG0 a
+		assertEquals(254, executable[20]); // move %RPG1 b: b has the address of unused now
+	}
+
+	@Test
+	public void testAllReachable() {
+		Assembler ass = parse("x", "x", "loop:", "inc %RPG0", "move %RPG0 x", "jn loop");
+		DeadCodeEliminator.Report report = ass.eliminateDeadCode();
+		assertEquals(0, report.getInstructionsRemoved());
+		assertEquals(1, report.getVariablesRemoved()); // the second declaration of x
+		assertEquals(Arrays.asList("x"), ass.getVariables());
+	}
+
+	@Test
+	public void testNumericTargets() {
+		// the jump target is a number: the code can't be moved
+		ObjectProgram program = new ObjectProgram();
+		program.add(ObjectProgram.OPCODE, 15);
+		program.add(ObjectProgram.IMMEDIATE, 4);
+		program.add(ObjectProgram.OPCODE, 13); // not reached, but kept
+		program.add(ObjectProgram.REGISTER, 0);
+		program.add(ObjectProgram.OPCODE, 13);
+		program.add(ObjectProgram.REGISTER, 1);
+		DeadCodeEliminator eliminator = new DeadCodeEliminator(program, new int[0]);
+		DeadCodeEliminator.Report report = eliminator.eliminate(new ArrayList<String>(), new SymbolTable(), 256);
+		assertEquals(0, report.getInstructionsRemoved());
+		assertEquals(6, program.size());
+	}
+
+
+	@Test
+	public void testIndexedAddresses() {
+		// the indexed move may read any position, so the unused variables are kept
+		Assembler ass = parse("a", "unused", "move 254 %RPG0", "move (%RPG0) %RPG1", "move %RPG1 a");
+		DeadCodeEliminator.Report report = ass.eliminateDeadCode();
+		assertEquals(0, report.getVariablesRemoved());
+		assertEquals(Arrays.asList("a", "unused"), ass.getVariables());
+	}
+
+
+	@Test
+	public void testLoopTargets() {
+		// the body before start: is only reached by the loop command
+		Assembler ass = parse("move 3 %RPG0", "jmp start", "body:", "inc %RPG1", "start:", "loop %RPG0 body", "jmp end",
+				"dead:", "inc %RPG2", "end:");
+		DeadCodeEliminator.Report report = ass.eliminateDeadCode();
+		assertEquals(1, report.getInstructionsRemoved());
+		assertEquals(2, run(ass).getRegistersList().get(1).getData());
+	}
+
+}
@@ -0,0 +1,93 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestIncrementalAssembler {
+
+	private int[] assembleAll(ArrayList<String> lines) {
+		Assembler ass = new Assembler();
+		ass.setLines(lines);
+		ass.parse();
+		assertTrue(ass.buildExecutable());
+		return ass.getExecutable();
+	}
+
+	@Test
+	public void testSingleLineEdit() {
+		ArrayList<String> lines = new WorkloadGenerator(3).generate(WorkloadGenerator.Shape.LABELS, 100);
+		IncrementalAssembler inc = new IncrementalAssembler();
+		assertTrue(inc.assemble(lines));
+		assertArrayEquals(assembleAll(lines), inc.getExecutable());
+
+		// same size edit: only the edited line is parsed
+		lines.set(50, "inc %RPG2");
+		assertTrue(inc.assemble(lines));
+		assertEquals(50, inc.getFirstChangedLine());
+		assertEquals(1, inc.getChangedLines());
+		assertEquals(1, inc.getParsedLines());
+		assertArrayEquals(assembleAll(lines), inc.getExecutable());
+
+		// inserting a line moves all labels after it
+		lines.add(20, "move 5 %RPG3");
+		assertTrue(inc.assemble(lines));
+		assertEquals(1, inc.getChangedLines());
+		assertArrayEquals(assembleAll(lines), inc.getExecutable());
+
+		// removing it again: nothing must be parsed
+		lines.remove(20);
+		assertTrue(inc.assemble(lines));
+		assertEquals(0, inc.getParsedLines());
+		assertArrayEquals(assembleAll(lines), inc.getExecutable());
+	}
+
+	@Test
+	public void testRandomEdits() {
+		WorkloadGenerator generator = new WorkloadGenerator(5);
+		ArrayList<String> lines = generator.generate(WorkloadGenerator.Shape.VARIABLES, 200);
+		lines.addAll(generator.generate(WorkloadGenerator.Shape.NESTED_LOOPS, 5));
+		ArrayList<String> pool = generator.generate(WorkloadGenerator.Shape.STRAIGHT_LINE, 50);
+		Random random = new Random(5);
+		IncrementalAssembler inc = new IncrementalAssembler();
+		for (int edit = 0; edit < 100; edit++) {
+			int line = 8 + random.nextInt(lines.size() - 8);
+			boolean declaration = !lines.get(line).contains(" "); // labels and variables are kept
+			switch (random.nextInt(3)) {
+				case 0:
+					if (!declaration)
+						lines.set(line, pool.get(random.nextInt(pool.size())));
+					break;
+				case 1:
+					lines.add(line, pool.get(random.nextInt(pool.size())));
+					break;
+				default:
+					if (!declaration)
+						lines.remove(line);
+					break;
+			}
+			assertTrue(inc.assemble(lines));
+			assertArrayEquals(assembleAll(lines), inc.getExecutable());
+		}
+	}
+
+	@Test
+	public void testUndeclared() {
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("var");
+		lines.add("inc var");
+		lines.add("jmp end");
+		lines.add("end:");
+		IncrementalAssembler inc = new IncrementalAssembler();
+		assertTrue(inc.assemble(lines));
+		lines.remove(3); // the label is used by a line that didn't change
+		assertFalse(inc.assemble(lines));
+		lines.add("end:");
+		assertTrue(inc.assemble(lines));
+		assertArrayEquals(assembleAll(lines), inc.getExecutable());
+	}
+
+}
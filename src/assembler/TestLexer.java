@@ -0,0 +1,183 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestLexer {
+
+	private Lexer newLexer() {
+		return new Lexer(Arrays.asList("jmp", "jz", "move", "add"), Arrays.asList("RPG0", "RPG1", "PC"), new SymbolTable());
+	}
+
+	@Test
+	public void testKinds() {
+		Lexer lexer = newLexer();
+		lexer.reset("move -12 %RPG1");
+		assertEquals(Lexer.MNEMONIC, lexer.next());
+		assertEquals(2, lexer.value);
+		assertEquals(Lexer.IMMEDIATE, lexer.next());
+		assertEquals(-12, lexer.value);
+		assertEquals(Lexer.REGISTER, lexer.next());
+		assertEquals(1, lexer.value);
+		assertEquals("%RPG1", lexer.text());
+		assertEquals(Lexer.EOF, lexer.next());
+
+		lexer.reset("%XYZ");
+		assertEquals(Lexer.REGISTER, lexer.next());
+		assertEquals(-1, lexer.value); // unknown register
+	}
+
+	@Test
+	public void testSymbolsAndLabels() {
+		Lexer lexer = newLexer();
+		lexer.reset("loop:");
+		assertEquals(Lexer.LABEL, lexer.next());
+		int loop = lexer.value;
+		assertEquals("loop", lexer.getSymbols().getName(loop));
+
+		lexer.reset("move &var %RPG0");
+		lexer.next();
+		assertEquals(Lexer.SYMBOL, lexer.next());
+		assertTrue(lexer.memory);
+		int var = lexer.value;
+		assertEquals("&var", lexer.text());
+
+		// the same name always has the same id
+		lexer.reset("jz loop");
+		lexer.next();
+		assertEquals(Lexer.SYMBOL, lexer.next());
+		assertFalse(lexer.memory);
+		assertEquals(loop, lexer.value);
+		lexer.reset("add var %RPG0");
+		lexer.next();
+		lexer.next();
+		assertEquals(var, lexer.value);
+		assertEquals(2, lexer.getSymbols().size());
+	}
+
+	@Test
+	public void testSeparatorsAndComments() {
+		Lexer lexer = newLexer();
+		lexer.reset("\tmove   5,\t%RPG0 // comment jmp\r");
+		assertEquals(Lexer.MNEMONIC, lexer.next());
+		assertEquals(Lexer.IMMEDIATE, lexer.next());
+		assertEquals(5, lexer.value);
+		assertEquals(Lexer.REGISTER, lexer.next());
+		assertEquals(Lexer.EOF, lexer.next());
+
+		lexer.reset("; only a comment");
+		assertEquals(Lexer.EOF, lexer.next());
+		lexer.reset("jmp end;comment");
+		assertEquals(Lexer.MNEMONIC, lexer.next());
+		assertEquals(Lexer.SYMBOL, lexer.next());
+		assertEquals("end", lexer.text());
+		assertEquals(Lexer.EOF, lexer.next());
+	}
+
+	@Test
+	public void testBuffer() {
+		Lexer lexer = newLexer();
+		char source[] = "x\nmove 1 %RPG0\n\njmp x\n".toCharArray();
+		lexer.reset(source, 0, source.length);
+		int kinds[] = { Lexer.SYMBOL, Lexer.EOL, Lexer.MNEMONIC, Lexer.IMMEDIATE, Lexer.REGISTER, Lexer.EOL,
+				Lexer.EOL, Lexer.MNEMONIC, Lexer.SYMBOL, Lexer.EOL, Lexer.EOF };
+		for (int k : kinds) {
+			assertEquals(k, lexer.next());
+		}
+	}
+
+	@Test
+	public void testSymbolTableGrowth() {
+		SymbolTable table = new SymbolTable();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, table.intern("name" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, table.find("name" + i));
+			assertEquals("name" + i, table.getName(i));
+		}
+		assertEquals(-1, table.find("other"));
+	}
+
+	@Test
+	public void testAssemblerParse() {
+		// the assembler accepts extra spaces, tabs, commas, comments and blank lines
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("// a comment");
+		lines.add("");
+		lines.add("  move  3,\t%RPG0   ; three");
+		lines.add("inc %RPG0");
+		Assembler ass = new Assembler();
+		ass.setLines(lines);
+		ass.parse();
+		assertEquals(Arrays.asList("12", "3", "%RPG0", "13", "%RPG0"), ass.getObjProgram());
+	}
+
+
+	@Test
+	public void testNumberLimits() {
+		Lexer lexer = newLexer();
+		lexer.reset("2147483647 -2147483648 +7");
+		assertEquals(Lexer.IMMEDIATE, lexer.next());
+		assertEquals(Integer.MAX_VALUE, lexer.value);
+		assertEquals(Lexer.IMMEDIATE, lexer.next());
+		assertEquals(Integer.MIN_VALUE, lexer.value);
+		assertEquals(Lexer.IMMEDIATE, lexer.next());
+		assertEquals(7, lexer.value);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNumberOverflow() {
+		Lexer lexer = newLexer();
+		lexer.reset("move 2147483648 %RPG0");
+		lexer.next();
+		lexer.next();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIndexedOffsetOverflow() {
+		Lexer lexer = newLexer();
+		lexer.reset("-99999999999(%RPG0)");
+		lexer.next();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAssemblerNumberOverflow() {
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("move 4294967296 %RPG0");
+		Assembler ass = new Assembler();
+		ass.setLines(lines);
+		ass.parse();
+	}
+
+	@Test
+	public void testIndexed() {
+		Lexer lexer = newLexer();
+		lexer.reset("move 4(%RPG1) (%RPG0) table(%PC) -2(%XYZ)");
+		lexer.next();
+		assertEquals(Lexer.INDEXED, lexer.next());
+		assertEquals(1, lexer.value);
+		assertEquals(4, lexer.offset);
+		assertFalse(lexer.offsetSymbol);
+		assertEquals(Lexer.INDEXED, lexer.next());
+		assertEquals(0, lexer.value);
+		assertEquals(0, lexer.offset); // no offset
+		assertEquals(Lexer.INDEXED, lexer.next());
+		assertEquals(2, lexer.value);
+		assertTrue(lexer.offsetSymbol);
+		assertEquals("table", lexer.getSymbols().getName(lexer.offset));
+		assertEquals(Lexer.INDEXED, lexer.next());
+		assertEquals(-1, lexer.value); // unknown register
+		assertEquals(-2, lexer.offset);
+		assertEquals(Lexer.EOF, lexer.next());
+
+		// without a register, it is a name
+		lexer.reset("f(x)");
+		assertEquals(Lexer.SYMBOL, lexer.next());
+	}
+
+}
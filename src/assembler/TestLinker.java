@@ -0,0 +1,106 @@
+package assembler;
+
+import static assembler.AssemblerFixture.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import architecture.Architecture;
+
+public class TestLinker {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String MAIN[] = {
+			"result",
+			"move 5 %RPG0",
+			"jmp double", // imported from the library
+			"back:",
+			"move %RPG0 result",
+			"move &counter %RPG1", // imported variable
+			"jmp _end" };
+
+	private static final String LIBRARY[] = {
+			"counter",
+			"double:",
+			"add %RPG0 %RPG0",
+			"move %RPG0 counter",
+			"jmp back" };
+
+	private ObjectModule assemble(String name, String... lines) {
+		Assembler ass = new Assembler();
+		ass.setLines(new ArrayList<>(Arrays.asList(lines)));
+		return ass.makeObjectModule(name);
+	}
+
+	@Test
+	public void testModule() {
+		ObjectModule module = assemble("main", MAIN);
+		assertEquals(13, module.size());
+		assertEquals(1, module.getVariablesCount());
+		assertEquals(3, module.getImportsCount()); // double, counter and _end
+		assertEquals(4, module.getRelocationsCount());
+		assertEquals(2, module.getExportsCount()); // result and back
+	}
+
+	@Test
+	public void testLink() {
+		Linker linker = new Linker();
+		linker.add(assemble("main", MAIN));
+		linker.add(assemble("library", LIBRARY));
+		assertTrue(linker.link());
+		int executable[] = linker.getExecutable();
+		assertEquals(22, executable.length);
+		assertEquals(13, executable[4]); // jmp double: the library starts after the main code
+		assertEquals(255, executable[7]); // result, the first variable of main
+		assertEquals(254, executable[9]); // counter, the first variable of library
+		assertEquals(21, executable[12]); // _end
+		assertEquals(5, executable[20]); // jmp back
+		Architecture arch = run(executable);
+		assertEquals(10, arch.getRegistersList().get(0).getData());
+		assertEquals(10, arch.getRegistersList().get(1).getData());
+	}
+
+	@Test
+	public void testUnresolved() {
+		Linker linker = new Linker();
+		linker.add(assemble("main", MAIN));
+		assertFalse(linker.link()); // double and counter aren't exported
+		linker = new Linker();
+		linker.add(assemble("main", MAIN));
+		linker.add(assemble("library", LIBRARY));
+		linker.add(assemble("other", "double:", "jmp back"));
+		assertFalse(linker.link()); // double exported twice
+		assertNull(linker.getExecutable());
+	}
+
+	@Test
+	public void testSaveAndRead() throws IOException {
+		String filename = new File(folder.getRoot(), "library").getPath();
+		ObjectModule module = assemble("library", LIBRARY);
+		module.save(filename);
+		ObjectModule read = ObjectModule.read(filename);
+		assertEquals("library", read.getName());
+		assertEquals(module.size(), read.size());
+		for (int i = 0; i < module.size(); i++) {
+			assertEquals(module.getWord(i), read.getWord(i));
+		}
+		assertEquals(module.getVariablesCount(), read.getVariablesCount());
+		assertEquals(module.getImportsCount(), read.getImportsCount());
+		assertEquals(module.getExportsCount(), read.getExportsCount());
+		assertEquals(module.getRelocationsCount(), read.getRelocationsCount());
+		for (int r = 0; r < module.getRelocationsCount(); r++) {
+			assertEquals(module.getRelocationPosition(r), read.getRelocationPosition(r));
+			assertEquals(module.getRelocationKind(r), read.getRelocationKind(r));
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import architecture.Architecture;
+
+public class TestObjectProgram {
+
+	@Test
+	public void testOperandsTable() {
+		// every command of the architecture has its operands in the table
+		int commands = new Architecture().getCommandsList().size();
+		for (int opcode = 0; opcode < commands; opcode++) {
+			assertTrue(ObjectProgram.isOpcode(opcode));
+		}
+		assertFalse(ObjectProgram.isOpcode(commands));
+		assertFalse(ObjectProgram.isOpcode(-1));
+		assertEquals(2, ObjectProgram.operandsCount(12)); // moveImmReg
+		assertEquals(ObjectProgram.IMMEDIATE, ObjectProgram.operandKind(12, 0));
+		assertEquals(ObjectProgram.REGISTER, ObjectProgram.operandKind(12, 1));
+		assertEquals(ObjectProgram.SYMBOL, ObjectProgram.operandKind(21, 2)); // jlw label
+	}
+
+	@Test
+	public void testResolve() {
+		ObjectProgram program = new ObjectProgram();
+		for (int i = 0; i < 300; i++) { // more than the initial capacity
+			program.add(ObjectProgram.OPCODE, 15); // jmp
+			program.add(ObjectProgram.SYMBOL, i % 2);
+		}
+		assertEquals(600, program.size());
+		assertEquals(2, program.nextInstruction(0));
+		assertEquals(1, program.firstUnresolved());
+
+		ObjectProgram copy = program.copy();
+		copy.resolve(0, 17);
+		assertEquals(3, copy.firstUnresolved());
+		copy.resolveSymbols(new int[] { -1, 42 });
+		assertEquals(-1, copy.firstUnresolved());
+		assertEquals(17, copy.getValue(1));
+		assertEquals(42, copy.getValue(3));
+		assertEquals(ObjectProgram.SYMBOL, program.getKind(1)); // the original is not changed
+
+		int executable[] = copy.toExecutable();
+		assertEquals(601, executable.length);
+		assertEquals(-1, executable[600]);
+	}
+
+	@Test
+	public void testCompact() {
+		// 0: inc %RPG0; 2: inc %RPG1 (removed); 4: jmp label (replaced by inc %RPG2, inc %RPG2); 6: inc %RPG3
+		ObjectProgram program = new ObjectProgram();
+		int words[][] = { { 13, 0 }, { 13, 1 }, { 15, 0 }, { 13, 3 } };
+		byte kinds[] = { ObjectProgram.REGISTER, ObjectProgram.REGISTER, ObjectProgram.SYMBOL, ObjectProgram.REGISTER };
+		for (int i = 0; i < words.length; i++) {
+			program.add(ObjectProgram.OPCODE, words[i][0]);
+			program.add(kinds[i], words[i][1]);
+		}
+		ObjectProgram replacement = new ObjectProgram();
+		for (int n = 0; n < 2; n++) {
+			replacement.add(ObjectProgram.OPCODE, 13);
+			replacement.add(ObjectProgram.REGISTER, 2);
+		}
+		boolean keep[] = { true, false, false, false, true, false, true, false };
+		ObjectProgram replacements[] = new ObjectProgram[8];
+		replacements[4] = replacement;
+		int labelAddresses[] = { 2, -1, 6, 8 }; // on the removed inc, not a label, on the last inc, the end
+		int positions[] = program.compact(keep, replacements, labelAddresses);
+		assertEquals(8, program.size());
+		assertEquals(2, program.getValue(3)); // inc %RPG2
+		assertEquals(3, program.getValue(7)); // inc %RPG3
+		assertArrayEquals(new int[] { 0, 0, 2, 2, 2, 2, 6, 6, 8 }, positions);
+		assertArrayEquals(new int[] { 2, -1, 6, 8 }, labelAddresses);
+
+		keep = new boolean[] { false, false, true, false, true, false, true, false };
+		program.compact(keep, labelAddresses);
+		assertEquals(6, program.size());
+		assertArrayEquals(new int[] { 0, -1, 4, 6 }, labelAddresses);
+		assertArrayEquals(new boolean[] { true, false, false, false, true, false, true }, program.labelPositions(labelAddresses));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnresolvedExecutable() {
+		ObjectProgram program = new ObjectProgram();
+		program.add(ObjectProgram.OPCODE, 15);
+		program.add(ObjectProgram.SYMBOL, 0);
+		program.toExecutable();
+	}
+
+	@Test
+	public void testAssemblerTextRoundTrip() {
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("var");
+		lines.add("move 2 %RPG0");
+		lines.add("loop:");
+		lines.add("add %RPG0 var");
+		lines.add("jmp loop");
+		Assembler ass = new Assembler();
+		ass.setLines(lines);
+		ass.parse();
+
+		ObjectProgram program = ass.getObjectProgram();
+		assertEquals(ObjectProgram.OPCODE, program.getKind(0));
+		assertEquals(ObjectProgram.IMMEDIATE, program.getKind(1));
+		assertEquals(ObjectProgram.REGISTER, program.getKind(2));
+		assertEquals(ObjectProgram.SYMBOL, program.getKind(5));
+		assertEquals("var", ass.getSymbols().getName(program.getValue(5)));
+
+		// the text form can be changed, and the changes are used by the executable
+		ArrayList<String> text = ass.getObjProgram();
+		assertEquals("&var", text.get(5));
+		assertEquals("&loop", text.get(7));
+		text.set(2, "%RPG1");
+		assertTrue(ass.buildExecutable());
+		assertArrayEquals(new int[] { 12, 2, 1, 2, 0, 255, 15, 3, -1 }, ass.getExecutable());
+	}
+
+}
@@ -0,0 +1,120 @@
+package assembler;
+
+import static assembler.AssemblerFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import architecture.Architecture;
+import architecture.CycleModel;
+
+public class TestPeepholeOptimizer {
+
+	@Test
+	public void testRules() {
+		Assembler ass = parse(
+				"move %RPG0 %RPG0", // self move
+				"move 1 %RPG1", // overwritten
+				"move 2 %RPG1",
+				"jmp next", // jump to the next instruction
+				"next:",
+				"move %RPG1 %RPG2",
+				"move %RPG2 %RPG1", // move back
+				"inc %RPG2");
+		PeepholeOptimizer.Report report = ass.optimize();
+		assertEquals(1, report.getRemoved(PeepholeOptimizer.SELF_MOVE));
+		assertEquals(1, report.getRemoved(PeepholeOptimizer.OVERWRITTEN_MOVE));
+		assertEquals(1, report.getRemoved(PeepholeOptimizer.JUMP_TO_NEXT));
+		assertEquals(1, report.getRemoved(PeepholeOptimizer.MOVE_BACK));
+		assertEquals(11, report.getWordsSaved());
+		assertEquals(2 * CycleModel.cycles(11) + CycleModel.cycles(12) + CycleModel.cycles(15), report.getCyclesSaved());
+		assertEquals(Arrays.asList("12", "2", "%RPG1", "11", "%RPG1", "%RPG2", "13", "%RPG2"), ass.getObjProgram());
+		assertEquals(3, (int) ass.getLabelsAddresses().get(0)); // next: moved to the instruction after the jump
+	}
+
+	@Test
+	public void testLabels() {
+		// the second move can't be removed: a jump lands on it
+		Assembler ass = parse(
+				"move 3 %RPG0",
+				"move %RPG1 %RPG2",
+				"back:",
+				"move %RPG2 %RPG1",
+				"inc %RPG1",
+				"move -1 %RPG3",
+				"add %RPG3 %RPG0",
+				"jnz back",
+				"jmp end", // the target is the next instruction only after the next jmp is removed
+				"jmp end2",
+				"end2:",
+				"end:");
+		PeepholeOptimizer.Report report = ass.optimize();
+		assertEquals(0, report.getRemoved(PeepholeOptimizer.MOVE_BACK));
+		assertEquals(2, report.getRemoved(PeepholeOptimizer.JUMP_TO_NEXT));
+		assertTrue(ass.buildExecutable());
+		int optimized[] = ass.getExecutable();
+		Assembler plain = parse(
+				"move 3 %RPG0", "move %RPG1 %RPG2", "back:", "move %RPG2 %RPG1", "inc %RPG1",
+				"move -1 %RPG3", "add %RPG3 %RPG0", "jnz back", "jmp end", "jmp end2", "end2:", "end:");
+		assertTrue(plain.buildExecutable());
+		assertEquals(plain.getExecutable().length - 4, optimized.length);
+		assertSameResult("labels", run(plain.getExecutable()), run(optimized));
+	}
+
+	@Test
+	public void testIncrementRuns() {
+		Assembler ass = parse(
+				"move -3 %RPG0",
+				"inc %RPG0", // three incs: add 3 %RPG0
+				"inc %RPG0",
+				"inc %RPG0",
+				"inc %RPG1", // another register: not in the run
+				"inc %RPG1",
+				"back:", // a jump lands here: the run is split
+				"inc %RPG1",
+				"inc %RPG2");
+		PeepholeOptimizer.Report report = ass.optimize();
+		assertEquals(3, report.getRemoved(PeepholeOptimizer.INC_RUN)); // 2 + 1 incs merged into the first of their runs
+		assertEquals(Arrays.asList("12", "-3", "%RPG0", "31", "3", "%RPG0", "31", "2", "%RPG1", "13", "%RPG1", "13", "%RPG2"),
+				ass.getObjProgram());
+		assertEquals(9, (int) ass.getLabelsAddresses().get(0)); // back: still on the third inc %RPG1
+		assertEquals(5 * CycleModel.cycles(13) - 2 * CycleModel.cycles(31), report.getCyclesSaved());
+		assertTrue(report.toString().contains("merged increments: 3"));
+	}
+
+	@Test
+	public void testIncrementRunFlags() {
+		// add n %A sets the flags as the last inc: the zero flag is seen by jz
+		Assembler ass = parse(
+				"move -2 %RPG0",
+				"inc %RPG0",
+				"inc %RPG0",
+				"jz zero",
+				"move 5 %RPG1",
+				"zero:",
+				"inc %RPG1");
+		Assembler plain = parse("move -2 %RPG0", "inc %RPG0", "inc %RPG0", "jz zero", "move 5 %RPG1", "zero:", "inc %RPG1");
+		assertEquals(1, ass.optimize().getRemoved(PeepholeOptimizer.INC_RUN));
+		Architecture a = run(ass);
+		assertSameResult("increments", run(plain), a);
+		assertEquals(1, a.getRegistersList().get(1).getData()); // jz was taken
+	}
+
+	@Test
+	public void testGeneratedPrograms() {
+		// the optimized programs must give the same results
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			ArrayList<String> lines = new WorkloadGenerator(11).generate(shape, 3);
+			Assembler plain = assemble(lines);
+			Assembler optimized = parse(lines);
+			PeepholeOptimizer.Report report = optimized.optimize();
+			Architecture b = run(optimized);
+			assertEquals(report.getWordsAfter() + 1, optimized.getExecutable().length);
+			assertSameResult(shape.toString(), run(plain.getExecutable()), b);
+		}
+	}
+
+}
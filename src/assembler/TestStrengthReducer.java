@@ -0,0 +1,108 @@
+package assembler;
+
+import static assembler.AssemblerFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import architecture.Architecture;
+import architecture.CycleModel;
+
+public class TestStrengthReducer {
+
+	@Test
+	public void testMultipliers() {
+		for (int k = 1; k <= 12; k++) {
+			for (String destination : Arrays.asList("%RPG1", "%RPG2", "%RPG3")) {
+				String program[] = { "move " + k + " %RPG0", "move -7 %RPG1", "move 5 %RPG2", "move 3 %RPG3",
+						"imul %RPG0 " + destination };
+				Assembler plain = parse(program);
+				Assembler reduced = parse(program);
+				reduced.optimize();
+				// RPG2 and RPG3 take an add for each unit of the multiplier: the longer sequences are not used
+				boolean fits = destination.equals("%RPG1") || (k <= 7);
+				assertEquals(fits ? 1 : 0, reduced.getReductionReport().getReduced());
+				assertSameResult(k + " " + destination, run(plain), run(reduced));
+			}
+		}
+	}
+
+	@Test
+	public void testReport() {
+		Assembler ass = parse("move 8 %RPG0", "move 3 %RPG1", "imul %RPG0 %RPG1", "jz end", "inc %RPG1", "end:");
+		ass.optimize();
+		StrengthReducer.Report report = ass.getReductionReport();
+		assertEquals(1, report.getReduced());
+		assertEquals(CycleModel.cycles(12) + CycleModel.imulCycles(8), report.getCyclesBefore());
+		// 3 doublings, the zero flag and the move into RPG0
+		assertEquals(3 * CycleModel.cycles(0) + CycleModel.cycles(3) + CycleModel.cycles(12), report.getCyclesAfter());
+		assertEquals(Arrays.asList("12", "3", "%RPG1", "0", "%RPG1", "%RPG1", "0", "%RPG1", "%RPG1", "0", "%RPG1",
+				"%RPG1", "3", "%RPG0", "%RPG0", "12", "8", "%RPG0", "17", "&end", "13", "%RPG1"), ass.getObjProgram());
+		// jz end is taken, as after the imul
+		assertEquals(24, run(ass).getRegistersList().get(1).getData());
+	}
+
+	@Test
+	public void testFlagsNotUsed() {
+		// the inc sets the flags again: the sub %RPG0 %RPG0 isn't needed
+		Assembler ass = parse("move 2 %RPG0", "imul %RPG0 %RPG1", "inc %RPG1");
+		ass.optimize();
+		assertEquals(Arrays.asList("0", "%RPG1", "%RPG1", "12", "2", "%RPG0", "13", "%RPG1"), ass.getObjProgram());
+	}
+
+	@Test
+	public void testNotReduced() {
+		// a label between the move and the imul
+		Assembler ass = parse("move 2 %RPG0", "again:", "imul %RPG0 %RPG1", "jmp again");
+		ass.optimize();
+		assertEquals(0, ass.getReductionReport().getReduced());
+		// RPG0 changed between the move and the imul
+		ass = parse("move 2 %RPG0", "inc %RPG0", "imul %RPG0 %RPG1");
+		ass.optimize();
+		assertEquals(0, ass.getReductionReport().getReduced());
+		// the multiplier isn't a constant
+		ass = parse("a", "move &a %RPG0", "imul %RPG0 %RPG1");
+		ass.optimize();
+		assertEquals(0, ass.getReductionReport().getReduced());
+		// the sequence would be too long
+		ass = parse("move 100 %RPG0", "imul %RPG0 %RPG2");
+		ass.optimize();
+		assertEquals(0, ass.getReductionReport().getReduced());
+	}
+
+	@Test
+	public void testLabelsMoved() {
+		Assembler ass = parse(
+				"move 0 %RPG3",
+				"loop:",
+				"move 3 %RPG0",
+				"move 2 %RPG1",
+				"imul %RPG0 %RPG1",
+				"add %RPG1 %RPG3",
+				"move 18 %RPG2",
+				"jgt %RPG3 %RPG2 loop");
+		Assembler plain = parse("move 0 %RPG3", "loop:", "move 3 %RPG0", "move 2 %RPG1", "imul %RPG0 %RPG1",
+				"add %RPG1 %RPG3", "move 18 %RPG2", "jgt %RPG3 %RPG2 loop");
+		ass.optimize();
+		assertEquals(1, ass.getReductionReport().getReduced());
+		assertEquals(3, (int) ass.getLabelsAddresses().get(0)); // loop: now points to move 2 %RPG1
+		Architecture a = run(ass);
+		assertSameResult("loop", run(plain), a);
+		assertEquals(18, a.getRegistersList().get(3).getData());
+	}
+
+	@Test
+	public void testGeneratedPrograms() {
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			ArrayList<String> lines = new WorkloadGenerator(5).generate(shape, 3);
+			Assembler plain = parse(lines);
+			Assembler reduced = parse(lines);
+			reduced.optimize();
+			assertSameResult(shape.toString(), run(plain), run(reduced));
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package assembler;
+
+import static assembler.AssemblerFixture.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import architecture.Architecture;
+
+public class TestWorkloadGenerator {
+
+	@Test
+	public void testAllShapesAssemble() {
+		WorkloadGenerator generator = new WorkloadGenerator(1);
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			ArrayList<String> lines = generator.generate(shape, 500);
+			Assembler ass = assemble(lines);
+			assertTrue(ass.getObjProgram().size() >= 500);
+		}
+	}
+
+	@Test
+	public void testSmallProgramsRun() {
+		WorkloadGenerator generator = new WorkloadGenerator(2);
+		for (WorkloadGenerator.Shape shape : WorkloadGenerator.Shape.values()) {
+			int executable[] = assemble(generator.generate(shape, 3)).getExecutable();
+			assertTrue(executable.length < 200); // it fits before the reserved area
+			run(executable);
+		}
+	}
+
+	@Test
+	public void testNestedLoops() {
+		WorkloadGenerator generator = new WorkloadGenerator(3);
+		generator.setIterations(4);
+		Architecture arch = run(assemble(generator.generate(WorkloadGenerator.Shape.NESTED_LOOPS, 1)).getExecutable());
+		// 2 instructions before the loop; 4 outer iterations of 1 + 4*3 + 2 + 4*3 + 2 instructions
+		assertEquals(2 + 4 * 29 + 1, arch.getInstructionCount());
+	}
+
+	@Test
+	public void testImul() {
+		ArrayList<String> lines = new WorkloadGenerator(4).generate(WorkloadGenerator.Shape.IMUL, 1);
+		int k = Integer.parseInt(lines.get(0).split(" ")[1]);
+		int m = Integer.parseInt(lines.get(1).split(" ")[1]);
+		Architecture arch = run(assemble(lines).getExecutable());
+		assertEquals(k * m, arch.getRegistersList().get(1).getData());
+		assertEquals(k, arch.getRegistersList().get(0).getData());
+	}
+
+
+	@Test
+	public void testCountersInstructions() {
+		long counts[] = new long[2];
+		Architecture results[] = new Architecture[2];
+		for (int i = 0; i < 2; i++) {
+			WorkloadGenerator generator = new WorkloadGenerator(5);
+			generator.setIterations(6);
+			generator.setImmediates(i == 1);
+			results[i] = run(assemble(generator.generate(WorkloadGenerator.Shape.COUNTERS, 3)).getExecutable());
+			counts[i] = results[i].getInstructionCount();
+		}
+		for (int r = 0; r < 3; r++) {
+			assertEquals(results[0].getRegistersList().get(r).getData(), results[1].getRegistersList().get(r).getData());
+		}
+		assertEquals(3 * 6 * 3, results[1].getRegistersList().get(1).getData());
+		// 3 blocks of a move and 6 iterations, plus the -1 in the end
+		assertEquals(3 * (1 + 6 * 7) + 1, counts[0]); // 3 moves, 3 adds or subs and the jnz
+		assertEquals(3 * (1 + 6 * 4) + 1, counts[1]); // 3 adds or subs with immediates and the jnz
+	}
+
+}
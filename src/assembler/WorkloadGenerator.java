@@ -0,0 +1,258 @@
+package assembler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This class generates synthetic assembly programs (.dsf) to feed the assembler
+ * and the simulator benchmarks. Only the syntax accepted by Assembler.proccessCommand
+ * is used, so every generated program can be assembled.
+ *
+ * The programs are made of blocks repeated as many times as requested.
+ * Obs. the architecture memory has 256 positions, with a reserved area from the
+ * position 200 and the variables from the position 255 downwards. So, programs
+ * intended to be executed must be small (less than 200 words and at most 8 variables);
+ * bigger programs are useful only for the assembler.
+ */
+public class WorkloadGenerator {
+
+	public enum Shape {
+		STRAIGHT_LINE, // arithmetic without jumps, each block is one instruction
+		NESTED_LOOPS, // an outer loop (counter in memory) with an inner loop using jnz and another using jlw
+		VARIABLES, // each block is an instruction using variables
+		LABELS, // each block is a label and a jump (conditional or not) to the next label
+		IMUL, // each block multiplies by a small constant
+		COUNTERS // each block is a loop stepping counters by constants
+	}
+
+	private static final String REGISTERS[] = { "%RPG0", "%RPG1", "%RPG2", "%RPG3" };
+
+	private Random random;
+	private int iterations = 10; // loop iterations of the NESTED_LOOPS shape
+	private int variablesCount = 8; // variables declared by the VARIABLES shape
+	private boolean immediates = true; // the COUNTERS shape adds the constants as immediates (add imm %Reg)
+
+	public WorkloadGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public void setVariablesCount(int variablesCount) {
+		this.variablesCount = variablesCount;
+	}
+
+	/**
+	 * @param immediates true (the default) makes the COUNTERS shape use add and sub with immediates.
+	 *        Otherwise, each constant is moved into RPG3 before being added, as programs did before
+	 *        those commands
+	 */
+	public void setImmediates(boolean immediates) {
+		this.immediates = immediates;
+	}
+
+	/**
+	 * This method generates the source lines of a program
+	 *
+	 * @param shape
+	 * @param blocks how many times the shape block is repeated
+	 * @return
+	 */
+	public ArrayList<String> generate(Shape shape, int blocks) {
+		ArrayList<String> lines = new ArrayList<>();
+		switch (shape) {
+			case STRAIGHT_LINE:
+				for (int i = 0; i < blocks; i++) {
+					straightLine(lines);
+				}
+				break;
+			case NESTED_LOOPS:
+				lines.add("outer");
+				for (int i = 0; i < blocks; i++) {
+					nestedLoops(lines, i);
+				}
+				break;
+			case VARIABLES:
+				for (int v = 0; v < variablesCount; v++) {
+					lines.add("var" + v);
+				}
+				for (int i = 0; i < blocks; i++) {
+					variables(lines);
+				}
+				break;
+			case LABELS:
+				lines.add("move 1 %RPG0");
+				for (int i = 0; i < blocks; i++) {
+					labels(lines, i);
+				}
+				lines.add("label" + blocks + ":");
+				break;
+			case IMUL:
+				for (int i = 0; i < blocks; i++) {
+					imul(lines);
+				}
+				break;
+			case COUNTERS:
+				for (int i = 0; i < blocks; i++) {
+					counters(lines, i);
+				}
+				break;
+		}
+		return lines;
+	}
+
+	private String register() {
+		return REGISTERS[random.nextInt(REGISTERS.length)];
+	}
+
+	private void straightLine(ArrayList<String> lines) {
+		switch (random.nextInt(5)) {
+			case 0:
+				lines.add("move " + (random.nextInt(100) - 50) + " " + register());
+				break;
+			case 1:
+				lines.add("add " + register() + " " + register());
+				break;
+			case 2:
+				lines.add("sub " + register() + " " + register());
+				break;
+			case 3:
+				lines.add("inc " + register());
+				break;
+			default:
+				lines.add("move " + register() + " " + register());
+				break;
+		}
+	}
+
+	/**
+	 * outer loop: counter in the variable outer (from -iterations up to 0)
+	 * first inner loop: counter in RPG1 (from -iterations up to 0), ended by jnz
+	 * second inner loop: counter in RPG1 (from 0 up to iterations), ended by jlw
+	 */
+	private void nestedLoops(ArrayList<String> lines, int block) {
+		lines.add("move -" + iterations + " %RPG0");
+		lines.add("move %RPG0 outer");
+		lines.add("outer" + block + ":");
+		lines.add("move -" + iterations + " %RPG1");
+		lines.add("innerA" + block + ":");
+		lines.add("add %RPG1 %RPG2");
+		lines.add("inc %RPG1");
+		lines.add("jnz innerA" + block);
+		lines.add("move 0 %RPG1");
+		lines.add("move " + iterations + " %RPG3");
+		lines.add("innerB" + block + ":");
+		lines.add("sub %RPG1 %RPG2");
+		lines.add("inc %RPG1");
+		lines.add("jlw %RPG3 %RPG1 innerB" + block);
+		lines.add("inc outer");
+		lines.add("jnz outer" + block);
+	}
+
+	private void variables(ArrayList<String> lines) {
+		String var = "var" + random.nextInt(variablesCount);
+		switch (random.nextInt(6)) {
+			case 0:
+				lines.add("add " + var + " " + register());
+				break;
+			case 1:
+				lines.add("add " + register() + " " + var);
+				break;
+			case 2:
+				lines.add("sub " + var + " " + register());
+				break;
+			case 3:
+				lines.add("move &" + var + " " + register()); // the & tells it is a moveMemReg
+				break;
+			case 4:
+				lines.add("move " + register() + " " + var);
+				break;
+			default:
+				lines.add("inc " + var);
+				break;
+		}
+	}
+
+	private void labels(ArrayList<String> lines, int block) {
+		lines.add("label" + block + ":");
+		lines.add("inc %RPG0");
+		String next = "label" + (block + 1);
+		switch (random.nextInt(4)) {
+			case 0:
+				lines.add("jmp " + next);
+				break;
+			case 1:
+				lines.add("jz " + next);
+				break;
+			case 2:
+				lines.add("jn " + next);
+				break;
+			default:
+				lines.add("jnz " + next);
+				break;
+		}
+	}
+
+	/**
+	 * imul always multiplies by RPG0, that must be positive
+	 */
+	private void imul(ArrayList<String> lines) {
+		lines.add("move " + (1 + random.nextInt(8)) + " %RPG0");
+		lines.add("move " + (random.nextInt(20) - 10) + " %RPG1");
+		lines.add("imul %RPG0 %RPG1");
+	}
+
+	/**
+	 * loop counter in RPG0 (from -2 * iterations up to 0, step 2); RPG1 <- 3 + RPG1 and
+	 * RPG2 <- 7 - RPG2 in each iteration
+	 */
+	private void counters(ArrayList<String> lines, int block) {
+		lines.add("move -" + (2 * iterations) + " %RPG0");
+		lines.add("counters" + block + ":");
+		addConstant(lines, "add", 3, "%RPG1");
+		addConstant(lines, "sub", 7, "%RPG2");
+		addConstant(lines, "add", 2, "%RPG0");
+		lines.add("jnz counters" + block);
+	}
+
+	private void addConstant(ArrayList<String> lines, String command, int constant, String register) {
+		if (immediates) {
+			lines.add(command + " " + constant + " " + register);
+		} else {
+			lines.add("move " + constant + " %RPG3");
+			lines.add(command + " %RPG3 " + register);
+		}
+	}
+
+	/**
+	 * This method saves the lines into filename.dsf
+	 *
+	 * @param lines
+	 * @param filename
+	 * @throws IOException
+	 */
+	public static void write(ArrayList<String> lines, String filename) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(new File(filename + ".dsf")));
+		for (String l : lines)
+			writer.write(l + "\n");
+		writer.close();
+	}
+
+	/**
+	 * Usage: WorkloadGenerator shape blocks filename [seed]
+	 */
+	public static void main(String[] args) throws IOException {
+		Shape shape = Shape.valueOf(args[0].toUpperCase());
+		int blocks = Integer.parseInt(args[1]);
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+		write(new WorkloadGenerator(seed).generate(shape, blocks), args[2]);
+		System.out.println("Generated: " + args[2] + ".dsf");
+	}
+
+}
@@ -2,7 +2,11 @@ package assembler;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -610,4 +614,45 @@ public class testAssembler {
 	public void testRead() {
 		fail("Not yet implemented");
 	}
+
+	@Test
+	public void testImmediateCommands() {
+		Assembler ass = new Assembler();
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("add 5 %RPG0");
+		lines.add("sub -2 %RPG1");
+		lines.add("cmp 10 %RPG2");
+		lines.add("add &5 %RPG0"); // & is a memory position: addMemReg
+		ass.setLines(lines);
+		ass.parse();
+		ArrayList<String> obj = ass.getObjProgram();
+		assertEquals(Arrays.asList("31", "5", "%RPG0", "32", "-2", "%RPG1", "33", "10", "%RPG2", "1", "&5", "%RPG0"), obj);
+	}
+
+
+	@Test
+	public void testDivisionCommands() {
+		Assembler ass = new Assembler();
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add("a");
+		lines.add("idiv %RPG0 %RPG1");
+		lines.add("imod a %RPG2");
+		lines.add("idiv %RPG3 a");
+		ass.setLines(lines);
+		ass.parse();
+		ArrayList<String> obj = ass.getObjProgram();
+		assertEquals(Arrays.asList("43", "%RPG0", "%RPG1", "44", "&a", "%RPG2", "42", "%RPG3", "&a"), obj);
+	}
+
+	@Test
+	public void testMainWithoutArguments() throws IOException {
+		// Architecture.main calls Assembler.main(null): program.dsf, in the working directory, is assembled
+		File executable = new File("program.dxf");
+		assertTrue(new File("program.dsf").exists());
+		executable.delete();
+		Assembler.main(null);
+		assertTrue(executable.exists());
+		assertTrue(Files.readAllLines(executable.toPath()).size() > 0);
+	}
+
 }
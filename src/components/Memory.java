@@ -1,11 +1,13 @@
 package components;
 
+import java.util.Arrays;
+
 public class Memory {
 	
-	private Bus bus;
-	private int storePosition; //this value indicates that the memory has read an
+	protected Bus bus;
+	protected int storePosition; //this value indicates that the memory has read an
 					// address and is waiting for a data to be storesd in this position
-	private int size;
+	protected int size;
 	private int dataList[];
 	
 	public Memory(int size, Bus bus) {
@@ -19,14 +21,69 @@ public class Memory {
 	}
 
 	/**
-	 * This method is used for TDD and Simulation purposes only
-	 * NOT TESTED
+	 * This constructor is used by memories that keep their data in their own structures
+	 * (no data list is allocated here)
+	 * @param bus
+	 * @param size
+	 */
+	protected Memory(Bus bus, int size) {
+		storePosition = -1;
+		this.size = size;
+		this.bus = bus;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * This method is used for TDD and Simulation purposes only.
+	 * The list returned is the memory itself: changes made into it change the memory.
+	 * A PagedMemory joins its pages into one to give it, so it loses the paging:
+	 * load, store(position, data) and dump work on any memory and should be preferred
 	 * @return
 	 */
 	public int[] getDataList() {
 		return dataList;
 	}
 
+	/**
+	 * This method returns the position latched by a started (and not finished) store.
+	 * Negative values indicates the memory is not storing
+	 * @return
+	 */
+	public int getStorePosition() {
+		return storePosition;
+	}
+
+	/**
+	 * This method sets the position latched by the store protocol.
+	 * It is used for snapshot and restore purposes only
+	 * @param storePosition
+	 */
+	public void setStorePosition(int storePosition) {
+		this.storePosition = storePosition;
+	}
+
+	/**
+	 * This method returns a copy of all the positions of the memory
+	 * @return
+	 */
+	public int[] dump() {
+		return dataList.clone();
+	}
+
+	/**
+	 * This method overwrites all the positions of the memory with the data array
+	 * in a single bulk copy. The array must have the same size of the memory
+	 * @param data
+	 */
+	public void restore(int[] data) {
+		if (data.length != size)
+			throw new IllegalArgumentException("Memory size mismatch: " + data.length + " != " + size);
+		System.arraycopy(data, 0, dataList, 0, size);
+	}
+
 	/**
 	 * This method stores into position the data found in the bus
 	 * @param position
@@ -46,9 +103,91 @@ public class Memory {
 	 * @param position
 	 */
 	public void read() {
-		if ((bus.get() < size)&&(bus.get() >=0))
-			bus.put(dataList[bus.get()]);
+		int position = bus.get();
+		if ((position < size)&&(position >=0))
+			bus.put(dataList[position]);
+	}
+
+	// the memory port: the accesses below don't use the bus nor the store protocol
+
+	/**
+	 * This method returns the data in a position
+	 * @param position
+	 * @return
+	 */
+	public int load(int position) {
+		return dataList[position];
+	}
+
+	/**
+	 * This method stores a data in a position
+	 * @param position
+	 * @param data
+	 */
+	public void store(int position, int data) {
+		dataList[position] = data;
+	}
+
+	/**
+	 * This method returns a copy of length positions, from position
+	 * @param position
+	 * @param length
+	 * @return
+	 */
+	public int[] loadBlock(int position, int length) {
+		int data[] = new int[length];
+		System.arraycopy(dataList, position, data, 0, length);
+		return data;
+	}
+
+	/**
+	 * This method stores the data array into the memory, from position
+	 * @param position
+	 * @param data
+	 */
+	public void storeBlock(int position, int data[]) {
+		checkBlock(position, data.length);
+		System.arraycopy(data, 0, dataList, position, data.length);
 	}
 
+	/**
+	 * This method copies length positions from a position to another.
+	 * The blocks may overlap: the result is the same of copying the whole source block first
+	 * @param from
+	 * @param to
+	 * @param length
+	 */
+	public void copyBlock(int from, int to, int length) {
+		checkBlock(from, length);
+		checkBlock(to, length);
+		System.arraycopy(dataList, from, dataList, to, length);
+	}
+
+	/**
+	 * This method stores the same data into length positions, from position
+	 * @param position
+	 * @param length
+	 * @param data
+	 */
+	public void fillBlock(int position, int length, int data) {
+		checkBlock(position, length);
+		Arrays.fill(dataList, position, position + length, data);
+	}
+
+	/**
+	 * This method checks if length positions from position are all inside the memory
+	 * @param position
+	 * @param length
+	 * @return
+	 */
+	public boolean isBlock(int position, int length) {
+		return (length >= 0) && (position >= 0) && (position <= size - length);
+	}
+
+	protected void checkBlock(int position, int length) {
+		if (!isBlock(position, length))
+			throw new IndexOutOfBoundsException("Block " + position + ".." + (position + length - 1)
+					+ " out of the memory");
+	}
 
 }
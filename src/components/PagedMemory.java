@@ -0,0 +1,214 @@
+package components;
+
+/**
+ * This memory keeps its data in fixed size pages.
+ * A paged memory can be forked: the new memory shares all the pages with the
+ * original one and a page is only copied when it is written for the first time
+ * (copy-on-write). So, the cost of a fork is proportional to the pages actually
+ * modified, not to the memory size.
+ */
+public class PagedMemory extends Memory {
+
+	public static final int DEFAULT_PAGE_SIZE = 64;
+
+	private int pageBits;
+	private int pageMask;
+	private int pages[][];
+	private boolean owned[]; // false means the page is shared and must be copied before a write
+	private int copiedPages; // how many pages were copied due to writes in shared pages
+
+	public PagedMemory(int size, Bus bus) {
+		this(size, DEFAULT_PAGE_SIZE, bus);
+	}
+
+	/**
+	 * @param size
+	 * @param pageSize must be a power of two
+	 * @param bus
+	 */
+	public PagedMemory(int size, int pageSize, Bus bus) {
+		super(bus, size);
+		if (Integer.bitCount(pageSize) != 1)
+			throw new IllegalArgumentException("Page size must be a power of two: " + pageSize);
+		pageBits = Integer.numberOfTrailingZeros(pageSize);
+		pageMask = pageSize - 1;
+		int numPages = (size + pageMask) >> pageBits;
+		pages = new int[numPages][];
+		owned = new boolean[numPages];
+		for (int i = 0; i < numPages; i++) {
+			pages[i] = new int[pageSize];
+			owned[i] = true;
+		}
+	}
+
+	/**
+	 * Fork constructor: all pages are shared with the original memory
+	 */
+	private PagedMemory(PagedMemory original, Bus bus) {
+		super(bus, original.size);
+		pageBits = original.pageBits;
+		pageMask = original.pageMask;
+		pages = original.pages.clone(); // only the page references are copied
+		owned = new boolean[pages.length];
+		storePosition = original.storePosition;
+		// from now on, the original memory must also copy a page before writing it
+		for (int i = 0; i < owned.length; i++) {
+			original.owned[i] = false;
+		}
+	}
+
+	/**
+	 * This method creates a new memory, attached to the bus, sharing all pages with this one
+	 * @param bus
+	 * @return
+	 */
+	public PagedMemory fork(Bus bus) {
+		return new PagedMemory(this, bus);
+	}
+
+	/**
+	 * This method returns how many pages were copied because of writes into shared pages
+	 * @return
+	 */
+	public int getCopiedPages() {
+		return copiedPages;
+	}
+
+	public int getPageSize() {
+		return pageMask + 1;
+	}
+
+	/**
+	 * This method writes a data in a position, copying the page first if it is shared
+	 * @param position
+	 * @param data
+	 */
+	private void write(int position, int data) {
+		int p = position >> pageBits;
+		if (!owned[p]) {
+			pages[p] = pages[p].clone();
+			owned[p] = true;
+			copiedPages++;
+		}
+		pages[p][position & pageMask] = data;
+	}
+
+	@Override
+	public void store() {
+		if (storePosition < 0) { //the storing is just starting
+			this.storePosition = bus.get();
+		}
+		else {//the storing was initiated, in the bus is the data
+			write(storePosition, bus.get());
+			storePosition = -1; //no storing is being performed anymore
+		}
+	}
+
+	@Override
+	public void read() {
+		int position = bus.get();
+		if ((position < size)&&(position >=0))
+			bus.put(pages[position >> pageBits][position & pageMask]);
+	}
+
+	/**
+	 * A paged memory has no single data list, so all the pages are joined into one page first:
+	 * the list returned is the memory itself, as in Memory, and its length is the page size
+	 * (the memory size rounded up to a power of two).
+	 * From now on a fork shares the whole memory as one page, and after a fork this memory
+	 * copies that page on its first write, so the list must be taken again.
+	 * load, store(position, data) and dump keep the paging and should be preferred
+	 */
+	@Override
+	public int[] getDataList() {
+		if ((pages.length > 1) || !owned[0]) {
+			int pageSize = (size <= 1) ? 1 : Integer.highestOneBit(size - 1) << 1;
+			int page[] = new int[pageSize];
+			System.arraycopy(dump(), 0, page, 0, size);
+			pageBits = Integer.numberOfTrailingZeros(pageSize);
+			pageMask = pageSize - 1;
+			pages = new int[][] { page };
+			owned = new boolean[] { true };
+		}
+		return pages[0];
+	}
+
+	@Override
+	public int[] dump() {
+		int data[] = new int[size];
+		int pageSize = pageMask + 1;
+		for (int p = 0; p < pages.length; p++) {
+			int start = p << pageBits;
+			System.arraycopy(pages[p], 0, data, start, Math.min(pageSize, size - start));
+		}
+		return data;
+	}
+
+	/**
+	 * The restored data is put into new (owned) pages, so any shared page is released
+	 */
+	@Override
+	public void restore(int[] data) {
+		if (data.length != size)
+			throw new IllegalArgumentException("Memory size mismatch: " + data.length + " != " + size);
+		int pageSize = pageMask + 1;
+		for (int p = 0; p < pages.length; p++) {
+			int start = p << pageBits;
+			int page[] = owned[p] ? pages[p] : new int[pageSize];
+			System.arraycopy(data, start, page, 0, Math.min(pageSize, size - start));
+			pages[p] = page;
+			owned[p] = true;
+		}
+	}
+
+	@Override
+	public int load(int position) {
+		return pages[position >> pageBits][position & pageMask];
+	}
+
+	@Override
+	public void store(int position, int data) {
+		write(position, data);
+	}
+
+	@Override
+	public int[] loadBlock(int position, int length) {
+		int data[] = new int[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = load(position + i);
+		}
+		return data;
+	}
+
+	@Override
+	public void storeBlock(int position, int data[]) {
+		checkBlock(position, data.length);
+		for (int i = 0; i < data.length; i++) {
+			write(position + i, data[i]);
+		}
+	}
+
+	@Override
+	public void copyBlock(int from, int to, int length) {
+		checkBlock(from, length);
+		checkBlock(to, length);
+		if (to > from) { // backwards, so an overlapped source is read before being written
+			for (int i = length - 1; i >= 0; i--) {
+				write(to + i, load(from + i));
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				write(to + i, load(from + i));
+			}
+		}
+	}
+
+	@Override
+	public void fillBlock(int position, int length, int data) {
+		checkBlock(position, length);
+		for (int i = 0; i < length; i++) {
+			write(position + i, data);
+		}
+	}
+
+}
@@ -23,6 +23,16 @@ public class Register {
 	public int getData() {
 		return data;
 	}
+
+	/**
+	 * This method writes the data of this register directly, bypassing the buses.
+	 * It is used by the restore of snapshots and by the engines that don't run the
+	 * bus protocol (the FastEngine changes the registers and PC through it)
+	 * @param data
+	 */
+	public void setData(int data) {
+		this.data = data;
+	}
 	
 	/**
 	 * This special constructor is used to make Flags register
@@ -41,10 +51,34 @@ public class Register {
 		this.busExt = bus;
 	}
 	
+	/**
+	 * This method returns the amount of special bits of a Flags register
+	 * @return
+	 */
+	public int getNumFlags() {
+		return numFlags;
+	}
+
 	public String getRegisterName() {
 		return registerName;
 	}
 
+	/**
+	 * This method returns the bus used by read and store
+	 * @return
+	 */
+	public Bus getExtBus() {
+		return busExt;
+	}
+
+	/**
+	 * This method returns the bus used by internalRead and internalStore (null if there is none)
+	 * @return
+	 */
+	public Bus getIntBus() {
+		return busInt;
+	}
+
 	/**
 	 * This method allows the UC or the ULA to access any special bit
 	 * @param pos
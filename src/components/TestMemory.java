@@ -51,4 +51,38 @@ public class TestMemory {
 	}
 
 
+	@Test
+	public void testPorts() {
+		Bus bus = new Bus();
+		Memory memory = new Memory(16, bus);
+		memory.store(3, 9);
+		assertEquals(9, memory.load(3));
+		memory.storeBlock(10, new int[] {1, 2, 3});
+		assertArrayEquals(new int[] {0, 1, 2, 3}, memory.loadBlock(9, 4));
+		//the bus protocol sees the same positions
+		bus.put(11);
+		memory.read();
+		assertEquals(2, bus.get());
+		//the ports don't use the bus
+		bus.put(7);
+		memory.store(4, 5);
+		assertEquals(7, bus.get());
+		//overlapped copies
+		memory.copyBlock(10, 11, 3);
+		assertArrayEquals(new int[] {1, 1, 2, 3}, memory.loadBlock(10, 4));
+		memory.copyBlock(11, 10, 3);
+		assertArrayEquals(new int[] {1, 2, 3, 3}, memory.loadBlock(10, 4));
+		memory.fillBlock(0, 3, 8);
+		assertArrayEquals(new int[] {8, 8, 8, 9}, memory.loadBlock(0, 4));
+		assertTrue(memory.isBlock(0, 16));
+		assertFalse(memory.isBlock(1, 16));
+		assertFalse(memory.isBlock(0, -1));
+		try {
+			memory.storeBlock(14, new int[] {1, 2, 3});
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals(0, memory.load(14)); //nothing was stored
+		}
+	}
+
 }
@@ -0,0 +1,141 @@
+package components;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestPagedMemory {
+
+	@Test
+	public void testReadStore() {
+		Bus bus = new Bus();
+		PagedMemory memory = new PagedMemory(40, 16, bus); //40 positions in 3 pages (the last one partially used)
+		for (int i=0;i<40;i++) {
+			bus.put(i);
+			memory.store(); //the position is defined
+			bus.put(i*i);
+			memory.store(); //storing the data
+		}
+		for (int i=0;i<40;i++) {
+			bus.put(i);
+			memory.read();
+			assertEquals(i*i, bus.get());
+		}
+		//trying to access addresses out of the memory range makes no effect into the bus
+		bus.put(40);
+		memory.read();
+		assertEquals(40, bus.get());
+		assertEquals(39*39, memory.dump()[39]);
+	}
+
+	@Test
+	public void testFork() {
+		Bus bus = new Bus();
+		PagedMemory memory = new PagedMemory(64, 16, bus);
+		for (int i=0;i<64;i++) {
+			bus.put(i);
+			memory.store();
+			bus.put(i);
+			memory.store();
+		}
+		Bus bus2 = new Bus();
+		PagedMemory fork = memory.fork(bus2);
+		assertEquals(0, fork.getCopiedPages());
+
+		//writing in the fork must not change the original memory
+		bus2.put(20);
+		fork.store();
+		bus2.put(-20);
+		fork.store();
+		assertEquals(1, fork.getCopiedPages()); //only the written page was copied
+		bus2.put(21);
+		fork.store();
+		bus2.put(-21);
+		fork.store();
+		assertEquals(1, fork.getCopiedPages()); //the page is already owned by the fork
+
+		bus.put(20);
+		memory.read();
+		assertEquals(20, bus.get());
+		bus2.put(20);
+		fork.read();
+		assertEquals(-20, bus2.get());
+
+		//writing in the original memory must not change the fork
+		bus.put(50);
+		memory.store();
+		bus.put(500);
+		memory.store();
+		assertEquals(1, memory.getCopiedPages());
+		bus2.put(50);
+		fork.read();
+		assertEquals(50, bus2.get());
+
+		//restoring releases the shared pages
+		int data[] = new int[64];
+		fork.restore(data);
+		bus2.put(21);
+		fork.read();
+		assertEquals(0, bus2.get());
+		bus.put(21);
+		memory.read();
+		assertEquals(21, bus.get());
+	}
+
+	@Test
+	public void testPorts() {
+		Bus bus = new Bus();
+		PagedMemory memory = new PagedMemory(40, 16, bus);
+		int block[] = new int[20];
+		for (int i=0;i<20;i++) {
+			block[i] = i + 100;
+		}
+		memory.storeBlock(10, block); //crossing the first two pages
+		assertEquals(105, memory.load(15));
+		assertArrayEquals(block, memory.loadBlock(10, 20));
+		//a block written in a fork copies only its pages
+		PagedMemory fork = memory.fork(new Bus());
+		fork.storeBlock(16, new int[] {1, 2});
+		assertEquals(1, fork.getCopiedPages());
+		assertEquals(1, fork.load(16));
+		assertEquals(106, memory.load(16));
+		fork.store(35, 7);
+		assertEquals(2, fork.getCopiedPages());
+		assertEquals(0, memory.load(35));
+		//an overlapped copy crossing the pages
+		fork.copyBlock(10, 12, 20);
+		assertEquals(100, fork.load(12));
+		assertEquals(119, fork.load(31));
+		assertEquals(3, fork.getCopiedPages());
+		fork.fillBlock(0, 5, 3);
+		assertEquals(3, fork.load(4));
+		assertEquals(0, memory.load(4));
+	}
+
+
+	@Test
+	public void testDataList() {
+		PagedMemory memory = new PagedMemory(40, 16, new Bus());
+		memory.store(20, 5);
+		PagedMemory fork = memory.fork(new Bus());
+		//the pages are joined: the list is the memory itself
+		int data[] = memory.getDataList();
+		assertEquals(64, data.length);
+		assertEquals(5, data[20]);
+		data[33] = 8;
+		assertEquals(8, memory.load(33));
+		memory.store(1, 4);
+		assertEquals(4, data[1]);
+		assertEquals(0, fork.load(33));
+		assertEquals(0, fork.load(1));
+		//a fork shares the joined page, copied on the first write
+		PagedMemory second = memory.fork(new Bus());
+		second.store(2, 9);
+		assertEquals(0, memory.load(2));
+		assertEquals(8, second.load(33));
+		memory.store(3, 1);
+		assertEquals(1, memory.getDataList()[3]);
+		assertEquals(0, second.load(3));
+	}
+
+}
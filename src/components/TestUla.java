@@ -129,4 +129,81 @@ public class TestUla {
 		ula.read(1);
 		assertEquals(0, bus.get());
 	}
+	
+	@Test
+	public void testLogic() {
+		Bus bus = new Bus();
+		Bus bus2 = new Bus();
+		Ula ula = new Ula(bus, bus2);
+		bus.put(12);
+		ula.store(0); //12 (1100) is in reg1
+		bus.put(10);
+		ula.store(1); //10 (1010) is in reg2
+		ula.and(); //now we must have 1000 in reg2
+		ula.read(1);
+		assertEquals(8, bus.get());
+		
+		ula.or(); //1100 or 1000
+		ula.read(1);
+		assertEquals(12, bus.get());
+		
+		ula.xor(); //1100 xor 1100
+		ula.read(1);
+		assertEquals(0, bus.get());
+	}
+	
+	@Test
+	public void testShifts() {
+		Bus bus = new Bus();
+		Bus bus2 = new Bus();
+		Ula ula = new Ula(bus, bus2);
+		bus.put(5);
+		ula.store(1); //5 is in reg2
+		ula.shl(); //now we must have 10 in reg2
+		ula.read(1);
+		assertEquals(10, bus.get());
+		
+		bus.put(-2);
+		ula.store(1);
+		ula.shr(); //the shift is logical: the highest bit becomes 0
+		ula.read(1);
+		assertEquals(Integer.MAX_VALUE, bus.get());
+		
+		bus.put(Integer.MIN_VALUE + 1);
+		ula.store(1);
+		ula.rol(); //the highest bit goes to the lowest one
+		ula.read(1);
+		assertEquals(3, bus.get());
+		
+		ula.ror(); //the lowest bit goes to the highest one
+		ula.ror();
+		ula.read(1);
+		assertEquals(Integer.MIN_VALUE + (1 << 30), bus.get());
+	}
+	
+	@Test
+	public void testDivision() {
+		Bus bus = new Bus();
+		Bus bus2 = new Bus();
+		Ula ula = new Ula(bus, bus2);
+		bus.put(-23);
+		ula.store(0); //-23 is in reg1
+		bus.put(5);
+		ula.store(1); //5 is in reg2
+		ula.div(); //now we must have -23/5 = -4 in reg2
+		ula.read(1);
+		assertEquals(-4, bus.get());
+		
+		bus.put(5);
+		ula.store(1);
+		ula.mod(); //the remainder has the sign of the dividend
+		ula.read(1);
+		assertEquals(-3, bus.get());
+		
+		bus.put(0);
+		ula.store(1);
+		ula.div(); //a zero divisor is not changed
+		ula.read(1);
+		assertEquals(0, bus.get());
+	}
 }
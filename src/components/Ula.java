@@ -62,6 +62,116 @@ public class Ula {
 		
 	}
 	
+	/**
+	 * This method makes the bitwise and of the reg1 and reg2 values, storing the result in reg2
+	 */
+	public void and() {
+		intBus.put(0);
+		reg1.internalRead();
+		int res = intBus.get();
+		reg2.internalRead();
+		res &= intBus.get();
+		intBus.put(res);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method makes the bitwise or of the reg1 and reg2 values, storing the result in reg2
+	 */
+	public void or() {
+		intBus.put(0);
+		reg1.internalRead();
+		int res = intBus.get();
+		reg2.internalRead();
+		res |= intBus.get();
+		intBus.put(res);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method makes the bitwise exclusive or of the reg1 and reg2 values, storing the result in reg2
+	 */
+	public void xor() {
+		intBus.put(0);
+		reg1.internalRead();
+		int res = intBus.get();
+		reg2.internalRead();
+		res ^= intBus.get();
+		intBus.put(res);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method divides the reg1 value by the reg2 value, storing the quotient in reg2.
+	 * If reg2 is 0, it is not changed
+	 */
+	public void div() {
+		intBus.put(0);
+		reg1.internalRead();
+		int res = intBus.get();
+		reg2.internalRead();
+		if (intBus.get() == 0)
+			return;
+		res /= intBus.get();
+		intBus.put(res);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method divides the reg1 value by the reg2 value, storing the remainder in reg2.
+	 * If reg2 is 0, it is not changed
+	 */
+	public void mod() {
+		intBus.put(0);
+		reg1.internalRead();
+		int res = intBus.get();
+		reg2.internalRead();
+		if (intBus.get() == 0)
+			return;
+		res %= intBus.get();
+		intBus.put(res);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method shifts the value stored into reg2 one bit to the left
+	 */
+	public void shl() {
+		reg2.internalRead();
+		intBus.put(intBus.get() << 1);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method shifts the value stored into reg2 one bit to the right.
+	 * The shift is logical: the highest bit becomes 0
+	 */
+	public void shr() {
+		reg2.internalRead();
+		intBus.put(intBus.get() >>> 1);
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method rotates the value stored into reg2 one bit to the left: the highest bit
+	 * becomes the lowest one
+	 */
+	public void rol() {
+		reg2.internalRead();
+		intBus.put(Integer.rotateLeft(intBus.get(), 1));
+		reg2.internalStore();
+	}
+
+	/**
+	 * This method rotates the value stored into reg2 one bit to the right: the lowest bit
+	 * becomes the highest one
+	 */
+	public void ror() {
+		reg2.internalRead();
+		intBus.put(Integer.rotateRight(intBus.get(), 1));
+		reg2.internalStore();
+	}
+
 	/**
 	 * This method stores the value found in the external bus into the #reg
 	 * @param reg
@@ -110,4 +220,30 @@ public class Ula {
 	}
 	
 	
+	/**
+	 * This method returns the value stored into the #reg without using any bus.
+	 * It is used for snapshot and restore purposes only
+	 * @param reg
+	 * @return
+	 */
+	public int getRegisterData(int reg) {
+		if (reg==0)
+			return reg1.getData();
+		else
+			return reg2.getData();
+	}
+
+	/**
+	 * This method sets the value of the #reg without using any bus.
+	 * It is used for snapshot and restore purposes only
+	 * @param reg
+	 * @param data
+	 */
+	public void setRegisterData(int reg, int data) {
+		if (reg==0)
+			reg1.setData(data);
+		else
+			reg2.setData(data);
+	}
+
 }